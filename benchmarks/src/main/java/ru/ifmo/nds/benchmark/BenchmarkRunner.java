@@ -0,0 +1,54 @@
+package ru.ifmo.nds.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the whole suite with the GC/allocation profiler enabled:
+ * sorters, single-threaded populations, and thread-safe populations with 1 to {@code maxThreads} threads.
+ * By default {@code maxThreads} is at least 16, so that the contention of the concurrent populations
+ * is visible even if there are fewer cores.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar ru.ifmo.nds.benchmark.BenchmarkRunner [maxThreads]}
+ */
+public class BenchmarkRunner {
+    private static final int DEFAULT_MAX_THREADS = 16;
+
+    public static void main(String[] args) throws RunnerException {
+        final int maxThreads = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Math.max(DEFAULT_MAX_THREADS, Runtime.getRuntime().availableProcessors());
+
+        new Runner(options()
+                .include(SorterBenchmark.class.getSimpleName())
+                .build()).run();
+
+        new Runner(options()
+                .include(PopulationBenchmark.class.getSimpleName())
+                .threads(1)
+                .build()).run();
+
+        final String[] threadSafe = Arrays.stream(PopulationBenchmark.PopulationType.values())
+                .filter(t -> t.threadSafe)
+                .map(Enum::name)
+                .collect(Collectors.toList())
+                .toArray(new String[0]);
+        for (int threads = 2; threads <= maxThreads; threads *= 2) {
+            new Runner(options()
+                    .include(PopulationBenchmark.class.getSimpleName())
+                    .param("populationType", threadSafe)
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+
+    private static ChainedOptionsBuilder options() {
+        return new OptionsBuilder().addProfiler(GCProfiler.class);
+    }
+}
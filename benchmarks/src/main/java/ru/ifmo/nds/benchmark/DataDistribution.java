@@ -0,0 +1,74 @@
+package ru.ifmo.nds.benchmark;
+
+import java.util.Random;
+
+/**
+ * Point sets used by the benchmarks
+ */
+public enum DataDistribution {
+    /**
+     * Independent uniform coordinates in [0, 1)
+     */
+    UNIFORM_CUBE {
+        @Override
+        double[][] generate(Random random, int n, int dim) {
+            final double[][] rs = new double[n][dim];
+            for (double[] point : rs) {
+                for (int j = 0; j < dim; ++j) {
+                    point[j] = random.nextDouble();
+                }
+            }
+            return rs;
+        }
+    },
+
+    /**
+     * Points of the simplex (coordinates sum up to 1), all of them are mutually non-dominated
+     */
+    SIMPLEX_FRONT {
+        @Override
+        double[][] generate(Random random, int n, int dim) {
+            final double[][] rs = new double[n][];
+            for (int i = 0; i < n; ++i) {
+                rs[i] = simplexPoint(random, dim);
+            }
+            return rs;
+        }
+    },
+
+    /**
+     * About sqrt(n) copies of the simplex shifted along the main diagonal.
+     * Every point of a copy dominates every point of the next one, so the number of levels equals the number of copies.
+     */
+    MANY_LAYERS {
+        @Override
+        double[][] generate(Random random, int n, int dim) {
+            final int layers = Math.max(1, (int) Math.sqrt(n));
+            final double[][] rs = new double[n][];
+            for (int i = 0; i < n; ++i) {
+                final double[] point = simplexPoint(random, dim);
+                final int layer = random.nextInt(layers);
+                for (int j = 0; j < dim; ++j) {
+                    point[j] += layer;
+                }
+                rs[i] = point;
+            }
+            return rs;
+        }
+    };
+
+    abstract double[][] generate(Random random, int n, int dim);
+
+    private static double[] simplexPoint(Random random, int dim) {
+        final double[] point = new double[dim];
+        double sum = 0;
+        for (int j = 0; j < dim; ++j) {
+            point[j] = -Math.log(1 - random.nextDouble());
+            sum += point[j];
+        }
+        for (int j = 0; j < dim; ++j) {
+            point[j] /= sum;
+        }
+        return point;
+    }
+}
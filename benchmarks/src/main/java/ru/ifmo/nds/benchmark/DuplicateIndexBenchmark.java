@@ -0,0 +1,197 @@
+package ru.ifmo.nds.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.ObjectiveHashSet;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the duplicate detection used by the populations: the previous {@link ConcurrentHashMap} of individuals
+ * against {@link ObjectiveHashSet}. The index holds {@code size} points; {@code lookup} queries a mix of present and
+ * absent points, {@code addRemove} adds a new point and removes it, so that the size stays the same.
+ * <p>
+ * The number of threads is set by the JMH "-t" option. The memory per element is measured by {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DuplicateIndexBenchmark {
+    private static final int PROBE_POOL_SIZE = 1 << 14;
+
+    public enum IndexType {
+        CONCURRENT_HASH_MAP {
+            @Override
+            DuplicateIndex create() {
+                final Map<IIndividual<Object>, Boolean> map = new ConcurrentHashMap<>();
+                return new DuplicateIndex() {
+                    @Override
+                    boolean add(IIndividual<Object> individual) {
+                        return map.putIfAbsent(individual, true) == null;
+                    }
+
+                    @Override
+                    boolean contains(IIndividual<Object> individual) {
+                        return map.containsKey(individual);
+                    }
+
+                    @Override
+                    boolean remove(IIndividual<Object> individual) {
+                        return map.remove(individual) != null;
+                    }
+                };
+            }
+        },
+        OBJECTIVE_HASH_SET {
+            @Override
+            DuplicateIndex create() {
+                final ObjectiveHashSet set = new ObjectiveHashSet();
+                return new DuplicateIndex() {
+                    @Override
+                    boolean add(IIndividual<Object> individual) {
+                        return set.add(individual.getObjectives());
+                    }
+
+                    @Override
+                    boolean contains(IIndividual<Object> individual) {
+                        return set.contains(individual.getObjectives());
+                    }
+
+                    @Override
+                    boolean remove(IIndividual<Object> individual) {
+                        return set.remove(individual.getObjectives());
+                    }
+                };
+            }
+        };
+
+        abstract DuplicateIndex create();
+    }
+
+    abstract static class DuplicateIndex {
+        abstract boolean add(IIndividual<Object> individual);
+
+        abstract boolean contains(IIndividual<Object> individual);
+
+        abstract boolean remove(IIndividual<Object> individual);
+    }
+
+    @Param({"CONCURRENT_HASH_MAP", "OBJECTIVE_HASH_SET"})
+    public IndexType indexType;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"3"})
+    public int dim;
+
+    private DuplicateIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = indexType.create();
+        final Random random = new Random(size * 31L + dim);
+        for (int i = 0; i < size; ++i) {
+            index.add(point(random, dim, 0));
+        }
+    }
+
+    /**
+     * Points of a single benchmark thread: every second one is present in the index (the same seed as the setup),
+     * the others are absent and unique to the thread
+     */
+    @State(Scope.Thread)
+    public static class Probes {
+        private IIndividual<Object>[] pool;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(DuplicateIndexBenchmark benchmark, ThreadParams threadParams) {
+            final Random present = new Random(benchmark.size * 31L + benchmark.dim);
+            final Random absent = new Random(threadParams.getThreadIndex());
+            //noinspection unchecked
+            pool = new IIndividual[PROBE_POOL_SIZE];
+            for (int i = 0; i < pool.length; ++i) {
+                pool[i] = i % 2 == 0 && i / 2 < benchmark.size
+                        ? point(present, benchmark.dim, 0)
+                        : point(absent, benchmark.dim, 1 + threadParams.getThreadIndex());
+            }
+        }
+
+        IIndividual<Object> next() {
+            final IIndividual<Object> rs = pool[next];
+            next = (next + 1) & (PROBE_POOL_SIZE - 1);
+            return rs;
+        }
+
+        IIndividual<Object> nextAbsent() {
+            next = (next + 1) | 1;
+            return next();
+        }
+    }
+
+    @Benchmark
+    public boolean lookup(Probes probes) {
+        return index.contains(probes.next());
+    }
+
+    @Benchmark
+    public boolean addRemove(Probes probes) {
+        final IIndividual<Object> individual = probes.nextAbsent();
+        return index.add(individual) & index.remove(individual);
+    }
+
+    /**
+     * The first coordinate keeps the points of different owners apart
+     */
+    private static IIndividual<Object> point(Random random, int dim, int owner) {
+        final double[] objectives = new double[dim];
+        objectives[0] = owner;
+        for (int i = 1; i < dim; ++i) {
+            objectives[i] = random.nextDouble();
+        }
+        return new FitnessAndCdIndividual<>(objectives, null);
+    }
+
+    /**
+     * Prints the retained heap per element of every index type, not counting the individuals themselves.
+     * <p>
+     * Usage: {@code java -cp target/benchmarks.jar ru.ifmo.nds.benchmark.DuplicateIndexBenchmark [size]}
+     */
+    public static void main(String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final Random random = new Random(size);
+        final IIndividual<Object>[] individuals = new IIndividual[size];
+        for (int i = 0; i < size; ++i) {
+            individuals[i] = point(random, 3, 0);
+        }
+        for (IndexType type : IndexType.values()) {
+            final long before = usedMemory();
+            final DuplicateIndex index = type.create();
+            for (IIndividual<Object> individual : individuals) {
+                index.add(individual);
+            }
+            final long after = usedMemory();
+            System.out.printf("%s: %.1f bytes per element%n", type, (double) (after - before) / size);
+            if (!index.contains(individuals[0])) {
+                throw new AssertionError();
+            }
+        }
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,160 @@
+package ru.ifmo.nds.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.dcns.concurrent.ActorPopulation;
+import ru.ifmo.nds.dcns.concurrent.CJFBYPopulation;
+import ru.ifmo.nds.dcns.concurrent.FlatCombiningPopulation;
+import ru.ifmo.nds.dcns.concurrent.LevelLockJFBYPopulation;
+import ru.ifmo.nds.dcns.concurrent.LockFreeJFBYPopulation;
+import ru.ifmo.nds.dcns.concurrent.ShardedPopulation;
+import ru.ifmo.nds.dcns.enlu.ENLUManagedPopulation;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.jfby.TotalSyncJFBYPopulation;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state throughput of {@link IManagedPopulation#addIndividual}: the population is filled up to
+ * its expected size, then every added point causes the removal of the worst one.
+ * <p>
+ * The number of threads is set by the JMH "-t" option (see {@link BenchmarkRunner}).
+ * Populations which are not thread-safe refuse to run with more than one thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PopulationBenchmark {
+    private static final int OFFSPRING_POOL_SIZE = 1 << 16;
+
+    public enum PopulationType {
+        JFBY(false) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new JFBYPopulation<>(size);
+            }
+        },
+        TOTAL_SYNC_JFBY(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new TotalSyncJFBYPopulation<>(size);
+            }
+        },
+        CJFBY(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new CJFBYPopulation<>(size, false);
+            }
+        },
+        LOCK_FREE_JFBY(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new LockFreeJFBYPopulation<>(size);
+            }
+        },
+        LEVEL_LOCK_JFBY(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new LevelLockJFBYPopulation<>(size);
+            }
+        },
+        FLAT_COMBINING(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new FlatCombiningPopulation<>(size);
+            }
+        },
+        ACTOR(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new ActorPopulation<>(size);
+            }
+        },
+        SHARDED(true) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new ShardedPopulation<>(size);
+            }
+        },
+        ENLU(false) {
+            @Override
+            IManagedPopulation<Object> create(int size) {
+                return new ENLUManagedPopulation<>(size);
+            }
+        };
+
+        final boolean threadSafe;
+
+        PopulationType(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        abstract IManagedPopulation<Object> create(int size);
+    }
+
+    @Param({"JFBY", "TOTAL_SYNC_JFBY", "CJFBY", "LOCK_FREE_JFBY", "LEVEL_LOCK_JFBY", "FLAT_COMBINING", "ACTOR", "SHARDED", "ENLU"})
+    public PopulationType populationType;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Param({"2", "3", "5"})
+    public int dim;
+
+    @Param({"UNIFORM_CUBE", "SIMPLEX_FRONT", "MANY_LAYERS"})
+    public DataDistribution distribution;
+
+    private IManagedPopulation<Object> population;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        if (params.getThreads() > 1 && !populationType.threadSafe) {
+            throw new IllegalStateException(populationType + " is not thread-safe");
+        }
+
+        population = populationType.create(size);
+        final Random random = new Random(size * 31L + dim);
+        for (double[] point : distribution.generate(random, size, dim)) {
+            population.addIndividual(new FitnessAndCdIndividual<>(point, null));
+        }
+    }
+
+    /**
+     * Pre-generated offspring of a single benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class Offspring {
+        private IIndividual<Object>[] pool;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(PopulationBenchmark benchmark, ThreadParams threadParams) {
+            final Random random = new Random(benchmark.size * 31L + benchmark.dim + 1 + threadParams.getThreadIndex());
+            final double[][] points = benchmark.distribution.generate(random, OFFSPRING_POOL_SIZE, benchmark.dim);
+            //noinspection unchecked
+            pool = new IIndividual[points.length];
+            for (int i = 0; i < points.length; ++i) {
+                pool[i] = new FitnessAndCdIndividual<>(points[i], null);
+            }
+        }
+
+        IIndividual<Object> next() {
+            final IIndividual<Object> rs = pool[next];
+            next = (next + 1) & (OFFSPRING_POOL_SIZE - 1);
+            return rs;
+        }
+    }
+
+    @Benchmark
+    public int addIndividual(Offspring offspring) {
+        return population.addIndividual(offspring.next());
+    }
+}
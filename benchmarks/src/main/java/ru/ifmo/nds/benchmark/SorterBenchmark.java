@@ -0,0 +1,127 @@
+package ru.ifmo.nds.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.dcns.sorter.*;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full sorting ({@link INonDominatedSorter#performNds}) and merging of one point into a level
+ * ({@link INonDominatedSorter#addRankedMembers}) throughput
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SorterBenchmark {
+    public enum SorterType {
+        JFB2014 {
+            @Override
+            INonDominatedSorter create() {
+                return new JFB2014();
+            }
+        },
+        PRIMITIVE_JFB {
+            @Override
+            INonDominatedSorter create() {
+                return new PrimitiveJFB();
+            }
+        },
+        PARALLEL_JFB {
+            @Override
+            INonDominatedSorter create() {
+                return new ParallelJFB();
+            }
+        },
+        BEST_ORDER_SORT {
+            @Override
+            INonDominatedSorter create() {
+                return new BestOrderSort();
+            }
+        },
+        ENS_SS {
+            @Override
+            INonDominatedSorter create() {
+                return new ENS(ENS.SearchStrategy.SEQUENTIAL);
+            }
+        },
+        ENS_BS {
+            @Override
+            INonDominatedSorter create() {
+                return new ENS(ENS.SearchStrategy.BINARY);
+            }
+        };
+
+        abstract INonDominatedSorter create();
+    }
+
+    @Param({"JFB2014", "PRIMITIVE_JFB", "PARALLEL_JFB", "BEST_ORDER_SORT", "ENS_SS", "ENS_BS"})
+    public SorterType sorterType;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"2", "3", "5", "10"})
+    public int dim;
+
+    @Param({"UNIFORM_CUBE", "SIMPLEX_FRONT", "MANY_LAYERS"})
+    public DataDistribution distribution;
+
+    private INonDominatedSorter sorter;
+    private IIndividual[] population;
+
+    private List<IIndividual<Object>> level;
+    private int[] levelRanks;
+    private List<IIndividual<Object>> addend;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(size * 31L + dim);
+        sorter = sorterType.create();
+        population = toIndividuals(distribution.generate(random, size, dim));
+
+        final IIndividual[] front = toIndividuals(DataDistribution.SIMPLEX_FRONT.generate(random, size, dim));
+        Arrays.sort(front, AscLexSortComparator.getInstance());
+        level = new ArrayList<>();
+        for (IIndividual individual : front) {
+            //noinspection unchecked
+            level.add(individual);
+        }
+        levelRanks = new int[level.size()];
+        final double[] point = DataDistribution.SIMPLEX_FRONT.generate(random, 1, dim)[0];
+        for (int j = 0; j < dim; ++j) {
+            point[j] *= 0.999;
+        }
+        addend = Collections.singletonList(new FitnessAndCdIndividual<>(point, null));
+    }
+
+    @Benchmark
+    public int[] performNds() {
+        //performNds sorts its argument in place
+        return sorter.performNds(population.clone());
+    }
+
+    @Benchmark
+    public RankedPopulation<IIndividual<Object>> addRankedMembers() {
+        return sorter.addRankedMembers(level, levelRanks, addend, 0);
+    }
+
+    static IIndividual[] toIndividuals(double[][] points) {
+        final IIndividual[] rs = new IIndividual[points.length];
+        for (int i = 0; i < points.length; ++i) {
+            rs[i] = new FitnessAndCdIndividual<>(points[i], null);
+        }
+        return rs;
+    }
+}
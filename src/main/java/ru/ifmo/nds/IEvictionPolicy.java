@@ -0,0 +1,28 @@
+package ru.ifmo.nds;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Chooses the members of the last non-domination level which a managed population removes
+ * when it grows over its expected size. Implementations are shared by the concurrent populations,
+ * so they must be thread-safe.
+ */
+public interface IEvictionPolicy {
+    /**
+     * @param lastLevel Level with at least one member
+     * @return Member of the level to remove
+     */
+    @Nonnull
+    default <T> IIndividual<T> selectWorst(@Nonnull INonDominationLevel<T> lastLevel) {
+        return selectWorst(lastLevel, 1).get(0);
+    }
+
+    /**
+     * @param lastLevel Level to select from
+     * @param count     Number of members to select, less than the level size
+     * @return {@code count} members of the level to remove, in the lexicographical order
+     */
+    @Nonnull
+    <T> List<IIndividual<T>> selectWorst(@Nonnull INonDominationLevel<T> lastLevel, int count);
+}
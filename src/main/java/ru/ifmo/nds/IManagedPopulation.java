@@ -7,6 +7,7 @@ import ru.ifmo.nds.util.RankedPopulation;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.TreeSet;
@@ -27,6 +28,33 @@ public interface IManagedPopulation<T> extends Cloneable {
     @Nonnull
     PopulationSnapshot<T> getSnapshot();
 
+    /**
+     * Add several individuals. Default implementation adds them one by one.
+     *
+     * @param addends Individuals to add
+     * @return ranks[i] is the rank assigned to the i-th individual of {@code addends} (in the iteration order)
+     * on its insertion. Implementations which insert the whole batch at once determine the ranks against the whole
+     * batch, so a rank may be greater than the one returned by a sequence of {@link #addIndividual} calls.
+     */
+    default int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        final int[] ranks = new int[addends.size()];
+        int i = 0;
+        for (IIndividual<T> addend : addends) {
+            ranks[i++] = addIndividual(addend);
+        }
+        return ranks;
+    }
+
+    /**
+     * Remove an individual. The points which were dominated only by it (and, transitively, by the points promoted
+     * instead of them) move to the previous levels, so the remaining population is sorted as if the individual
+     * was never added.
+     *
+     * @param individual Individual to remove
+     * @return true if the individual was present in the population
+     */
+    boolean removeIndividual(@Nonnull IIndividual<T> individual);
+
     /**
      * @return Working set of non-domination levels. The returned value cannot be altered directly, but may be
      * modified by some other thread at any time. Index in list equals to layer's rank.
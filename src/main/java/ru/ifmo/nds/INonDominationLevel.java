@@ -1,6 +1,9 @@
 package ru.ifmo.nds;
 
+import ru.ifmo.nds.util.LevelBounds;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
@@ -43,6 +46,12 @@ public interface INonDominationLevel<T> {
      */
     boolean dominatedByAnyPointOfThisLayer(@Nonnull IIndividual<T> point);
 
+    /**
+     * @return Min and max corners of the members of this layer, null if it is empty
+     */
+    @Nullable
+    LevelBounds getBounds();
+
     /**
      * @return Shallow copy of this layer
      */
@@ -1,6 +1,9 @@
 package ru.ifmo.nds;
 
+import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -14,6 +17,18 @@ public class PopulationSnapshot<T> {
         this.size = size;
     }
 
+    /**
+     * Some populations return a view of their working list of levels, so a snapshot which outlives the lock
+     * it was taken under has to be copied. The levels themselves are immutable, so only the list is copied.
+     *
+     * @return Snapshot with an unmodifiable copy of the list of levels
+     */
+    @Nonnull
+    public static <T> PopulationSnapshot<T> copyOf(@Nonnull PopulationSnapshot<T> snapshot) {
+        return new PopulationSnapshot<>(Collections.unmodifiableList(new ArrayList<>(snapshot.getLevels())),
+                snapshot.getSize());
+    }
+
     public List<INonDominationLevel<T>> getLevels() {
         return levels;
     }
@@ -0,0 +1,297 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Population owned by a single writer thread. Other threads send it requests through a bounded
+ * {@link MpscRingBuffer}; the writer drains all the available insertions into one
+ * {@link JFBYPopulation#addIndividuals} call, publishes an immutable snapshot and then completes the futures
+ * of the batch. So {@link #getSnapshot} and {@link #size} never block and never see a level being modified,
+ * and every completed insertion is visible in the snapshot.
+ * <p>
+ * When the buffer is full, the submitting threads wait for a free cell (backpressure). The ranks of individuals
+ * drained into one batch are determined against the whole batch (see {@link IManagedPopulation#addIndividuals}).
+ * The writer thread stops after {@link #close}, or after an {@link Error} thrown by the population, which fails
+ * all the pending requests.
+ */
+@ThreadSafe
+public class ActorPopulation<T> implements IManagedPopulation<T>, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private static final class Request<T> {
+        @Nullable
+        private final IIndividual<T> addend;
+
+        @Nullable
+        private final Function<JFBYPopulation<T>, ?> operation;
+
+        @Nonnull
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Request(@Nullable IIndividual<T> addend, @Nullable Function<JFBYPopulation<T>, ?> operation) {
+            this.addend = addend;
+            this.operation = operation;
+        }
+    }
+
+    @Nonnull
+    private final JFBYPopulation<T> population;
+
+    @Nonnull
+    private final MpscRingBuffer<Request<T>> requests;
+
+    @Nonnull
+    private final Thread writer;
+
+    @Nonnull
+    private final ThreadFactory threadFactory;
+
+    @Nonnull
+    private volatile PopulationSnapshot<T> snapshot;
+
+    private volatile boolean writerParked = false;
+    private volatile boolean closed = false;
+
+    @SuppressWarnings("WeakerAccess")
+    public ActorPopulation(long expectedPopSize) {
+        this(new JFBYPopulation<>(new JFB2014(), expectedPopSize));
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public ActorPopulation(@Nonnull JFBYPopulation<T> population) {
+        this(population, DEFAULT_CAPACITY, r -> {
+            final Thread thread = new Thread(r, "ActorPopulation-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param population    Population to own. It must not be accessed other than through this population.
+     * @param capacity      Max. number of pending requests, rounded up to a power of two
+     * @param threadFactory Creates the writer thread
+     */
+    @SuppressWarnings("WeakerAccess")
+    public ActorPopulation(@Nonnull JFBYPopulation<T> population, int capacity, @Nonnull ThreadFactory threadFactory) {
+        this.population = population;
+        this.requests = new MpscRingBuffer<>(capacity);
+        this.threadFactory = threadFactory;
+        this.snapshot = PopulationSnapshot.copyOf(population.getSnapshot());
+        this.writer = threadFactory.newThread(this::run);
+        writer.start();
+    }
+
+    /**
+     * Waits for a free cell of the buffer if it is full
+     *
+     * @return Rank of the individual on its insertion
+     */
+    @Nonnull
+    public CompletableFuture<Integer> addIndividualAsync(@Nonnull IIndividual<T> individual) {
+        return submit(new Request<>(individual, null)).thenApply(r -> (Integer) r);
+    }
+
+    @Override
+    public int addIndividual(@Nonnull IIndividual<T> individual) {
+        return join(addIndividualAsync(individual));
+    }
+
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        return join(submit(new Request<>(null, p -> p.addIndividuals(addends))).thenApply(r -> (int[]) r));
+    }
+
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        return join(submit(new Request<>(null, p -> p.removeIndividual(individual))).thenApply(r -> (Boolean) r));
+    }
+
+    /**
+     * @return Snapshot published after the last drained batch
+     */
+    @Nonnull
+    @Override
+    public PopulationSnapshot<T> getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.getSize();
+    }
+
+    /**
+     * @return A copy with its own writer thread, created by the same thread factory
+     */
+    @SuppressWarnings({"MethodDoesntCallSuperMethod", "unchecked"})
+    @Override
+    public ActorPopulation<T> clone() {
+        final JFBYPopulation<T> copy = join(submit(new Request<>(null, JFBYPopulation::clone))
+                .thenApply(r -> (JFBYPopulation<T>) r));
+        return new ActorPopulation<>(copy, requests.capacity(), threadFactory);
+    }
+
+    /**
+     * Stops the writer thread after the requests submitted before. Requests submitted later fail with
+     * {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+    }
+
+    @Nonnull
+    private CompletableFuture<Object> submit(@Nonnull Request<T> request) {
+        if (closed) {
+            throw new IllegalStateException("The population is closed");
+        }
+        while (!requests.offer(request)) {
+            if (closed) {
+                throw new IllegalStateException("The population is closed");
+            }
+            LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        if (closed) {
+            //The writer might stop without seeing the request
+            while (!request.result.isDone() && writer.isAlive()) {
+                Thread.yield();
+            }
+            request.result.completeExceptionally(new IllegalStateException("The population is closed"));
+        }
+        return request.result;
+    }
+
+    private void run() {
+        final List<Request<T>> batch = new ArrayList<>();
+        try {
+            process(batch);
+        } catch (Throwable e) {
+            //E.g. an Error thrown by the population: fail everything, so that no caller waits forever
+            closed = true;
+            for (Request<T> request : batch) {
+                request.result.completeExceptionally(e);
+            }
+            Request<T> request;
+            while ((request = requests.poll()) != null) {
+                request.result.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    private void process(@Nonnull List<Request<T>> batch) {
+        while (true) {
+            Request<T> request = requests.poll();
+            if (request == null) {
+                if (closed) {
+                    return;
+                }
+                writerParked = true;
+                //Re-check after the flag is set, so that a producer which did not see it has already published
+                request = requests.poll();
+                if (request == null) {
+                    LockSupport.park(this);
+                    writerParked = false;
+                    continue;
+                }
+                writerParked = false;
+            }
+
+            do {
+                if (request.addend != null) {
+                    batch.add(request);
+                } else {
+                    flush(batch);
+                    execute(request);
+                }
+            } while ((request = requests.poll()) != null);
+            flush(batch);
+        }
+    }
+
+    private void flush(@Nonnull List<Request<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            final int[] ranks;
+            if (batch.size() == 1) {
+                //noinspection ConstantConditions
+                ranks = new int[]{population.addIndividual(batch.get(0).addend)};
+            } else {
+                final List<IIndividual<T>> addends = new ArrayList<>(batch.size());
+                for (Request<T> request : batch) {
+                    addends.add(request.addend);
+                }
+                ranks = population.addIndividuals(addends);
+            }
+            snapshot = PopulationSnapshot.copyOf(population.getSnapshot());
+            for (int i = 0; i < ranks.length; ++i) {
+                batch.get(i).result.complete(ranks[i]);
+            }
+        } catch (RuntimeException e) {
+            snapshot = PopulationSnapshot.copyOf(population.getSnapshot());
+            for (Request<T> request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+        batch.clear();
+    }
+
+    private void execute(@Nonnull Request<T> request) {
+        try {
+            //noinspection ConstantConditions
+            final Object rs = request.operation.apply(population);
+            snapshot = PopulationSnapshot.copyOf(population.getSnapshot());
+            request.result.complete(rs);
+        } catch (RuntimeException e) {
+            snapshot = PopulationSnapshot.copyOf(population.getSnapshot());
+            request.result.completeExceptionally(e);
+        } catch (Error e) {
+            request.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static <R> R join(@Nonnull CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ActorPopulation{" + "snapshot=" + snapshot.getLevels() +
+                ", closed=" + closed +
+                '}';
+    }
+}
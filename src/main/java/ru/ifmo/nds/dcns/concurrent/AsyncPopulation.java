@@ -0,0 +1,214 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.PopulationSnapshot;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking facade of an {@link IManagedPopulation}. The operations are queued and applied by a single drain
+ * task at a time, submitted to the given executor (e.g. a virtual-thread executor on Java 21+). The drain task
+ * coalesces the individuals submitted one by one meanwhile into {@link IManagedPopulation#addIndividuals} calls,
+ * so the population does not have to be thread-safe if it is accessed only through this facade.
+ * <p>
+ * Operations are applied in the order of submission: a snapshot contains all the individuals submitted before it.
+ * The ranks of individuals coalesced into one batch are determined against the whole batch.
+ */
+@ThreadSafe
+public class AsyncPopulation<T> {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    private static final class Request<T> {
+        @Nullable
+        private final IIndividual<T> addend;
+
+        @Nullable
+        private final Collection<IIndividual<T>> addends;
+
+        @Nonnull
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Request(@Nullable IIndividual<T> addend, @Nullable Collection<IIndividual<T>> addends) {
+            this.addend = addend;
+            this.addends = addends;
+        }
+    }
+
+    @Nonnull
+    private final IManagedPopulation<T> population;
+
+    @Nonnull
+    private final Executor executor;
+
+    private final int maxBatchSize;
+
+    private final Queue<Request<T>> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedIndividuals = new AtomicLong();
+
+    @SuppressWarnings("WeakerAccess")
+    public AsyncPopulation(@Nonnull IManagedPopulation<T> population) {
+        this(population, ForkJoinPool.commonPool());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public AsyncPopulation(@Nonnull IManagedPopulation<T> population, @Nonnull Executor executor) {
+        this(population, executor, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param executor     Runs the drain tasks
+     * @param maxBatchSize Max. number of individuals coalesced into a single batch
+     */
+    @SuppressWarnings("WeakerAccess")
+    public AsyncPopulation(@Nonnull IManagedPopulation<T> population, @Nonnull Executor executor, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Non-positive batch size: " + maxBatchSize);
+        }
+        this.population = population;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return Rank of the individual on its insertion
+     */
+    @Nonnull
+    public CompletableFuture<Integer> addIndividualAsync(@Nonnull IIndividual<T> individual) {
+        return submit(new Request<>(individual, null)).thenApply(r -> (Integer) r);
+    }
+
+    /**
+     * @return Ranks as returned by {@link IManagedPopulation#addIndividuals}. The collection is inserted as a whole,
+     * without coalescing it with other submissions.
+     */
+    @Nonnull
+    public CompletableFuture<int[]> addIndividualsAsync(@Nonnull Collection<IIndividual<T>> addends) {
+        return submit(new Request<>(null, addends)).thenApply(r -> (int[]) r);
+    }
+
+    /**
+     * @return Snapshot taken after all the previously submitted insertions
+     */
+    @Nonnull
+    public CompletableFuture<PopulationSnapshot<T>> getSnapshotAsync() {
+        //noinspection unchecked
+        return submit(new Request<>(null, null)).thenApply(r -> (PopulationSnapshot<T>) r);
+    }
+
+    /**
+     * @return Average number of individuals coalesced into a single insertion
+     */
+    @SuppressWarnings("WeakerAccess")
+    public double getAverageBatchSize() {
+        final long count = batches.get();
+        return count == 0 ? 0 : (double) batchedIndividuals.get() / count;
+    }
+
+    @Nonnull
+    private CompletableFuture<Object> submit(@Nonnull Request<T> request) {
+        requests.add(request);
+        scheduleDrain();
+        return request.result;
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                drainScheduled.set(false);
+                Request<T> request;
+                while ((request = requests.poll()) != null) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        final List<Request<T>> batch = new ArrayList<>();
+        Request<T> request;
+        while ((request = requests.poll()) != null) {
+            if (request.addend != null) {
+                batch.add(request);
+                if (batch.size() == maxBatchSize) {
+                    flush(batch);
+                }
+            } else {
+                flush(batch);
+                execute(request);
+            }
+        }
+        flush(batch);
+
+        drainScheduled.set(false);
+        //A request queued after the last poll might have seen the flag still set
+        if (!requests.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void flush(@Nonnull List<Request<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            final int[] ranks;
+            if (batch.size() == 1) {
+                //noinspection ConstantConditions
+                ranks = new int[]{population.addIndividual(batch.get(0).addend)};
+            } else {
+                final List<IIndividual<T>> addends = new ArrayList<>(batch.size());
+                for (Request<T> request : batch) {
+                    addends.add(request.addend);
+                }
+                ranks = population.addIndividuals(addends);
+            }
+            batches.incrementAndGet();
+            batchedIndividuals.addAndGet(batch.size());
+            for (int i = 0; i < ranks.length; ++i) {
+                batch.get(i).result.complete(ranks[i]);
+            }
+        } catch (RuntimeException e) {
+            for (Request<T> request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+        batch.clear();
+    }
+
+    private void execute(@Nonnull Request<T> request) {
+        try {
+            if (request.addends != null) {
+                request.result.complete(population.addIndividuals(request.addends));
+            } else {
+                request.result.complete(PopulationSnapshot.copyOf(population.getSnapshot()));
+            }
+        } catch (RuntimeException e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncPopulation{" + "population=" + population +
+                ", averageBatchSize=" + getAverageBatchSize() +
+                '}';
+    }
+}
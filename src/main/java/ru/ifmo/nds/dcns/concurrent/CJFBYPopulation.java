@@ -1,26 +1,32 @@
 package ru.ifmo.nds.dcns.concurrent;
 
+import ru.ifmo.nds.IEvictionPolicy;
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.IManagedPopulation;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.PopulationSnapshot;
 import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
 import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.eviction.CrowdingDistanceEviction;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
 import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.BatchFronts;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+import ru.ifmo.nds.util.ObjectiveHashSet;
 import ru.ifmo.nds.util.SortedObjectives;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static ru.ifmo.nds.util.Utils.*;
@@ -38,25 +44,71 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
     }
 
     private final CopyOnWriteArrayList<AtomicReference<LevelRef>> nonDominationLevels;
-    private final AtomicLong time = new AtomicLong(0); //todo: process overflow
+    private final AtomicLong time = new AtomicLong(0); //Only differences of timestamps are compared, so the overflow is harmless
 
-    private final Map<IIndividual<T>, Boolean> presentIndividuals = new ConcurrentHashMap<>();
+    private final ObjectiveHashSet presentIndividuals = new ObjectiveHashSet();
     private final Lock addRemoveLevelLock = new ReentrantLock();
-    private final AtomicInteger size = new AtomicInteger(0); //Cannot actually be decreased
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final ContentionMetrics metrics = new ContentionMetrics();
 
-    private final JFB2014 sorter = new JFB2014();
+    private final INonDominatedSorter sorter;
     private final int expectedPopulationSize; //Members will not be deleted if the size is less or equal to this value
     private final boolean useOneByOneSorting;
+    private final CrowdingDistanceMode cdMode;
+    private final IEvictionPolicy evictionPolicy;
+    private volatile boolean removalsStarted = false; //Insertions check their points against removals only after it
 
     @SuppressWarnings("WeakerAccess")
     public CJFBYPopulation(int expectedPopulationSize, boolean useOneByOneSorting) {
         this(new CopyOnWriteArrayList<>(), expectedPopulationSize, useOneByOneSorting);
     }
 
+    @SuppressWarnings("WeakerAccess")
+    public CJFBYPopulation(@Nonnull INonDominatedSorter sorter, int expectedPopulationSize, boolean useOneByOneSorting) {
+        this(new CopyOnWriteArrayList<>(), sorter, expectedPopulationSize, useOneByOneSorting);
+    }
+
     @SuppressWarnings("WeakerAccess")
     public CJFBYPopulation(CopyOnWriteArrayList<AtomicReference<JFBYNonDominationLevel<T>>> nonDominationLevels,
                            int expectedPopulationSize,
                            boolean useOneByOneSorting) {
+        this(nonDominationLevels, new JFB2014(), expectedPopulationSize, useOneByOneSorting);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public CJFBYPopulation(@Nonnull INonDominatedSorter sorter, int expectedPopulationSize, boolean useOneByOneSorting,
+                           @Nonnull CrowdingDistanceMode cdMode) {
+        this(new CopyOnWriteArrayList<>(), sorter, expectedPopulationSize, useOneByOneSorting, cdMode);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public CJFBYPopulation(CopyOnWriteArrayList<AtomicReference<JFBYNonDominationLevel<T>>> nonDominationLevels,
+                           @Nonnull INonDominatedSorter sorter,
+                           int expectedPopulationSize,
+                           boolean useOneByOneSorting) {
+        this(nonDominationLevels, sorter, expectedPopulationSize, useOneByOneSorting, CrowdingDistanceMode.FULL);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public CJFBYPopulation(CopyOnWriteArrayList<AtomicReference<JFBYNonDominationLevel<T>>> nonDominationLevels,
+                           @Nonnull INonDominatedSorter sorter,
+                           int expectedPopulationSize,
+                           boolean useOneByOneSorting,
+                           @Nonnull CrowdingDistanceMode cdMode) {
+        this(nonDominationLevels, sorter, expectedPopulationSize, useOneByOneSorting, cdMode,
+                CrowdingDistanceEviction.getInstance());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public CJFBYPopulation(CopyOnWriteArrayList<AtomicReference<JFBYNonDominationLevel<T>>> nonDominationLevels,
+                           @Nonnull INonDominatedSorter sorter,
+                           int expectedPopulationSize,
+                           boolean useOneByOneSorting,
+                           @Nonnull CrowdingDistanceMode cdMode,
+                           @Nonnull IEvictionPolicy evictionPolicy) {
+        this.sorter = sorter;
+        this.cdMode = cdMode;
+        this.evictionPolicy = evictionPolicy;
         this.nonDominationLevels = new CopyOnWriteArrayList<>();
         this.nonDominationLevels.addAll(nonDominationLevels.stream()
                 .map(ref -> new AtomicReference<>(new LevelRef(0, ref.get())))
@@ -69,7 +121,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
             int ctr = 0;
             for (AtomicReference<JFBYNonDominationLevel<T>> levelRef : nonDominationLevels) {
                 for (IIndividual<T> individual : levelRef.get().getMembers()) {
-                    presentIndividuals.put(individual, true);
+                    presentIndividuals.add(individual.getObjectives());
                     ++ctr;
                 }
             }
@@ -87,7 +139,8 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
             @SuppressWarnings("unchecked") final AtomicReference<LevelRef> levelRefRef =
                     (AtomicReference<LevelRef>) levels[j];
             final LevelRef levelRef = levelRefRef.get();
-            if (levelRef != null) {
+            //Empty levels exist only while their removal is in progress
+            if (levelRef != null && !levelRef.level.getMembers().isEmpty()) {
                 final INonDominationLevel<T> level = levelRef.level;
                 levelsSnapshot.set(j, level);
                 sizeSnapshot += level.getMembers().size();
@@ -109,6 +162,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
                 final int lastLevelIndex = nonDominationLevels.size() - 1;
                 final LevelRef lastLevelRef = nonDominationLevels.get(lastLevelIndex).get();
                 if (lastLevelRef == null) {
+                    metrics.retry();
                     continue;
                 }
                 final JFBYNonDominationLevel<T> lastLevel = lastLevelRef.level;
@@ -119,18 +173,21 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
                                 nonDominationLevels.get(lastLevelIndex).compareAndSet(lastLevelRef, null)) {
                             nonDominationLevels.remove(lastLevelIndex);
                             if (lastLevel.getMembers().isEmpty()) {
-                                return null;
+                                //Left empty by a removal of an individual
+                                continue;
                             } else {
                                 final IIndividual<T> rs = lastLevel.getMembers().get(0);
-                                presentIndividuals.remove(rs);
+                                presentIndividuals.remove(rs.getObjectives());
+                                metrics.evicted();
                                 return rs;
                             }
                         }
+                        metrics.casFailed(lastLevelIndex);
                     } finally {
                         addRemoveLevelLock.unlock();
                     }
                 } else {
-                    final IIndividual<T> removedIndividual = getWorstCDIndividual(lastLevel);
+                    final IIndividual<T> removedIndividual = evictionPolicy.selectWorst(lastLevel);
                     if (removedIndividual == null)
                         return null;
 
@@ -138,12 +195,14 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
 
                     if (nonDominationLevels.get(lastLevelIndex)
                             .compareAndSet(lastLevelRef, new LevelRef(time.incrementAndGet(), newLevel))) {
-                        presentIndividuals.remove(removedIndividual);
+                        presentIndividuals.remove(removedIndividual.getObjectives());
+                        metrics.evicted();
                         return removedIndividual;
                     }
+                    metrics.casFailed(lastLevelIndex);
                 }
             } catch (ArrayIndexOutOfBoundsException ignored) {
-                //retry
+                metrics.retry();
             }
         }
     }
@@ -153,7 +212,36 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
         return size.get();
     }
 
-    private int determineMinimalPossibleRank(IIndividual point) {
+    /**
+     * @return Contention counters of this population, they are never reset automatically
+     */
+    @Nonnull
+    public ContentionMetrics getContentionMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Remove the worst individuals until the size does not exceed the expected population size.
+     * The size is decreased before the removal, so concurrent threads never remove more than needed.
+     */
+    private void removeExcess() {
+        int current;
+        while ((current = size.get()) > expectedPopulationSize) {
+            if (size.compareAndSet(current, current - 1) && intRemoveWorst() == null) {
+                size.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private int determineMinimalPossibleRank(IIndividual<T> point) {
+        return determineMinimalPossibleRank(level -> level.dominatedByAnyPointOfThisLayer(point));
+    }
+
+    /**
+     * @param dominates Whether a level dominates all the points to insert
+     */
+    private int determineMinimalPossibleRank(@Nonnull Predicate<JFBYNonDominationLevel<T>> dominates) {
         int l = 0;
         int r = nonDominationLevels.size() - 1;
         int lastNonDominating = r + 1;
@@ -163,7 +251,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
                 final LevelRef levelRef = nonDominationLevels.get(test).get();
                 if (levelRef == null) {
                     r--;
-                } else if (!levelRef.level.dominatedByAnyPointOfThisLayer(point)) {
+                } else if (!dominates.test(levelRef.level)) {
                     //Racy, but that's OK
                     lastNonDominating = test;
                     r = test - 1;
@@ -182,7 +270,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
     public int addIndividual(@Nonnull IIndividual<T> addend) {
         final long insertionTs = time.incrementAndGet();
         int rank = determineMinimalPossibleRank(addend);
-        if (presentIndividuals.putIfAbsent(addend, true) != null) {
+        if (!presentIndividuals.add(addend.getObjectives())) {
             return rank;
         }
 
@@ -190,16 +278,199 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
         if (useOneByOneSorting) {
             firstModifiedLevelRank = insertOneByOne(addend, rank, insertionTs);
         } else {
-            firstModifiedLevelRank = insertViaFullSortings(addend, rank);
+            firstModifiedLevelRank = insertViaFullSortings(Collections.singletonList(addend), rank, null, null);
         }
 
-        if (size.incrementAndGet() > expectedPopulationSize) {
-            intRemoveWorst();
-        }
+        metrics.insertionsCompleted(1);
+        size.incrementAndGet();
+        removeExcess();
 
         return Objects.requireNonNull(firstModifiedLevelRank, "Impossible situation: the point was not added");
     }
 
+    /**
+     * The batch is sorted into fronts once (see {@link BatchFronts}) and inserted via full sortings of the affected
+     * levels (one-by-one insertion requires the addends to have the same rank), then the excess individuals
+     * are removed.
+     */
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        final List<IIndividual<T>> batch = new ArrayList<>(addends.size());
+        for (IIndividual<T> addend : addends) {
+            if (presentIndividuals.add(addend.getObjectives())) {
+                batch.add(addend);
+            }
+        }
+
+        final Map<IIndividual<T>, Integer> placement = new HashMap<>();
+        if (!batch.isEmpty()) {
+            batch.sort(AscLexSortComparator.getInstance());
+            final BatchFronts<T> fronts = new BatchFronts<>(batch, sorter);
+            insertViaFullSortings(fronts.first(), determineMinimalPossibleRank(fronts::dominatedBy), fronts, placement);
+        }
+
+        final int[] ranks = new int[addends.size()];
+        int i = 0;
+        for (IIndividual<T> addend : addends) {
+            final Integer r = placement.get(addend);
+            ranks[i++] = r != null ? r : determineMinimalPossibleRank(addend);
+        }
+
+        metrics.insertionsCompleted(batch.size());
+        size.addAndGet(batch.size());
+        removeExcess();
+        return ranks;
+    }
+
+    /**
+     * Every step is a CAS of a single level: the individual is removed from its level, then the members of the next
+     * level to promote are removed from it and inserted again starting from the previous level, so a concurrent
+     * insertion which dominates some of them just pushes them back.
+     * <p>
+     * Removing a level in the middle would shift the ranks concurrent insertions are working with, so a level which
+     * loses all its members stays empty until the whole next level is promoted into it, and only the last level
+     * is removed.
+     */
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        removalsStarted = true;
+        while (presentIndividuals.contains(individual.getObjectives())) {
+            //The iterator works on a snapshot of the list, so a concurrently removed last level is still visited
+            int rank = 0;
+            for (AtomicReference<LevelRef> ref : nonDominationLevels) {
+                final LevelRef levelRef = ref.get();
+                final IIndividual<T> member = levelRef == null ? null : levelRef.level.findMember(individual);
+                if (member != null) {
+                    final JFBYNonDominationLevel<T> newLevel = levelRef.level.getMembers().size() == 1
+                            ? emptyLevel(sorter, member.getObjectives().length, cdMode)
+                            : removeIndividualFromLevel(levelRef.level, member, sorter);
+                    if (ref.compareAndSet(levelRef, new LevelRef(time.incrementAndGet(), newLevel))) {
+                        presentIndividuals.remove(individual.getObjectives());
+                        size.decrementAndGet();
+                        promote(rank, Collections.singletonList(member));
+                        return true;
+                    }
+                    metrics.casFailed(rank);
+                    break;
+                }
+                ++rank;
+            }
+            //The individual has been modified concurrently, is being moved to the next level or is not inserted yet
+            metrics.retry();
+            Thread.yield();
+        }
+        return false;
+    }
+
+    /**
+     * @param removed Points removed from the level {@code rank}
+     */
+    private void promote(int rank, @Nonnull List<IIndividual<T>> removed) {
+        while (true) {
+            //Only the last level is removed concurrently, so the bounds are checked against a copy of the list
+            final List<AtomicReference<LevelRef>> levels = new ArrayList<>(nonDominationLevels);
+            if (rank >= levels.size()) {
+                return;
+            }
+            final LevelRef levelRef = levels.get(rank).get();
+            if (levelRef == null) {
+                //Only the last level is removed
+                return;
+            }
+            final JFBYNonDominationLevel<T> level = levelRef.level;
+            if (rank + 1 >= levels.size()) {
+                if (!level.getMembers().isEmpty() || tryToRemoveLastLevel(rank, levelRef)) {
+                    return;
+                }
+                //Some levels were appended, or the level was filled concurrently
+                metrics.retry();
+                continue;
+            }
+            final LevelRef nextRef = levels.get(rank + 1).get();
+            if (nextRef == null) {
+                metrics.retry();
+                continue;
+            }
+
+            final List<IIndividual<T>> promoted = level.getMembers().isEmpty()
+                    ? nextRef.level.getSortedObjectives().getRawLexSortedPop()
+                    : nextRef.level.selectPromoted(removed, level);
+            if (promoted.isEmpty()) {
+                if (!level.getMembers().isEmpty()) {
+                    return;
+                }
+                //Both levels are empty, the next one will be filled from the level after it
+                ++rank;
+                continue;
+            }
+            final JFBYNonDominationLevel<T> newNext = promoted.size() == nextRef.level.getMembers().size()
+                    ? emptyLevel(sorter, promoted.get(0).getObjectives().length, cdMode)
+                    : removeIndividualsFromLevel(nextRef.level, promoted, sorter);
+            if (levels.get(rank + 1).compareAndSet(nextRef, new LevelRef(time.incrementAndGet(), newNext))) {
+                insertViaFullSortings(promoted, rank, null, null);
+                removed = promoted;
+                ++rank;
+            } else {
+                metrics.casFailed(rank + 1);
+            }
+        }
+    }
+
+    /**
+     * A removal cannot see the points moving between levels, so the points just placed to the level {@code rank}
+     * are promoted if a concurrent removal has left them not dominated by the previous level.
+     * Either the removal sees the points in the level, or this check sees the previous level after the removal.
+     */
+    private void settle(int rank, @Nonnull List<IIndividual<T>> placed) {
+        while (rank > 0) {
+            //Bounds are checked against a copy of the list, as in promote
+            final List<AtomicReference<LevelRef>> levels = new ArrayList<>(nonDominationLevels);
+            if (rank >= levels.size()) {
+                return;
+            }
+            final LevelRef previousRef = levels.get(rank - 1).get();
+            final LevelRef levelRef = levels.get(rank).get();
+            if (previousRef == null || levelRef == null) {
+                //Only the last level is removed, so this one is being removed as well
+                return;
+            }
+
+            final List<IIndividual<T>> promoted = new ArrayList<>();
+            for (IIndividual<T> point : placed) {
+                final IIndividual<T> member = levelRef.level.findMember(point);
+                if (member != null && !previousRef.level.dominatedByAnyPointOfThisLayer(member)) {
+                    promoted.add(member);
+                }
+            }
+            if (promoted.isEmpty()) {
+                return;
+            }
+            promoted.sort(AscLexSortComparator.getInstance());
+            final JFBYNonDominationLevel<T> newLevel = promoted.size() == levelRef.level.getMembers().size()
+                    ? emptyLevel(sorter, promoted.get(0).getObjectives().length, cdMode)
+                    : removeIndividualsFromLevel(levelRef.level, promoted, sorter);
+            if (levels.get(rank).compareAndSet(levelRef, new LevelRef(time.incrementAndGet(), newLevel))) {
+                insertViaFullSortings(promoted, rank - 1, null, null);
+                promote(rank, promoted);
+                return;
+            }
+            metrics.casFailed(rank);
+        }
+    }
+
+    private boolean tryToRemoveLastLevel(int rank, @Nonnull LevelRef levelRef) {
+        addRemoveLevelLock.lock();
+        try {
+            if (rank == nonDominationLevels.size() - 1 && nonDominationLevels.get(rank).compareAndSet(levelRef, null)) {
+                nonDominationLevels.remove(rank);
+                return true;
+            }
+            return false;
+        } finally {
+            addRemoveLevelLock.unlock();
+        }
+    }
+
     private Integer insertOneByOne(@Nonnull final IIndividual<T> originalAddend, int rank, final long ts) {
         Integer firstModifiedLevelRank = null;
         List<IIndividual<T>> addends = new LinkedList<>();
@@ -207,27 +478,35 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
         while (!addends.isEmpty()) {
             try {
                 if (rank >= nonDominationLevels.size()) {
-                    if (tryToAddLevels(addends, rank)) {
+                    if (tryToAddLevels(addends, rank, null)) {
                         if (firstModifiedLevelRank == null) {
                             return rank;
                         } else {
                             return firstModifiedLevelRank;
                         }
                     }
+                    metrics.retry();
                 } else {
                     final LevelRef levelRef = nonDominationLevels.get(rank).get();
                     if (levelRef == null) {
+                        metrics.retry();
                         continue;
                     }
                     final JFBYNonDominationLevel<T> level = levelRef.level;
-                    if (ts > levelRef.modificationTs) {
+                    if (ts - levelRef.modificationTs > 0) {
                         final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> mar = level.addMembers(addends);
                         if (nonDominationLevels.get(rank).compareAndSet(levelRef, new LevelRef(time.incrementAndGet(), mar.getModifiedLevel()))) {
                             if (firstModifiedLevelRank == null) {
                                 firstModifiedLevelRank = rank;
                             }
+                            metrics.levelsTouched(1);
+                            if (removalsStarted) {
+                                settle(rank, placedPoints(addends, mar.getEvictedMembers()));
+                            }
                             ++rank;
                             addends = mar.getEvictedMembers();
+                        } else {
+                            metrics.casFailed(rank);
                         }
                     } else {
 //                        final IIndividual[] addendsArray = addends.toArray(new IIndividual[addends.size()]);
@@ -237,7 +516,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
 //                            System.err.println("Diff ranks #" + diffRanksCount);
 //                        }
 
-                        final IIndividual[] allMembers = lexMerge(addends, level.getMembers());
+                        final IIndividual[] allMembers = lexMerge(addends, level.getSortedObjectives().getRawLexSortedPop());
                         final int[] ranks = sorter.performNds(allMembers);
                         final List<IIndividual<T>> nextAddends = new ArrayList<>();
                         final Set<IIndividual<T>> addendsSet = new HashSet<>(addends);
@@ -266,69 +545,91 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
                                 (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
                         );
 
-                        final JFBYNonDominationLevel<T> newLevel = new JFBYNonDominationLevel<>(sorter, nso.getLexSortedPop(), nso);
+                        final JFBYNonDominationLevel<T> newLevel = level.derive(nso, actualAddends, actualRemovals);
                         if (nonDominationLevels.get(rank).compareAndSet(levelRef, new LevelRef(time.incrementAndGet(), newLevel))) {
                             if (firstModifiedLevelRank == null) {
                                 firstModifiedLevelRank = rank;
                             }
+                            metrics.levelsTouched(1);
+                            if (removalsStarted) {
+                                settle(rank, actualAddends);
+                            }
                             addends = nextAddends;
                             ++rank;
+                        } else {
+                            metrics.casFailed(rank);
                         }
                     }
                 }
             } catch (ArrayIndexOutOfBoundsException ignored) {
+                metrics.retry();
             }
         }
 
         return firstModifiedLevelRank;
     }
 
-    private boolean tryToAddLevels(List<IIndividual<T>> addends, int minPossibleRank) {
+    /**
+     * @param placement If not null, the rank of every added point is put here
+     */
+    private boolean tryToAddLevels(List<IIndividual<T>> addends, int minPossibleRank,
+                                   @Nullable Map<IIndividual<T>, Integer> placement) {
+        final int firstAddedRank;
+        final List<List<IIndividual<T>>> addedLevels;
         addRemoveLevelLock.lock();
         try {
-            if (minPossibleRank >= nonDominationLevels.size()) {
-                final IIndividual[] members = addends.toArray(new IIndividual[addends.size()]);
-                final int[] ranks = sorter.performNds(members);
-                final List<List<IIndividual<T>>> levels = new ArrayList<>();
-                for (int i = 0; i < members.length; ++i) {
-                    while (levels.size() <= ranks[i]) {
-                        levels.add(new ArrayList<>());
+            if (minPossibleRank < nonDominationLevels.size()) {
+                return false;
+            }
+            firstAddedRank = nonDominationLevels.size();
+            addedLevels = sortIntoLevels(addends, sorter);
+            for (List<IIndividual<T>> level : addedLevels) {
+                if (placement != null) {
+                    for (IIndividual<T> individual : level) {
+                        placement.put(individual, nonDominationLevels.size());
                     }
-                    //noinspection unchecked
-                    levels.get(ranks[i]).add(members[i]);
                 }
-                for (List<IIndividual<T>> level : levels) {
-                    nonDominationLevels.add(new AtomicReference<>(
-                            new LevelRef(time.incrementAndGet(), new JFBYNonDominationLevel<>(sorter, level))));
-                }
-                return true;
+                nonDominationLevels.add(new AtomicReference<>(
+                        new LevelRef(time.incrementAndGet(), new JFBYNonDominationLevel<>(sorter, level, cdMode))));
+                metrics.levelsTouched(1);
             }
         } finally {
             addRemoveLevelLock.unlock();
         }
-        return false;
+        if (removalsStarted) {
+            settle(firstAddedRank, addedLevels.get(0));
+        }
+        return true;
     }
 
-    private Integer insertViaFullSortings(@Nonnull IIndividual<T> addend, int rank) {
+    /**
+     * @param sortedAddends Lexicographically sorted points, {@code rank} must not exceed the rank of any of them
+     * @param fronts        If not null, the batch the addends are the first front of
+     * @param placement     If not null, the rank of every added point is put here
+     */
+    private Integer insertViaFullSortings(@Nonnull List<IIndividual<T>> sortedAddends, int rank,
+                                          @Nullable BatchFronts<T> fronts,
+                                          @Nullable Map<IIndividual<T>, Integer> placement) {
         Integer firstModifiedLevelRank = null;
-        List<IIndividual<T>> addends = new ArrayList<>();
-        addends.add(addend);
+        List<IIndividual<T>> addends = sortedAddends;
         while (!addends.isEmpty()) {
             try {
                 if (rank >= nonDominationLevels.size()) {
-                    if (tryToAddLevels(addends, rank)) {
+                    if (tryToAddLevels(fronts == null ? addends : fronts.withUnreleased(addends), rank, placement)) {
                         if (firstModifiedLevelRank == null) {
                             return rank;
                         } else {
                             return firstModifiedLevelRank;
                         }
                     }
+                    metrics.retry();
                 } else {
                     final LevelRef levelRef = nonDominationLevels.get(rank).get();
                     if (levelRef == null) {
+                        metrics.retry();
                         continue;
                     }
-                    final IIndividual[] allMembers = lexMerge(addends, levelRef.level.getMembers());
+                    final IIndividual[] allMembers = lexMerge(addends, levelRef.level.getSortedObjectives().getRawLexSortedPop());
                     final int[] ranks = sorter.performNds(allMembers);
                     final List<IIndividual<T>> newCurrLevelMembers = new ArrayList<>();
                     final List<IIndividual<T>> nextAddends = new ArrayList<>();
@@ -353,7 +654,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
                     }
 
                     final List<IIndividual<T>> addendsList = new ArrayList<>(addendsSet.size());
-                    addendsList.addAll(addends);
+                    addendsList.addAll(addendsSet);
                     addendsList.sort(AscLexSortComparator.getInstance());
 
                     final SortedObjectives<IIndividual<T>, T> nso = levelRef.level.getSortedObjectives().update(
@@ -362,16 +663,28 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
                             (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
                     );
 
-                    final JFBYNonDominationLevel<T> newLevel = new JFBYNonDominationLevel<>(sorter, nso.getLexSortedPop(), nso);
+                    final JFBYNonDominationLevel<T> newLevel = levelRef.level.derive(nso, addendsList, removed);
                     if (nonDominationLevels.get(rank).compareAndSet(levelRef, new LevelRef(time.incrementAndGet(), newLevel))) {
                         if (firstModifiedLevelRank == null) {
                             firstModifiedLevelRank = rank;
                         }
-                        addends = nextAddends;
+                        if (placement != null) {
+                            for (IIndividual<T> individual : newCurrLevelMembers) {
+                                placement.put(individual, rank);
+                            }
+                        }
+                        metrics.levelsTouched(1);
+                        if (removalsStarted) {
+                            settle(rank, addendsList);
+                        }
+                        addends = fronts == null ? nextAddends : fronts.next(addends, nextAddends);
                         ++rank;
+                    } else {
+                        metrics.casFailed(rank);
                     }
                 }
             } catch (ArrayIndexOutOfBoundsException ignored) {
+                metrics.retry();
             }
         }
         return firstModifiedLevelRank;
@@ -415,7 +728,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
         for (AtomicReference<LevelRef> levelRef : nonDominationLevels) {
             list.add(new AtomicReference<>(levelRef.get().level.copy()));
         }
-        return new CJFBYPopulation<>(list, expectedPopulationSize, useOneByOneSorting);
+        return new CJFBYPopulation<>(list, sorter, expectedPopulationSize, useOneByOneSorting, cdMode, evictionPolicy);
     }
 
     @SuppressWarnings("StringBufferReplaceableByString")
@@ -427,6 +740,7 @@ public class CJFBYPopulation<T> implements IManagedPopulation<T> {
         sb.append(", presentIndividuals=").append(presentIndividuals);
         sb.append(", addRemoveLevelLock=").append(addRemoveLevelLock);
         sb.append(", size=").append(size);
+        sb.append(", metrics=").append(metrics);
         sb.append(", sorter=").append(sorter);
         sb.append(", expectedPopulationSize=").append(expectedPopulationSize);
         sb.append(", useOneByOneSorting=").append(useOneByOneSorting);
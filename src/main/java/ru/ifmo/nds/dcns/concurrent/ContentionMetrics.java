@@ -0,0 +1,125 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention counters of a concurrent population.
+ * <p>
+ * All counters are {@link LongAdder}s, so recording an event does not add contention of its own.
+ * Values read while the population is modified are not a consistent snapshot.
+ */
+@ThreadSafe
+public class ContentionMetrics {
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder levelsTouched = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final ConcurrentHashMap<Integer, LongAdder> casFailures = new ConcurrentHashMap<>();
+
+    void insertionsCompleted(int count) {
+        insertions.add(count);
+    }
+
+    /**
+     * Some step of an insertion or a removal is repeated because of a concurrent modification
+     */
+    void retry() {
+        retries.increment();
+    }
+
+    /**
+     * A CAS of the level with the given rank failed. Also counted as a retry.
+     */
+    void casFailed(int rank) {
+        casFailures.computeIfAbsent(rank, r -> new LongAdder()).increment();
+        retries.increment();
+    }
+
+    void levelsTouched(int count) {
+        levelsTouched.add(count);
+    }
+
+    void evicted() {
+        evictions.increment();
+    }
+
+    /**
+     * @return Number of completed insertions of new individuals
+     */
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * @return Number of repeated steps of insertions and removals
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return Number of successful level modifications made by insertions
+     */
+    public long getLevelsTouched() {
+        return levelsTouched.sum();
+    }
+
+    /**
+     * @return Number of individuals removed because the population exceeded its expected size
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getRetriesPerInsertion() {
+        final long n = getInsertions();
+        return n == 0 ? 0 : (double) getRetries() / n;
+    }
+
+    public double getLevelsTouchedPerInsertion() {
+        final long n = getInsertions();
+        return n == 0 ? 0 : (double) getLevelsTouched() / n;
+    }
+
+    public long getCasFailures(int rank) {
+        final LongAdder adder = casFailures.get(rank);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * @return rs[i] is the number of failed CASes of the level with rank i
+     */
+    public long[] getCasFailuresPerLevel() {
+        final Map<Integer, Long> snapshot = new HashMap<>();
+        casFailures.forEach((rank, adder) -> snapshot.put(rank, adder.sum()));
+        final long[] rs = new long[snapshot.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1];
+        snapshot.forEach((rank, count) -> rs[rank] = count);
+        return rs;
+    }
+
+    public void reset() {
+        insertions.reset();
+        retries.reset();
+        levelsTouched.reset();
+        evictions.reset();
+        casFailures.clear();
+    }
+
+    @SuppressWarnings("StringBufferReplaceableByString")
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ContentionMetrics{");
+        sb.append("insertions=").append(getInsertions());
+        sb.append(", retries=").append(getRetries());
+        sb.append(", levelsTouched=").append(getLevelsTouched());
+        sb.append(", evictions=").append(getEvictions());
+        sb.append(", casFailuresPerLevel=").append(Arrays.toString(getCasFailuresPerLevel()));
+        sb.append('}');
+        return sb.toString();
+    }
+}
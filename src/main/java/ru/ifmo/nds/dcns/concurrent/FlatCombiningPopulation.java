@@ -0,0 +1,271 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Flat-combining front-end (Hendler et al.) for a single-threaded {@link JFBYPopulation}.
+ * <p>
+ * A thread adding an individual publishes it in its own slot and tries to become the combiner. The combiner collects
+ * the requests of all the slots and inserts them with a single {@link JFBYPopulation#addIndividuals} call, which
+ * merges the whole batch into every level at once, then writes the ranks back to the slots. The other threads spin
+ * on their slots, so they neither retry CASes nor queue on a monitor, and the more threads publish requests the larger
+ * the batches become.
+ * <p>
+ * The ranks of individuals combined into one batch are determined against the whole batch
+ * (see {@link IManagedPopulation#addIndividuals}). Other operations take the combiner lock directly.
+ * <p>
+ * The combiner periodically unlinks the slots which have not published a request for a while, e.g. the slots of
+ * terminated threads. An owner finding its slot unlinked publishes it again.
+ */
+@ThreadSafe
+public class FlatCombiningPopulation<T> implements IManagedPopulation<T> {
+    private static final int COMBINING_PASSES = 3;
+    private static final int SPINS_BEFORE_YIELD = 64;
+    private static final int CLEANUP_PERIOD = 64;
+    private static final long MAX_IDLE_BATCHES = 1024;
+
+    private static final class Slot<T> {
+        @Nullable
+        private volatile IIndividual<T> request;
+        private volatile int rank;
+
+        /**
+         * Cleared by the combiner after unlinking the slot
+         */
+        private volatile boolean active;
+
+        /**
+         * Number of the last combined batch which served the slot, or of the last one before its publication
+         */
+        private long lastServed;
+
+        @Nullable
+        private Slot<T> next;
+    }
+
+    @Nonnull
+    private final JFBYPopulation<T> population;
+
+    private final ReentrantLock combinerLock = new ReentrantLock();
+    private final AtomicReference<Slot<T>> slots = new AtomicReference<>();
+    private final ThreadLocal<Slot<T>> ownSlot = ThreadLocal.withInitial(this::publishSlot);
+
+    private final AtomicLong combinedBatches = new AtomicLong();
+    private final AtomicLong combinedRequests = new AtomicLong();
+
+    @SuppressWarnings("WeakerAccess")
+    public FlatCombiningPopulation(long expectedPopSize) {
+        this(new JFBYPopulation<>(new JFB2014(), expectedPopSize));
+    }
+
+    /**
+     * @param population Population to wrap. It must not be accessed other than through this wrapper.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public FlatCombiningPopulation(@Nonnull JFBYPopulation<T> population) {
+        this.population = population;
+    }
+
+    @Override
+    public int addIndividual(@Nonnull IIndividual<T> individual) {
+        final Slot<T> slot = ownSlot.get();
+        slot.request = individual;
+        int spins = 0;
+        while (slot.request != null) {
+            if (!slot.active) {
+                //Unlinked as idle before the request became visible to the combiner
+                link(slot);
+            } else if (combinerLock.tryLock()) {
+                try {
+                    combine();
+                } finally {
+                    combinerLock.unlock();
+                }
+            } else if (++spins % SPINS_BEFORE_YIELD == 0) {
+                Thread.yield();
+            }
+        }
+        return slot.rank;
+    }
+
+    /**
+     * The batch is inserted directly, without combining it with the requests of other threads
+     */
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        combinerLock.lock();
+        try {
+            return population.addIndividuals(addends);
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        combinerLock.lock();
+        try {
+            return population.removeIndividual(individual);
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    /**
+     * @return Copy of the snapshot of the wrapped population (see {@link PopulationSnapshot#copyOf})
+     */
+    @Nonnull
+    @Override
+    public PopulationSnapshot<T> getSnapshot() {
+        combinerLock.lock();
+        try {
+            return PopulationSnapshot.copyOf(population.getSnapshot());
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        combinerLock.lock();
+        try {
+            return population.size();
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public FlatCombiningPopulation<T> clone() {
+        combinerLock.lock();
+        try {
+            return new FlatCombiningPopulation<>(population.clone());
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    /**
+     * @return Average number of individuals inserted by a single combining pass
+     */
+    @SuppressWarnings("WeakerAccess")
+    public double getAverageBatchSize() {
+        final long batches = combinedBatches.get();
+        return batches == 0 ? 0 : (double) combinedRequests.get() / batches;
+    }
+
+    /**
+     * Called by the holder of the combiner lock. Every pass serves all the requests published by then, the following
+     * passes catch the requests published meanwhile.
+     */
+    private void combine() {
+        final List<Slot<T>> served = new ArrayList<>();
+        final List<IIndividual<T>> batch = new ArrayList<>();
+        for (int pass = 0; pass < COMBINING_PASSES; ++pass) {
+            for (Slot<T> slot = slots.get(); slot != null; slot = slot.next) {
+                final IIndividual<T> request = slot.request;
+                if (request != null) {
+                    slot.lastServed = combinedBatches.get();
+                    served.add(slot);
+                    batch.add(request);
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            final int[] ranks = batch.size() == 1
+                    ? new int[]{population.addIndividual(batch.get(0))}
+                    : population.addIndividuals(batch);
+            combinedBatches.incrementAndGet();
+            combinedRequests.addAndGet(batch.size());
+            for (int i = 0; i < ranks.length; ++i) {
+                final Slot<T> slot = served.get(i);
+                slot.rank = ranks[i];
+                //Releases the rank to the owner of the slot
+                slot.request = null;
+            }
+            served.clear();
+            batch.clear();
+            if (combinedBatches.get() % CLEANUP_PERIOD == 0) {
+                unlinkIdleSlots();
+            }
+        }
+    }
+
+    /**
+     * Called by the holder of the combiner lock. Other threads only push slots in front of the head, so the head
+     * is kept and the rest of the list is modified in place.
+     */
+    private void unlinkIdleSlots() {
+        final long batches = combinedBatches.get();
+        final Slot<T> head = slots.get();
+        if (head == null) {
+            return;
+        }
+        Slot<T> prev = head;
+        for (Slot<T> slot = head.next; slot != null; slot = prev.next) {
+            if (slot.request == null && batches - slot.lastServed > MAX_IDLE_BATCHES) {
+                prev.next = slot.next;
+                slot.active = false;
+            } else {
+                prev = slot;
+            }
+        }
+    }
+
+    /**
+     * @return Number of the linked slots
+     */
+    int getSlotCount() {
+        combinerLock.lock();
+        try {
+            int count = 0;
+            for (Slot<T> slot = slots.get(); slot != null; slot = slot.next) {
+                ++count;
+            }
+            return count;
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    @Nonnull
+    private Slot<T> publishSlot() {
+        final Slot<T> slot = new Slot<>();
+        link(slot);
+        return slot;
+    }
+
+    private void link(@Nonnull Slot<T> slot) {
+        slot.lastServed = combinedBatches.get();
+        slot.active = true;
+        Slot<T> head;
+        do {
+            head = slots.get();
+            slot.next = head;
+        } while (!slots.compareAndSet(head, slot));
+    }
+
+    @Override
+    public String toString() {
+        return "FlatCombiningPopulation{" + "population=" + population +
+                ", averageBatchSize=" + getAverageBatchSize() +
+                '}';
+    }
+}
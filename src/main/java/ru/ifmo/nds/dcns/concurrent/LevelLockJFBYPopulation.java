@@ -1,25 +1,33 @@
 package ru.ifmo.nds.dcns.concurrent;
 
+import ru.ifmo.nds.IEvictionPolicy;
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.IManagedPopulation;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.PopulationSnapshot;
 import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
 import ru.ifmo.nds.dcns.sorter.IncrementalJFB;
-import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.eviction.CrowdingDistanceEviction;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
-import ru.ifmo.nds.util.median.QuickSelect;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.BatchFronts;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+import ru.ifmo.nds.util.ObjectiveHashSet;
 import ru.ifmo.nds.util.SortedObjectives;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static ru.ifmo.nds.util.Utils.recordPlacement;
+import static ru.ifmo.nds.util.Utils.removeIndividualsFromLevel;
+import static ru.ifmo.nds.util.Utils.sortIntoLevels;
+
 @ThreadSafe
 public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
     private static final double DEFAULT_DELETION_THRESHOLD = 1.2;
@@ -28,14 +36,16 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
     private final Lock addLevelLock = new ReentrantLock();
     private final Lock removeLevelLock = new ReentrantLock();
 
-    private final JFB2014 sorter;
+    private final INonDominatedSorter sorter;
 
     private final AtomicInteger size = new AtomicInteger(0);
     private final CopyOnWriteArrayList<JFBYNonDominationLevel<T>> nonDominationLevels;
-    private final Map<IIndividual<T>, Boolean> presentIndividuals = new ConcurrentHashMap<>();
+    private final ObjectiveHashSet presentIndividuals = new ObjectiveHashSet();
 
     private final long expectedPopSize;
     private final double deletionThreshold;
+    private final CrowdingDistanceMode cdMode;
+    private final IEvictionPolicy evictionPolicy;
 
     @SuppressWarnings("WeakerAccess")
     public LevelLockJFBYPopulation() {
@@ -54,20 +64,41 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
     }
 
     @SuppressWarnings("WeakerAccess")
-    public LevelLockJFBYPopulation(@Nonnull final JFB2014 sorter,
+    public LevelLockJFBYPopulation(@Nonnull final INonDominatedSorter sorter,
                                    @Nonnull final CopyOnWriteArrayList<JFBYNonDominationLevel<T>> nonDominationLevels,
                                    final long expectedPopSize,
                                    final double deletionThreshold) {
+        this(sorter, nonDominationLevels, expectedPopSize, deletionThreshold, CrowdingDistanceMode.FULL);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LevelLockJFBYPopulation(@Nonnull final INonDominatedSorter sorter,
+                                   @Nonnull final CopyOnWriteArrayList<JFBYNonDominationLevel<T>> nonDominationLevels,
+                                   final long expectedPopSize,
+                                   final double deletionThreshold,
+                                   @Nonnull final CrowdingDistanceMode cdMode) {
+        this(sorter, nonDominationLevels, expectedPopSize, deletionThreshold, cdMode, CrowdingDistanceEviction.getInstance());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LevelLockJFBYPopulation(@Nonnull final INonDominatedSorter sorter,
+                                   @Nonnull final CopyOnWriteArrayList<JFBYNonDominationLevel<T>> nonDominationLevels,
+                                   final long expectedPopSize,
+                                   final double deletionThreshold,
+                                   @Nonnull final CrowdingDistanceMode cdMode,
+                                   @Nonnull final IEvictionPolicy evictionPolicy) {
         this.sorter = sorter;
         this.nonDominationLevels = nonDominationLevels;
         this.expectedPopSize = expectedPopSize;
         this.deletionThreshold = deletionThreshold;
+        this.cdMode = cdMode;
+        this.evictionPolicy = evictionPolicy;
 
         for (INonDominationLevel<T> level : nonDominationLevels) {
             levelLocks.add(new ReentrantLock());
             size.addAndGet(level.getMembers().size());
             for (IIndividual<T> individual : level.getMembers()) {
-                presentIndividuals.put(individual, true);
+                presentIndividuals.add(individual.getObjectives());
             }
         }
     }
@@ -117,34 +148,16 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
                                 System.err.println("Empty last ND level! Levels = " + nonDominationLevels);
                             } else {
                                 for (IIndividual individual : lastLevel.getMembers()) {
-                                    presentIndividuals.remove(individual);
+                                    presentIndividuals.remove(individual.getObjectives());
                                 }
                             }
                             remaining -= lastLevel.getMembers().size();
                         } else {
-                            final double[] cd = new double[lastLevel.getMembers().size()];
-                            int i = 0;
-                            for (IIndividual cdIndividual : lastLevel.getMembers()) {
-                                cd[i++] = cdIndividual.getCrowdingDistance();
-                            }
-                            final double cdThreshold = new QuickSelect().getKthElement(cd, remaining);
-                            final List<IIndividual<T>> newMembers = new ArrayList<>();
-                            final List<IIndividual<T>> removals = new ArrayList<>();
-                            for (IIndividual<T> individual : lastLevel.getMembers()) {
-                                if (remaining > 0 && individual.getCrowdingDistance() <= cdThreshold) {
-                                    presentIndividuals.remove(individual);
-                                    removals.add(individual);
-                                    --remaining;
-                                } else {
-                                    newMembers.add(individual);
-                                }
-                            }
-                            if (newMembers.isEmpty()) {
-                                System.err.println("Empty members generated");
-                                System.out.println(cdThreshold);
-                                System.out.println(Arrays.toString(cd));
-                                throw new RuntimeException(remaining + "<" + lastLevel.getMembers().size());
+                            final List<IIndividual<T>> removals = evictionPolicy.selectWorst(lastLevel, remaining);
+                            for (IIndividual<T> individual : removals) {
+                                presentIndividuals.remove(individual.getObjectives());
                             }
+                            remaining -= removals.size();
 
 //                            System.err.println("Level: " + lastLevel.getMembers());
 //                            System.err.println("Removin': " + removals);
@@ -155,7 +168,7 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
                                     (i1, d) -> new FitnessAndCdIndividual<>(i1.getObjectives(), d, i1.getPayload())
                             );
 
-                            final JFBYNonDominationLevel<T> newLevel = new JFBYNonDominationLevel<>(sorter, nso.getLexSortedPop(), nso);
+                            final JFBYNonDominationLevel<T> newLevel = lastLevel.derive(nso, Collections.emptyList(), removals);
                             nonDominationLevels.set(lastLevelIndex, newLevel);
                         }
 
@@ -208,7 +221,7 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
 
     @Override
     public int addIndividual(@Nonnull IIndividual<T> addend) {
-        if (presentIndividuals.putIfAbsent(addend, true) != null) {
+        if (!presentIndividuals.add(addend.getObjectives())) {
             return determineRank(addend);
         }
 
@@ -217,13 +230,16 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
             rank = determineRank(addend, rank);
             final Lock lock = acquireLock(rank);
             try {
-                if (rank >= nonDominationLevels.size() && lock == addLevelLock) {
-                    break;
-                } else if (!nonDominationLevels.get(rank).dominatedByAnyPointOfThisLayer(addend)) {
-                    break;
-                } else {
-                    lock.unlock();
+                final boolean newLevel = rank >= nonDominationLevels.size() && lock == addLevelLock;
+                if (newLevel || !nonDominationLevels.get(rank).dominatedByAnyPointOfThisLayer(addend)) {
+                    final int previous = previousLevel(rank, lock);
+                    if (previous < 0 || nonDominationLevels.get(previous).dominatedByAnyPointOfThisLayer(addend)) {
+                        break;
+                    }
+                    //A removal has taken the dominators from the previous level and passed this one already
+                    rank = -1;
                 }
+                lock.unlock();
             } catch (ArrayIndexOutOfBoundsException ignored) {
                 lock.unlock();
             }
@@ -235,7 +251,8 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
             final List<IIndividual<T>> individuals = Collections.singletonList(addend);
             final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(
                     sorter,
-                    individuals
+                    individuals,
+                    cdMode
             );
             levelLocks.add(new ReentrantLock());
             nonDominationLevels.add(level);
@@ -247,7 +264,10 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
                 //assertion: we have locked levelLocks.get(i)
                 try {
                     final JFBYNonDominationLevel<T> level = nonDominationLevels.get(i);
-                    final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> memberAdditionResult = level.addMembers(addends);
+                    //Before this level was locked, another thread may have inserted a point dominating some of
+                    //the members evicted from the previous one
+                    final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> memberAdditionResult =
+                            i == rank ? level.addMembers(addends) : level.mergeCandidates(addends);
                     nonDominationLevels.set(i, memberAdditionResult.getModifiedLevel());
 
                     if (!memberAdditionResult.getEvictedMembers().isEmpty()) {
@@ -262,7 +282,7 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
             }
             if (!addends.isEmpty()) {
                 levelLocks.add(new ReentrantLock());
-                final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(sorter, addends); //New level - full CD calc
+                final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(sorter, addends, cdMode); //New level - full CD calc
                 nonDominationLevels.add(level);
                 addLevelLock.unlock();
             }
@@ -274,6 +294,193 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
         return rank;
     }
 
+    /**
+     * The batch is sorted into fronts once (see {@link BatchFronts}) and merged level-by-level, holding the lock
+     * of the current level and the one of the next level while the evicted points are passed down.
+     */
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        final List<IIndividual<T>> batch = new ArrayList<>(addends.size());
+        for (IIndividual<T> addend : addends) {
+            if (presentIndividuals.add(addend.getObjectives())) {
+                batch.add(addend);
+            }
+        }
+
+        final Map<IIndividual<T>, Integer> placement = new HashMap<>();
+        if (!batch.isEmpty()) {
+            batch.sort(AscLexSortComparator.getInstance());
+            final BatchFronts<T> fronts = new BatchFronts<>(batch, sorter);
+            int rank = fronts.firstRank(getSnapshot().getLevels());
+            Lock lock = acquireLock(rank);
+            while (true) {
+                final int previous = previousLevel(rank, lock);
+                if (previous < 0 || fronts.dominatedBy(nonDominationLevels.get(previous))) {
+                    break;
+                }
+                //A removal has taken the dominators from the previous level and passed this one already
+                lock.unlock();
+                rank = fronts.firstRank(getSnapshot().getLevels());
+                lock = acquireLock(rank);
+            }
+            List<IIndividual<T>> pending = fronts.first();
+            while (lock != addLevelLock) {
+                //assertion: we have locked levelLocks.get(rank)
+                try {
+                    final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> mar =
+                            fronts.mergeInto(nonDominationLevels.get(rank), pending);
+                    nonDominationLevels.set(rank, mar.getModifiedLevel());
+                    recordPlacement(pending, mar.getEvictedMembers(), rank, placement);
+                    pending = fronts.next(pending, mar.getEvictedMembers());
+                    if (!pending.isEmpty()) {
+                        lock = acquireLock(rank + 1);
+                    }
+                } finally {
+                    levelLocks.get(rank).unlock();
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                ++rank;
+            }
+
+            pending = fronts.withUnreleased(pending);
+            if (!pending.isEmpty()) {
+                //Locked all level addition, the snapshot may have had more levels
+                try {
+                    rank = nonDominationLevels.size();
+                    for (List<IIndividual<T>> levelMembers : sortIntoLevels(pending, sorter)) {
+                        recordPlacement(levelMembers, Collections.emptyList(), rank++, placement);
+                        levelLocks.add(new ReentrantLock());
+                        nonDominationLevels.add(new JFBYNonDominationLevel<>(sorter, levelMembers, cdMode));
+                    }
+                } finally {
+                    addLevelLock.unlock();
+                }
+            }
+        }
+
+        final int[] ranks = new int[addends.size()];
+        int i = 0;
+        for (IIndividual<T> addend : addends) {
+            final Integer r = placement.get(addend);
+            ranks[i++] = r != null ? r : determineRank(addend);
+        }
+
+        size.addAndGet(batch.size());
+        massRemoveWorst();
+        return ranks;
+    }
+
+    /**
+     * Removals are serialized with each other and with the mass removal by the remove level lock. Promotions
+     * hold the locks of the current and the next level, like the insertions do. Only the last level may be removed
+     * concurrently with the insertions, so a level which loses all its members is replaced by the next one,
+     * that one by its next one, and so on, then the last level is removed.
+     */
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        removeLevelLock.lock();
+        try {
+            if (!presentIndividuals.contains(individual.getObjectives())) {
+                return false;
+            }
+
+            int rank = lockLevelOf(individual, determineRank(individual));
+            if (rank < 0) {
+                rank = lockLevelOf(individual, 0);
+                if (rank < 0) {
+                    //Not inserted yet
+                    return false;
+                }
+            }
+
+            //Locked current level
+            Lock lock = levelLocks.get(rank);
+            JFBYNonDominationLevel<T> level = nonDominationLevels.get(rank);
+            List<IIndividual<T>> removed = Collections.singletonList(Objects.requireNonNull(level.findMember(individual)));
+            boolean shift = level.getMembers().size() == 1;
+            if (!shift) {
+                level = removeIndividualsFromLevel(level, removed, sorter);
+                nonDominationLevels.set(rank, level);
+            }
+            presentIndividuals.remove(individual.getObjectives());
+            size.decrementAndGet();
+
+            while (true) {
+                final Lock nextLock;
+                try {
+                    nextLock = acquireLock(rank + 1);
+                    if (nextLock == addLevelLock) {
+                        try {
+                            if (shift) {
+                                levelLocks.remove(rank);
+                                nonDominationLevels.remove(rank);
+                            }
+                        } finally {
+                            addLevelLock.unlock();
+                        }
+                        break;
+                    }
+
+                    final JFBYNonDominationLevel<T> next = nonDominationLevels.get(rank + 1);
+                    if (shift) {
+                        nonDominationLevels.set(rank, next);
+                    } else {
+                        final List<IIndividual<T>> promoted = next.selectPromoted(removed, level);
+                        if (promoted.isEmpty()) {
+                            nextLock.unlock();
+                            break;
+                        }
+                        nonDominationLevels.set(rank, level.addMembers(promoted).getModifiedLevel());
+                        if (promoted.size() == next.getMembers().size()) {
+                            shift = true;
+                        } else {
+                            level = removeIndividualsFromLevel(next, promoted, sorter);
+                            nonDominationLevels.set(rank + 1, level);
+                            removed = promoted;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                lock = nextLock;
+                ++rank;
+            }
+            return true;
+        } finally {
+            removeLevelLock.unlock();
+        }
+    }
+
+    /**
+     * @param lock Lock of the level {@code rank}, or the one of the level addition
+     * @return Index of the level before the one {@code lock} guards, -1 if none
+     */
+    private int previousLevel(int rank, @Nonnull Lock lock) {
+        return lock == addLevelLock ? nonDominationLevels.size() - 1 : rank - 1;
+    }
+
+    /**
+     * Points only move to the latter levels while the removals are blocked, so the levels are searched starting
+     * from {@code fromRank}
+     *
+     * @return Rank of the level with the individual, with its lock acquired, or -1 if it was not found
+     */
+    private int lockLevelOf(@Nonnull IIndividual<T> individual, int fromRank) {
+        for (int rank = fromRank; ; ++rank) {
+            final Lock lock = acquireLock(rank);
+            if (lock == addLevelLock) {
+                lock.unlock();
+                return -1;
+            }
+            if (nonDominationLevels.get(rank).findMember(individual) != null) {
+                return rank;
+            }
+            lock.unlock();
+        }
+    }
+
     private Lock acquireLock(int rank) {
         while (true) {
             Lock lock = null;
@@ -308,7 +515,7 @@ public class LevelLockJFBYPopulation<T> implements IManagedPopulation<T> {
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     @Override
     public LevelLockJFBYPopulation<T> clone() {
-        final LevelLockJFBYPopulation<T> copy = new LevelLockJFBYPopulation<>(sorter, nonDominationLevels, expectedPopSize, deletionThreshold);
+        final LevelLockJFBYPopulation<T> copy = new LevelLockJFBYPopulation<>(sorter, nonDominationLevels, expectedPopSize, deletionThreshold, cdMode, evictionPolicy);
         for (INonDominationLevel<T> level : nonDominationLevels) {
             copy.getSnapshot().getLevels().add(level.copy());
         }
@@ -0,0 +1,541 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.IEvictionPolicy;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.INonDominationLevel;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.eviction.CrowdingDistanceEviction;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.BatchFronts;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+import ru.ifmo.nds.util.ObjectiveHashSet;
+import ru.ifmo.nds.util.PersistentVector;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import static ru.ifmo.nds.util.Utils.*;
+
+/**
+ * Lock-free JFBY population.
+ * <p>
+ * Levels are kept in an immutable {@link PersistentVector} of level cells, published through a single
+ * {@link AtomicReference}. Adding levels is a CAS of the vector, modifying a level is a CAS of its cell,
+ * so modifications of different levels do not interfere, and every thread works with a consistent
+ * vector instead of catching exceptions from a concurrently shrinking list.
+ * <p>
+ * A level is removed by closing its cell (setting it to null) first, so a removed level cannot be modified.
+ * Closed cells are then dropped from the vector by any thread which meets them. Removal of a whole level
+ * keeps the levels valid even if some levels were appended after it concurrently: every point of the
+ * next level is dominated by a point of the previous one by transitivity.
+ */
+@ThreadSafe
+public class LockFreeJFBYPopulation<T> implements IManagedPopulation<T> {
+    private final AtomicReference<PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>>> levels;
+    private final ObjectiveHashSet presentIndividuals = new ObjectiveHashSet();
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    private final INonDominatedSorter sorter;
+    private final int expectedPopulationSize; //Members will not be deleted if the size is less or equal to this value
+    private final CrowdingDistanceMode cdMode;
+    private final IEvictionPolicy evictionPolicy;
+    private volatile boolean removalsStarted = false; //Insertions check their points against removals only after it
+
+    @SuppressWarnings("WeakerAccess")
+    public LockFreeJFBYPopulation(int expectedPopulationSize) {
+        this(new JFB2014(), expectedPopulationSize);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LockFreeJFBYPopulation(@Nonnull INonDominatedSorter sorter, int expectedPopulationSize) {
+        this(Collections.emptyList(), sorter, expectedPopulationSize);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LockFreeJFBYPopulation(@Nonnull INonDominatedSorter sorter, int expectedPopulationSize,
+                                  @Nonnull CrowdingDistanceMode cdMode) {
+        this(Collections.emptyList(), sorter, expectedPopulationSize, cdMode);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LockFreeJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels,
+                                  @Nonnull INonDominatedSorter sorter,
+                                  int expectedPopulationSize) {
+        this(nonDominationLevels, sorter, expectedPopulationSize, CrowdingDistanceMode.FULL);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LockFreeJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels,
+                                  @Nonnull INonDominatedSorter sorter,
+                                  int expectedPopulationSize,
+                                  @Nonnull CrowdingDistanceMode cdMode) {
+        this(nonDominationLevels, sorter, expectedPopulationSize, cdMode, CrowdingDistanceEviction.getInstance());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public LockFreeJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels,
+                                  @Nonnull INonDominatedSorter sorter,
+                                  int expectedPopulationSize,
+                                  @Nonnull CrowdingDistanceMode cdMode,
+                                  @Nonnull IEvictionPolicy evictionPolicy) {
+        this.sorter = sorter;
+        this.expectedPopulationSize = expectedPopulationSize;
+        this.cdMode = cdMode;
+        this.evictionPolicy = evictionPolicy;
+
+        PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = PersistentVector.empty();
+        for (JFBYNonDominationLevel<T> level : nonDominationLevels) {
+            vector = vector.append(new AtomicReference<>(level));
+            for (IIndividual<T> individual : level.getMembers()) {
+                presentIndividuals.add(individual.getObjectives());
+            }
+        }
+        this.levels = new AtomicReference<>(vector);
+        this.size.set(presentIndividuals.size());
+    }
+
+    @Override
+    @Nonnull
+    public PopulationSnapshot<T> getSnapshot() {
+        final PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = levels.get();
+        final JFBYNonDominationLevel[] snapshot = new JFBYNonDominationLevel[vector.size()];
+        int sizeSnapshot = 0;
+        //Reverse order because elements may only move to latter levels, and we do not want any collisions
+        for (int i = vector.size() - 1; i >= 0; --i) {
+            snapshot[i] = vector.get(i).get();
+            if (snapshot[i] != null) {
+                sizeSnapshot += snapshot[i].getMembers().size();
+            }
+        }
+        final List<INonDominationLevel<T>> rs = new ArrayList<>(snapshot.length);
+        for (JFBYNonDominationLevel level : snapshot) {
+            //Empty levels exist only while their removal is in progress
+            if (level != null && !level.getMembers().isEmpty()) {
+                //noinspection unchecked
+                rs.add(level);
+            }
+        }
+        return new PopulationSnapshot<>(rs, sizeSnapshot);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public int addIndividual(@Nonnull IIndividual<T> addend) {
+        final int rank = determineMinimalPossibleRank(addend);
+        if (!presentIndividuals.add(addend.getObjectives())) {
+            return rank;
+        }
+
+        final int actualRank = insert(Collections.singletonList(addend), rank, null, null);
+        size.incrementAndGet();
+        removeExcess();
+        return actualRank;
+    }
+
+    /**
+     * The batch is sorted into fronts once (see {@link BatchFronts}) and merged level by level
+     */
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        final List<IIndividual<T>> batch = new ArrayList<>(addends.size());
+        for (IIndividual<T> addend : addends) {
+            if (presentIndividuals.add(addend.getObjectives())) {
+                batch.add(addend);
+            }
+        }
+
+        final Map<IIndividual<T>, Integer> placement = new HashMap<>();
+        if (!batch.isEmpty()) {
+            batch.sort(AscLexSortComparator.getInstance());
+            final BatchFronts<T> fronts = new BatchFronts<>(batch, sorter);
+            insert(fronts.first(), determineMinimalPossibleRank(fronts::dominatedBy), fronts, placement);
+        }
+
+        final int[] ranks = new int[addends.size()];
+        int i = 0;
+        for (IIndividual<T> addend : addends) {
+            final Integer r = placement.get(addend);
+            ranks[i++] = r != null ? r : determineMinimalPossibleRank(addend);
+        }
+
+        size.addAndGet(batch.size());
+        removeExcess();
+        return ranks;
+    }
+
+    /**
+     * Merge the points into the levels starting from {@code rank}, passing the rejected and evicted points down
+     *
+     * @param sortedAddends Lexicographically sorted points, {@code rank} must not exceed the rank of any of them
+     * @param fronts        If not null, the batch the addends are the first front of
+     * @param placement     If not null, the rank of every added point is put here
+     * @return The first rank at which some of the addends were placed
+     */
+    private int insert(@Nonnull List<IIndividual<T>> sortedAddends, int rank,
+                       @Nullable BatchFronts<T> fronts,
+                       @Nullable Map<IIndividual<T>, Integer> placement) {
+        int firstPlacedRank = -1;
+        List<IIndividual<T>> pending = sortedAddends;
+        List<List<IIndividual<T>>> pendingLevels = null; //Levels built of the pending points, reused between retries
+        while (!pending.isEmpty()) {
+            final PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = levels.get();
+            if (rank >= vector.size()) {
+                if (pendingLevels == null) {
+                    pendingLevels = sortIntoLevels(fronts == null ? pending : fronts.withUnreleased(pending), sorter);
+                }
+                PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> newVector = vector;
+                for (List<IIndividual<T>> levelMembers : pendingLevels) {
+                    newVector = newVector.append(new AtomicReference<>(new JFBYNonDominationLevel<>(sorter, levelMembers, cdMode)));
+                }
+                if (levels.compareAndSet(vector, newVector)) {
+                    if (removalsStarted) {
+                        settle(newVector.get(vector.size()), pendingLevels.get(0));
+                    }
+                    if (placement != null) {
+                        int r = vector.size();
+                        for (List<IIndividual<T>> levelMembers : pendingLevels) {
+                            recordPlacement(levelMembers, Collections.emptyList(), r++, placement);
+                        }
+                    }
+                    return firstPlacedRank < 0 ? vector.size() : firstPlacedRank;
+                }
+            } else {
+                final AtomicReference<JFBYNonDominationLevel<T>> cell = vector.get(rank);
+                final JFBYNonDominationLevel<T> level = cell.get();
+                if (level == null) {
+                    removeClosedLevels(vector);
+                    continue;
+                }
+
+                final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> mar =
+                        fronts == null ? level.mergeCandidates(pending) : fronts.mergeInto(level, pending);
+                final JFBYNonDominationLevel<T> newLevel = mar.getModifiedLevel();
+                if (newLevel == level || cell.compareAndSet(level, newLevel)) {
+                    if (newLevel != level) {
+                        if (firstPlacedRank < 0) {
+                            firstPlacedRank = rank;
+                        }
+                        if (placement != null) {
+                            recordPlacement(pending, mar.getEvictedMembers(), rank, placement);
+                        }
+                        final List<IIndividual<T>> placed = removalsStarted
+                                ? placedPoints(pending, mar.getEvictedMembers())
+                                : null;
+                        pending = fronts == null
+                                ? mar.getEvictedMembers()
+                                : fronts.next(pending, mar.getEvictedMembers());
+                        pendingLevels = null;
+                        if (placed != null) {
+                            settle(cell, placed);
+                        }
+                    }
+                    ++rank;
+                }
+            }
+        }
+        return firstPlacedRank;
+    }
+
+    /**
+     * A removal cannot see the points moving between levels, so the points just placed to the level of {@code cell}
+     * are promoted if a concurrent removal has left them not dominated by the previous level.
+     * Either the removal sees the points in the level, or this check sees the previous level after the removal.
+     */
+    private void settle(@Nonnull AtomicReference<JFBYNonDominationLevel<T>> cell,
+                        @Nonnull List<IIndividual<T>> placed) {
+        while (true) {
+            final PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = levels.get();
+            final int rank = indexOf(vector, cell);
+            if (rank <= 0) {
+                return;
+            }
+            final JFBYNonDominationLevel<T> previous = vector.get(rank - 1).get();
+            final JFBYNonDominationLevel<T> level = cell.get();
+            if (previous == null || level == null) {
+                //Only the last levels are closed, so this one is being removed as well
+                return;
+            }
+
+            final List<IIndividual<T>> promoted = new ArrayList<>();
+            for (IIndividual<T> point : placed) {
+                final IIndividual<T> member = level.findMember(point);
+                if (member != null && !previous.dominatedByAnyPointOfThisLayer(member)) {
+                    promoted.add(member);
+                }
+            }
+            if (promoted.isEmpty()) {
+                return;
+            }
+            promoted.sort(AscLexSortComparator.getInstance());
+            final JFBYNonDominationLevel<T> newLevel = promoted.size() == level.getMembers().size()
+                    ? emptyLevel(sorter, promoted.get(0).getObjectives().length, cdMode)
+                    : removeIndividualsFromLevel(level, promoted, sorter);
+            if (cell.compareAndSet(level, newLevel)) {
+                insert(promoted, rank - 1, null, null);
+                promote(cell, promoted);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove the worst individuals until the size does not exceed the expected population size.
+     * The size is decreased before the removal, so concurrent threads never remove more than needed.
+     */
+    private void removeExcess() {
+        int current;
+        while ((current = size.get()) > expectedPopulationSize) {
+            if (size.compareAndSet(current, current - 1) && intRemoveWorst() == null) {
+                size.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove the individual with the smallest crowding distance from the last level.
+     * Does not change {@link #size()}.
+     *
+     * @return Removed individual or null if the population is empty
+     */
+    @Nullable
+    IIndividual<T> intRemoveWorst() {
+        while (true) {
+            final PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = levels.get();
+            if (vector.isEmpty()) {
+                return null;
+            }
+            final AtomicReference<JFBYNonDominationLevel<T>> cell = vector.last();
+            final JFBYNonDominationLevel<T> lastLevel = cell.get();
+            if (lastLevel == null) {
+                removeClosedLevels(vector);
+                continue;
+            }
+            if (levels.get() != vector) {
+                //Some levels were appended, so this one is not the last anymore
+                continue;
+            }
+
+            if (lastLevel.getMembers().size() <= 1) {
+                if (cell.compareAndSet(lastLevel, null)) {
+                    removeClosedLevels(vector);
+                    if (lastLevel.getMembers().isEmpty()) {
+                        //Left empty by a removal of an individual
+                        continue;
+                    }
+                    final IIndividual<T> rs = lastLevel.getMembers().get(0);
+                    presentIndividuals.remove(rs.getObjectives());
+                    return rs;
+                }
+            } else {
+                final IIndividual<T> removedIndividual = evictionPolicy.selectWorst(lastLevel);
+                if (removedIndividual == null) {
+                    return null;
+                }
+                final JFBYNonDominationLevel<T> newLevel = removeIndividualFromLevel(lastLevel, removedIndividual, sorter);
+                if (cell.compareAndSet(lastLevel, newLevel)) {
+                    presentIndividuals.remove(removedIndividual.getObjectives());
+                    return removedIndividual;
+                }
+            }
+        }
+    }
+
+    /**
+     * Every step is a CAS of a single cell: the individual is removed from its level, then the members of the next
+     * level to promote are removed from it and inserted again starting from the previous level, so a concurrent
+     * insertion which dominates some of them just pushes them back.
+     * <p>
+     * Closing a level in the middle would shift the ranks concurrent insertions are working with, so a level which
+     * loses all its members stays empty until the whole next level is promoted into it, and only the last level
+     * is closed.
+     */
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        removalsStarted = true;
+        while (presentIndividuals.contains(individual.getObjectives())) {
+            for (AtomicReference<JFBYNonDominationLevel<T>> cell : levels.get()) {
+                final JFBYNonDominationLevel<T> level = cell.get();
+                final IIndividual<T> member = level == null ? null : level.findMember(individual);
+                if (member == null) {
+                    continue;
+                }
+                final JFBYNonDominationLevel<T> newLevel = level.getMembers().size() == 1
+                        ? emptyLevel(sorter, member.getObjectives().length, cdMode)
+                        : removeIndividualFromLevel(level, member, sorter);
+                if (cell.compareAndSet(level, newLevel)) {
+                    presentIndividuals.remove(individual.getObjectives());
+                    size.decrementAndGet();
+                    promote(cell, Collections.singletonList(member));
+                    return true;
+                }
+                break;
+            }
+            //Otherwise the individual has been modified concurrently, is being moved to the next level
+            //or is not inserted yet
+            Thread.yield();
+        }
+        return false;
+    }
+
+    /**
+     * @param removed Points removed from the level of {@code cell}
+     */
+    private void promote(@Nonnull AtomicReference<JFBYNonDominationLevel<T>> cell,
+                         @Nonnull List<IIndividual<T>> removed) {
+        while (true) {
+            final PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = levels.get();
+            final int rank = indexOf(vector, cell);
+            final JFBYNonDominationLevel<T> level = cell.get();
+            if (rank < 0 || level == null) {
+                return;
+            }
+            if (rank + 1 >= vector.size()) {
+                if (!level.getMembers().isEmpty()) {
+                    return;
+                }
+                if (levels.get() == vector && cell.compareAndSet(level, null)) {
+                    removeClosedLevels(vector);
+                    return;
+                }
+                //Some levels were appended, or the level was filled concurrently
+                continue;
+            }
+            final AtomicReference<JFBYNonDominationLevel<T>> nextCell = vector.get(rank + 1);
+            final JFBYNonDominationLevel<T> next = nextCell.get();
+            if (next == null) {
+                removeClosedLevels(vector);
+                continue;
+            }
+
+            final List<IIndividual<T>> promoted = level.getMembers().isEmpty()
+                    ? next.getSortedObjectives().getRawLexSortedPop()
+                    : next.selectPromoted(removed, level);
+            if (promoted.isEmpty()) {
+                if (!level.getMembers().isEmpty()) {
+                    return;
+                }
+                //Both levels are empty, the next one will be filled from the level after it
+                cell = nextCell;
+                continue;
+            }
+            final JFBYNonDominationLevel<T> newNext = promoted.size() == next.getMembers().size()
+                    ? emptyLevel(sorter, promoted.get(0).getObjectives().length, cdMode)
+                    : removeIndividualsFromLevel(next, promoted, sorter);
+            if (nextCell.compareAndSet(next, newNext)) {
+                insert(promoted, rank, null, null);
+                removed = promoted;
+                cell = nextCell;
+            }
+        }
+    }
+
+    private static <T> int indexOf(@Nonnull PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector,
+                                   @Nonnull AtomicReference<JFBYNonDominationLevel<T>> cell) {
+        int i = 0;
+        for (AtomicReference<JFBYNonDominationLevel<T>> c : vector) {
+            if (c == cell) {
+                return i;
+            }
+            ++i;
+        }
+        return -1;
+    }
+
+    /**
+     * Try once to replace the vector with the one without closed cells.
+     * Failure means that some other thread has changed the vector, and it will be checked again.
+     */
+    private void removeClosedLevels(@Nonnull PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector) {
+        PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> newVector = vector;
+        while (!newVector.isEmpty() && newVector.last().get() == null) {
+            newVector = newVector.removeLast();
+        }
+        boolean closedInside = false;
+        for (AtomicReference<JFBYNonDominationLevel<T>> cell : newVector) {
+            if (cell.get() == null) {
+                closedInside = true;
+                break;
+            }
+        }
+        if (closedInside) {
+            PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> compacted = PersistentVector.empty();
+            for (AtomicReference<JFBYNonDominationLevel<T>> cell : newVector) {
+                if (cell.get() != null) {
+                    compacted = compacted.append(cell);
+                }
+            }
+            newVector = compacted;
+        }
+        if (newVector != vector) {
+            levels.compareAndSet(vector, newVector);
+        }
+    }
+
+    private int determineMinimalPossibleRank(IIndividual<T> point) {
+        return determineMinimalPossibleRank(level -> level.dominatedByAnyPointOfThisLayer(point));
+    }
+
+    /**
+     * @param dominates Whether a level dominates all the points to insert
+     */
+    private int determineMinimalPossibleRank(@Nonnull Predicate<JFBYNonDominationLevel<T>> dominates) {
+        final PersistentVector<AtomicReference<JFBYNonDominationLevel<T>>> vector = levels.get();
+        int l = 0;
+        int r = vector.size() - 1;
+        int lastNonDominating = r + 1;
+        while (l <= r) {
+            final int test = (l + r) / 2;
+            final JFBYNonDominationLevel<T> level = vector.get(test).get();
+            //A closed level is being removed, so it is safe to assume it does not dominate the point
+            if (level == null || !dominates.test(level)) {
+                lastNonDominating = test;
+                r = test - 1;
+            } else {
+                l = test + 1;
+            }
+        }
+        return lastNonDominating;
+    }
+
+    /**
+     * @return A copy of this population. All layers are also copied.
+     */
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public LockFreeJFBYPopulation<T> clone() {
+        final List<JFBYNonDominationLevel<T>> copy = new ArrayList<>();
+        for (AtomicReference<JFBYNonDominationLevel<T>> cell : levels.get()) {
+            final JFBYNonDominationLevel<T> level = cell.get();
+            if (level != null) {
+                copy.add(level.copy());
+            }
+        }
+        return new LockFreeJFBYPopulation<>(copy, sorter, expectedPopulationSize, cdMode, evictionPolicy);
+    }
+
+    @SuppressWarnings("StringBufferReplaceableByString")
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LockFreeJFBYPopulation{");
+        sb.append("levels=").append(getSnapshot().getLevels());
+        sb.append(", size=").append(size);
+        sb.append(", sorter=").append(sorter);
+        sb.append(", expectedPopulationSize=").append(expectedPopulationSize);
+        sb.append('}');
+        return sb.toString();
+    }
+}
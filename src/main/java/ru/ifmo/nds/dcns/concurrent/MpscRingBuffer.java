@@ -0,0 +1,87 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer single-consumer queue (Vyukov). Every cell has a sequence number: a producer claims
+ * the cell of the tail if its sequence equals the tail, the consumer takes the cell of the head after the producer
+ * has set its sequence to head + 1. Producers contend on a single CAS of the tail; the consumer does not use CAS.
+ */
+@ThreadSafe
+final class MpscRingBuffer<E> {
+    @Nonnull
+    private final Object[] buffer;
+
+    @Nonnull
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0; //Accessed by the consumer only
+
+    /**
+     * @param capacity Rounded up to a power of two
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Non-positive capacity: " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    boolean offer(@Nonnull E element) {
+        while (true) {
+            final long t = tail.get();
+            final int cell = (int) t & mask;
+            final long sequence = sequences.get(cell);
+            if (sequence == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    buffer[cell] = element;
+                    sequences.set(cell, t + 1);
+                    return true;
+                }
+            } else if (sequence < t) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Must be called by the consumer only
+     *
+     * @return null if the queue is empty, or the next element is not written yet
+     */
+    @Nullable
+    E poll() {
+        final int cell = (int) head & mask;
+        if (sequences.get(cell) != head + 1) {
+            return null;
+        }
+        //noinspection unchecked
+        final E rs = (E) buffer[cell];
+        buffer[cell] = null;
+        sequences.set(cell, head + buffer.length);
+        ++head;
+        return rs;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+}
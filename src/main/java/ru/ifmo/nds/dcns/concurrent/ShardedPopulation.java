@@ -0,0 +1,292 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Population which spreads insertions over independent shards, so that the writers do not contend on the first level
+ * of a single structure. Every thread is bound to one shard. A shard is a {@link JFBYPopulation} seeded with the
+ * (immutable) levels of the last consolidated snapshot, together with the list of points added to it since. The
+ * shards are periodically consolidated into a global population: their pending points are drained and merged into it
+ * with a single {@link JFBYPopulation#addIndividuals} call. Only the global population evicts individuals.
+ * <p>
+ * A consolidation happens when a shard holds {@code maxPendingPerShard} points, or on any insertion after
+ * {@code maxStaleness} since the previous one, or on {@link #consolidate}. So {@link #getConsolidatedSnapshot}
+ * misses at most {@code maxPendingPerShard} points of every shard, or the points added within the last
+ * {@code maxStaleness}. {@link #getSnapshot}, {@link #size} and {@link #removeIndividual} consolidate first, so they
+ * are exact. The rank returned by {@link #addIndividual} is determined against the last consolidated snapshot merged
+ * with the shard of the calling thread, so it is exact for a single writer.
+ */
+@ThreadSafe
+public class ShardedPopulation<T> implements IManagedPopulation<T> {
+    private static final int DEFAULT_MAX_PENDING_PER_SHARD = 256;
+    private static final long DEFAULT_MAX_STALENESS_MILLIS = 10;
+
+    private final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private List<IIndividual<T>> pending = new ArrayList<>();
+
+        /**
+         * Consolidated snapshot merged with the pending points
+         */
+        @Nullable
+        private JFBYPopulation<T> merged;
+
+        @Nullable
+        private PopulationSnapshot<T> mergedSnapshot;
+
+        /**
+         * Called by the holder of the lock. Reseeds the merged population if another snapshot has been consolidated.
+         */
+        @Nonnull
+        private JFBYPopulation<T> merged() {
+            final PopulationSnapshot<T> snapshot = consolidated;
+            if (merged == null || mergedSnapshot != snapshot) {
+                //Uncapped: the excess points are evicted by the global population
+                merged = new JFBYPopulation<>(new ArrayList<>(jfbyLevels(snapshot)), sorter, Long.MAX_VALUE);
+                mergedSnapshot = snapshot;
+                if (!pending.isEmpty()) {
+                    merged.addIndividuals(pending);
+                }
+            }
+            return merged;
+        }
+    }
+
+    @Nonnull
+    private final JFBYPopulation<T> global;
+
+    @Nonnull
+    private final List<Shard> shards;
+
+    @Nonnull
+    private final INonDominatedSorter sorter;
+
+    private final long expectedPopSize;
+    private final int maxPendingPerShard;
+    private final long maxStalenessNanos;
+
+    private final ReentrantLock globalLock = new ReentrantLock();
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ThreadLocal<Shard> ownShard;
+
+    @Nonnull
+    private volatile PopulationSnapshot<T> consolidated;
+
+    private volatile long lastConsolidationNanos = System.nanoTime();
+
+    @SuppressWarnings("WeakerAccess")
+    public ShardedPopulation(long expectedPopSize) {
+        this(expectedPopSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public ShardedPopulation(long expectedPopSize, int shardCount) {
+        this(new JFB2014(), expectedPopSize, shardCount, DEFAULT_MAX_PENDING_PER_SHARD,
+                DEFAULT_MAX_STALENESS_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param shardCount         Number of shards
+     * @param maxPendingPerShard Max. number of points a shard holds before a consolidation
+     * @param maxStaleness       Max. time since the previous consolidation after which an insertion consolidates
+     */
+    @SuppressWarnings("WeakerAccess")
+    public ShardedPopulation(@Nonnull INonDominatedSorter sorter, long expectedPopSize, int shardCount,
+                             int maxPendingPerShard, long maxStaleness, @Nonnull TimeUnit unit) {
+        this(new JFBYPopulation<>(sorter, expectedPopSize), sorter, expectedPopSize, shardCount, maxPendingPerShard,
+                unit.toNanos(maxStaleness));
+    }
+
+    private ShardedPopulation(@Nonnull JFBYPopulation<T> global, @Nonnull INonDominatedSorter sorter,
+                              long expectedPopSize, int shardCount, int maxPendingPerShard, long maxStalenessNanos) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Non-positive number of shards: " + shardCount);
+        }
+        if (maxPendingPerShard <= 0) {
+            throw new IllegalArgumentException("Non-positive number of pending points: " + maxPendingPerShard);
+        }
+        this.global = global;
+        this.sorter = sorter;
+        this.expectedPopSize = expectedPopSize;
+        this.maxPendingPerShard = maxPendingPerShard;
+        this.maxStalenessNanos = maxStalenessNanos;
+        this.shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; ++i) {
+            shards.add(new Shard());
+        }
+        this.ownShard = ThreadLocal.withInitial(() -> shards.get(Math.floorMod(nextShard.getAndIncrement(), shardCount)));
+        this.consolidated = PopulationSnapshot.copyOf(global.getSnapshot());
+    }
+
+    /**
+     * @return Rank against the last consolidated snapshot merged with the shard of the calling thread
+     */
+    @Override
+    public int addIndividual(@Nonnull IIndividual<T> individual) {
+        final Shard shard = ownShard.get();
+        final int rank;
+        final int pending;
+        shard.lock.lock();
+        try {
+            rank = shard.merged().addIndividual(individual);
+            //Duplicates are skipped by the global population
+            shard.pending.add(individual);
+            pending = shard.pending.size();
+        } finally {
+            shard.lock.unlock();
+        }
+
+        if (pending >= maxPendingPerShard) {
+            consolidate();
+        } else if (System.nanoTime() - lastConsolidationNanos >= maxStalenessNanos && globalLock.tryLock()) {
+            //Another thread is consolidating otherwise
+            try {
+                consolidateLocked();
+            } finally {
+                globalLock.unlock();
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * The batch is added to the shard of the calling thread
+     *
+     * @return Ranks against the last consolidated snapshot merged with the shard of the calling thread
+     */
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        final Shard shard = ownShard.get();
+        final int[] ranks;
+        final int pending;
+        shard.lock.lock();
+        try {
+            ranks = shard.merged().addIndividuals(addends);
+            shard.pending.addAll(addends);
+            pending = shard.pending.size();
+        } finally {
+            shard.lock.unlock();
+        }
+        if (pending >= maxPendingPerShard || System.nanoTime() - lastConsolidationNanos >= maxStalenessNanos) {
+            consolidate();
+        }
+        return ranks;
+    }
+
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        globalLock.lock();
+        try {
+            consolidateLocked();
+            final boolean rs = global.removeIndividual(individual);
+            consolidated = PopulationSnapshot.copyOf(global.getSnapshot());
+            return rs;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * @return Snapshot after consolidating all the shards
+     */
+    @Nonnull
+    @Override
+    public PopulationSnapshot<T> getSnapshot() {
+        consolidate();
+        return consolidated;
+    }
+
+    /**
+     * @return Last consolidated snapshot, which may miss the points pending in the shards
+     */
+    @Nonnull
+    @SuppressWarnings("WeakerAccess")
+    public PopulationSnapshot<T> getConsolidatedSnapshot() {
+        return consolidated;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().getSize();
+    }
+
+    /**
+     * Merge the points pending in all the shards into the global population
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void consolidate() {
+        globalLock.lock();
+        try {
+            consolidateLocked();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public ShardedPopulation<T> clone() {
+        globalLock.lock();
+        try {
+            consolidateLocked();
+            return new ShardedPopulation<>(global.clone(), sorter, expectedPopSize, shards.size(),
+                    maxPendingPerShard, maxStalenessNanos);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    private void consolidateLocked() {
+        final List<IIndividual<T>> pending = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                if (shard.pending.isEmpty()) {
+                    continue;
+                }
+                pending.addAll(shard.pending);
+                //The merged population is reseeded once the new snapshot is published
+                shard.pending = new ArrayList<>();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        lastConsolidationNanos = System.nanoTime();
+        if (!pending.isEmpty()) {
+            global.addIndividuals(pending);
+            consolidated = PopulationSnapshot.copyOf(global.getSnapshot());
+        }
+    }
+
+    /**
+     * The snapshots are taken from {@link #global}, so their levels are {@link JFBYNonDominationLevel}s
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private static <T> List<JFBYNonDominationLevel<T>> jfbyLevels(@Nonnull PopulationSnapshot<T> snapshot) {
+        return (List<JFBYNonDominationLevel<T>>) (List<?>) snapshot.getLevels();
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedPopulation{" + "consolidated=" + consolidated.getLevels() +
+                ", shards=" + shards.size() +
+                '}';
+    }
+}
@@ -1,10 +1,13 @@
 package ru.ifmo.nds.dcns.enlu;
 
+import ru.ifmo.nds.IEvictionPolicy;
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.IManagedPopulation;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.eviction.CrowdingDistanceEviction;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
 import ru.ifmo.nds.util.SortedObjectives;
 import ru.ifmo.nds.util.Utils;
 
@@ -12,21 +15,37 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
 
-import static ru.ifmo.nds.util.Utils.getWorstCDIndividual;
-
 public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
     private final Set<IIndividual<T>> individuals;
     private final List<ENLUNonDominationLevel<T>> ranks;
     private final long maxSize;
+    private final CrowdingDistanceMode cdMode;
+    private final IEvictionPolicy evictionPolicy;
 
     public ENLUManagedPopulation(long maxSize) {
         this(new HashSet<>(), new ArrayList<>(), maxSize);
     }
 
+    public ENLUManagedPopulation(long maxSize, @Nonnull CrowdingDistanceMode cdMode) {
+        this(new HashSet<>(), new ArrayList<>(), maxSize, cdMode);
+    }
+
     public ENLUManagedPopulation(Set<IIndividual<T>> individuals, List<ENLUNonDominationLevel<T>> ranks, long maxSize) {
+        this(individuals, ranks, maxSize, CrowdingDistanceMode.FULL);
+    }
+
+    public ENLUManagedPopulation(Set<IIndividual<T>> individuals, List<ENLUNonDominationLevel<T>> ranks, long maxSize,
+                                 @Nonnull CrowdingDistanceMode cdMode) {
+        this(individuals, ranks, maxSize, cdMode, CrowdingDistanceEviction.getInstance());
+    }
+
+    public ENLUManagedPopulation(Set<IIndividual<T>> individuals, List<ENLUNonDominationLevel<T>> ranks, long maxSize,
+                                 @Nonnull CrowdingDistanceMode cdMode, @Nonnull IEvictionPolicy evictionPolicy) {
         this.individuals = individuals;
         this.ranks = ranks;
         this.maxSize = maxSize;
+        this.cdMode = cdMode;
+        this.evictionPolicy = evictionPolicy;
     }
 
     @Override
@@ -38,16 +57,104 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
         return rg;
     }
 
+    /**
+     * ENLU inserts points one by one anyway, so only the trimming is postponed until the whole batch is added.
+     */
+    @Override
+    public synchronized int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        for (IIndividual<T> addend : addends) {
+            doAddIndividual(addend);
+        }
+        final int[] rg = new int[addends.size()];
+        int i = 0;
+        for (IIndividual<T> addend : addends) {
+            rg[i++] = detRankOfExPoint(addend);
+        }
+        while (individuals.size() > maxSize) {
+            intRemoveWorst();
+        }
+        return rg;
+    }
+
 
     private static <T> ENLUNonDominationLevel<T> removeIndividualFromLevel(@Nonnull final ENLUNonDominationLevel<T> lastLevel,
                                                                           @Nonnull final IIndividual<T> removedIndividual) {
-        final SortedObjectives<IIndividual<T>, T> nso = lastLevel.getSortedObjectives().update(
+        return removeIndividualsFromLevel(lastLevel, Collections.singletonList(removedIndividual));
+    }
+
+    private static <T> ENLUNonDominationLevel<T> removeIndividualsFromLevel(@Nonnull final ENLUNonDominationLevel<T> level,
+                                                                           @Nonnull final List<IIndividual<T>> removedIndividuals) {
+        final SortedObjectives<IIndividual<T>, T> nso = level.getSortedObjectives().update(
                 Collections.emptyList(),
-                Collections.singletonList(removedIndividual),
+                removedIndividuals,
                 (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
         );
 
-        return new ENLUNonDominationLevel<>(new HashSet<>(nso.getLexSortedPop()), nso);
+        return new ENLUNonDominationLevel<>(new HashSet<>(nso.getRawLexSortedPop()), nso);
+    }
+
+    /**
+     * Promotes level by level, like {@link ru.ifmo.nds.dcns.jfby.JFBYPopulation#removeIndividual}, finding the
+     * members to promote by linear scans.
+     */
+    @Override
+    public synchronized boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        if (!individuals.remove(individual)) {
+            return false;
+        }
+
+        int rank = detRankOfExPoint(individual);
+        ENLUNonDominationLevel<T> level = ranks.get(rank);
+        if (level.getMembersSet().size() == 1) {
+            ranks.remove(rank);
+            return true;
+        }
+
+        List<IIndividual<T>> removed = Collections.singletonList(findMember(level, individual));
+        level = removeIndividualsFromLevel(level, removed);
+        ranks.set(rank, level);
+        while (rank + 1 < ranks.size()) {
+            final ENLUNonDominationLevel<T> next = ranks.get(rank + 1);
+            final List<IIndividual<T>> promoted = new ArrayList<>();
+            for (IIndividual<T> member : next.getSortedObjectives().getRawLexSortedPop()) {
+                if (dominatedByAny(removed, member) && !level.dominatedByAnyPointOfThisLayer(member)) {
+                    promoted.add(member);
+                }
+            }
+            if (promoted.isEmpty()) {
+                break;
+            }
+            ranks.set(rank, level.addMembers(promoted).getModifiedLevel());
+            if (promoted.size() == next.getMembersSet().size()) {
+                ranks.remove(rank + 1);
+                break;
+            }
+            level = removeIndividualsFromLevel(next, promoted);
+            ranks.set(++rank, level);
+            removed = promoted;
+        }
+        return true;
+    }
+
+    private static <T> boolean dominatedByAny(@Nonnull List<IIndividual<T>> points, @Nonnull IIndividual<T> point) {
+        for (IIndividual<T> p : points) {
+            if (Utils.dominates(p.getObjectives(), point.getObjectives(), point.getObjectives().length) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The member equal to {@code point} as stored by the sorted objectives of the level
+     */
+    private static <T> IIndividual<T> findMember(@Nonnull ENLUNonDominationLevel<T> level, @Nonnull IIndividual<T> point) {
+        for (IIndividual<T> member : level.getSortedObjectives().getRawLexSortedPop()) {
+            if (Arrays.equals(member.getObjectives(), point.getObjectives())) {
+                return member;
+            }
+        }
+        throw new RuntimeException("Point not exists");
     }
 
     @Nullable
@@ -65,7 +172,7 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
                 return individual;
             }
         } else {
-            final IIndividual<T> removedIndividual = getWorstCDIndividual(lastLevel);
+            final IIndividual<T> removedIndividual = evictionPolicy.selectWorst(lastLevel);
             if (removedIndividual == null) {
                 return null;
             }
@@ -87,7 +194,7 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
             boolean dominates, dominated, nd;
             dominates = dominated = nd = false;
 
-            for (IIndividual<T> ind: ranks.get(i).getMembers()) {
+            for (IIndividual<T> ind: ranks.get(i).getSortedObjectives().getRawLexSortedPop()) {
                 int domComparisonResult = Utils.dominates(nInd.getObjectives(), ind.getObjectives(), nInd.getObjectives().length);
                 //nInd.compareDom(ind);
                 if (domComparisonResult == 0)
@@ -109,7 +216,8 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
                 ranks.add(i, new ENLUNonDominationLevel<>(newRank, SortedObjectives.create(
                         nInd.getObjectives().length,
                         Collections.singletonList(nInd),
-                        (ind, d) -> new FitnessAndCdIndividual<>(ind.getObjectives(), d, ind.getPayload())
+                        (ind, d) -> new FitnessAndCdIndividual<>(ind.getObjectives(), d, ind.getPayload()),
+                        cdMode
                 )));
                 return i;
             } else { //enlu update procedure
@@ -120,7 +228,8 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
                         ranks.add(i, new ENLUNonDominationLevel<>(new HashSet<>(dominatedList), SortedObjectives.create(
                                 nInd.getObjectives().length,
                                 dominatedList,
-                                (ind, d) -> new FitnessAndCdIndividual<>(ind.getObjectives(), d, ind.getPayload())
+                                (ind, d) -> new FitnessAndCdIndividual<>(ind.getObjectives(), d, ind.getPayload()),
+                                cdMode
                         )));
                         return rs;
                     } else {
@@ -139,7 +248,8 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
         ranks.add(new ENLUNonDominationLevel<>(Collections.singleton(nInd), SortedObjectives.create(
                 nInd.getObjectives().length,
                 Collections.singletonList(nInd),
-                (ind, d) -> new FitnessAndCdIndividual<>(ind.getObjectives(), d, ind.getPayload())
+                (ind, d) -> new FitnessAndCdIndividual<>(ind.getObjectives(), d, ind.getPayload()),
+                cdMode
         )));
         return ranks.size() - 1;
     }
@@ -176,7 +286,7 @@ public class ENLUManagedPopulation<T> implements IManagedPopulation<T> {
         for (ENLUNonDominationLevel<T> rank : ranks) {
             ranksSnap.add(rank.copy());
         }
-        return new ENLUManagedPopulation<>(new HashSet<>(individuals), ranksSnap, maxSize);
+        return new ENLUManagedPopulation<>(new HashSet<>(individuals), ranksSnap, maxSize, cdMode, evictionPolicy);
     }
 
     @Override
@@ -4,10 +4,13 @@ import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
 import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.DominanceStatistics;
+import ru.ifmo.nds.util.LevelBounds;
 import ru.ifmo.nds.util.SortedObjectives;
 import ru.ifmo.nds.util.Utils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
 
 import static ru.ifmo.nds.util.Utils.dominates;
@@ -19,10 +22,23 @@ public class ENLUNonDominationLevel<T> implements INonDominationLevel<T> {
     @Nonnull
     private final SortedObjectives<IIndividual<T>, T> sortedObjectives;
 
+    @Nullable
+    private volatile LevelBounds bounds;
+
     public ENLUNonDominationLevel(@Nonnull Set<IIndividual<T>> members,
                                   @Nonnull SortedObjectives<IIndividual<T>, T> sortedObjectives) {
+        this(members, sortedObjectives, null);
+    }
+
+    /**
+     * @param bounds Bounds of {@code members} (possibly wider), null to calculate them when required
+     */
+    public ENLUNonDominationLevel(@Nonnull Set<IIndividual<T>> members,
+                                  @Nonnull SortedObjectives<IIndividual<T>, T> sortedObjectives,
+                                  @Nullable LevelBounds bounds) {
         this.members = members;
         this.sortedObjectives = sortedObjectives;
+        this.bounds = bounds;
     }
 
     @Override
@@ -62,21 +78,52 @@ public class ENLUNonDominationLevel<T> implements INonDominationLevel<T> {
                 nextAddendList,
                 (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
         );
-        return new MemberAdditionResult<>(new ArrayList<>(nextAddendList), new ENLUNonDominationLevel<>(newMembers, nso));
+        return new MemberAdditionResult<>(new ArrayList<>(nextAddendList),
+                new ENLUNonDominationLevel<>(newMembers, nso, LevelBounds.update(bounds, addends, nextAddendList)));
 
     }
 
     @Override
     public boolean dominatedByAnyPointOfThisLayer(@Nonnull IIndividual<T> point) {
+        final LevelBounds levelBounds = getBounds();
+        if (levelBounds == null) {
+            return false;
+        }
+        if (levelBounds.cannotDominate(point.getObjectives())) {
+            DominanceStatistics.prunedByMinCorner(members.size());
+            return false;
+        }
+        if (levelBounds.mustDominate(point.getObjectives())) {
+            DominanceStatistics.prunedByMaxCorner(members.size());
+            return true;
+        }
+
+        int comparisons = 0;
+        boolean rs = false;
         for (IIndividual<T> member : members) {
-            if (dominates(member.getObjectives(), point.getObjectives(), point.getObjectives().length) < 0)
-                return true;
+            ++comparisons;
+            if (dominates(member.getObjectives(), point.getObjectives(), point.getObjectives().length) < 0) {
+                rs = true;
+                break;
+            }
+        }
+        DominanceStatistics.scanned(comparisons);
+        return rs;
+    }
+
+    @Override
+    @Nullable
+    public LevelBounds getBounds() {
+        LevelBounds rs = bounds;
+        if (rs == null && !members.isEmpty()) {
+            rs = LevelBounds.of(members);
+            bounds = rs;
         }
-        return false;
+        return rs;
     }
 
     @Override
     public ENLUNonDominationLevel<T> copy() {
-        return new ENLUNonDominationLevel<>(new HashSet<>(members), sortedObjectives);
+        return new ENLUNonDominationLevel<>(new HashSet<>(members), sortedObjectives, bounds);
     }
 }
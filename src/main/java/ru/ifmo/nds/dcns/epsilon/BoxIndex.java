@@ -0,0 +1,146 @@
+package ru.ifmo.nds.dcns.epsilon;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Open-addressing hash map from epsilon-box coordinates to values. The coordinates of all boxes are stored in a single
+ * long array, so lookups allocate nothing and compare keys without dereferencing. Linear probing with backward-shift
+ * deletion keeps the probe sequences short without tombstones.
+ */
+@NotThreadSafe
+class BoxIndex<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int dim;
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    BoxIndex(int dim) {
+        this(dim, INITIAL_CAPACITY);
+    }
+
+    private BoxIndex(int dim, int capacity) {
+        this.dim = dim;
+        this.keys = new long[capacity * dim];
+        this.values = new Object[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    @Nullable
+    V get(@Nonnull long[] box) {
+        final int slot = find(box);
+        //noinspection unchecked
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * @return Previous value of the box, null if there was none
+     */
+    @Nullable
+    V put(@Nonnull long[] box, @Nonnull V value) {
+        if (2 * (size + 1) > values.length) {
+            resize(2 * values.length);
+        }
+        final int mask = values.length - 1;
+        for (int slot = hash(box, 0) & mask; ; slot = (slot + 1) & mask) {
+            if (values[slot] == null) {
+                System.arraycopy(box, 0, keys, slot * dim, dim);
+                values[slot] = value;
+                ++size;
+                return null;
+            } else if (keyEquals(slot, box)) {
+                //noinspection unchecked
+                final V rs = (V) values[slot];
+                values[slot] = value;
+                return rs;
+            }
+        }
+    }
+
+    /**
+     * @return Removed value, null if the box was empty
+     */
+    @Nullable
+    V remove(@Nonnull long[] box) {
+        int slot = find(box);
+        if (slot < 0) {
+            return null;
+        }
+        //noinspection unchecked
+        final V rs = (V) values[slot];
+        final int mask = values.length - 1;
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            final int home = hash(keys, next * dim) & mask;
+            final boolean movable = slot <= next ? home <= slot || home > next : home <= slot && home > next;
+            if (movable) {
+                System.arraycopy(keys, next * dim, keys, slot * dim, dim);
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        values[slot] = null;
+        --size;
+        return rs;
+    }
+
+    @Nonnull
+    BoxIndex<V> copy() {
+        final BoxIndex<V> rs = new BoxIndex<>(dim, values.length);
+        System.arraycopy(keys, 0, rs.keys, 0, keys.length);
+        System.arraycopy(values, 0, rs.values, 0, values.length);
+        rs.size = size;
+        return rs;
+    }
+
+    private int find(@Nonnull long[] box) {
+        final int mask = values.length - 1;
+        for (int slot = hash(box, 0) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keyEquals(slot, box)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int slot, @Nonnull long[] box) {
+        final int offset = slot * dim;
+        for (int k = 0; k < dim; ++k) {
+            if (keys[offset + k] != box[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(@Nonnull long[] array, int offset) {
+        long h = 0;
+        for (int k = 0; k < dim; ++k) {
+            h = (h + array[offset + k]) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[capacity * dim];
+        values = new Object[capacity];
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; ++i) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys, i * dim) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                System.arraycopy(oldKeys, i * dim, keys, slot * dim, dim);
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
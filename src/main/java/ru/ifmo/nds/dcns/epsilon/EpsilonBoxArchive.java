@@ -0,0 +1,239 @@
+package ru.ifmo.nds.dcns.epsilon;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.INonDominationLevel;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+import static ru.ifmo.nds.util.Utils.emptyLevel;
+import static ru.ifmo.nds.util.Utils.removeIndividualFromLevel;
+import static ru.ifmo.nds.util.Utils.removeIndividualsFromLevel;
+
+/**
+ * Epsilon-Pareto archive of Laumanns et al. (box version) for unbounded streams of points.
+ * <p>
+ * The objective space is split into boxes with the sides of {@code epsilon}. The archive keeps at most one point
+ * per box, and only the boxes not dominated by other occupied boxes: a point is rejected if its box is dominated,
+ * or if its box is occupied by a point which dominates it or is closer to the lower corner of the box.
+ * So every point offered to the archive stays epsilon-dominated by some member, and the size of the archive
+ * depends only on the extent of the front and on {@code epsilon}.
+ * <p>
+ * The occupied boxes are hashed by their coordinates, so a point falling into an occupied box is rejected
+ * in O(dim) expected time. Other points are checked against a level of the lower corners of the occupied boxes.
+ * The members form a single non-domination level: the points of boxes which do not dominate each other do not
+ * dominate each other either.
+ */
+@ThreadSafe
+public class EpsilonBoxArchive<T> implements IManagedPopulation<T> {
+    @Nonnull
+    private final double[] epsilon;
+
+    @Nonnull
+    private final INonDominatedSorter sorter;
+
+    @Nonnull
+    private final CrowdingDistanceMode cdMode;
+
+    @Nonnull
+    private BoxIndex<Occupant<T>> boxes;
+
+    @Nonnull
+    private JFBYNonDominationLevel<T> front;
+
+    @Nonnull
+    private JFBYNonDominationLevel<T> corners;
+
+    @SuppressWarnings("WeakerAccess")
+    public EpsilonBoxArchive(@Nonnull double[] epsilon) {
+        this(epsilon, new JFB2014(), CrowdingDistanceMode.FULL);
+    }
+
+    /**
+     * @param epsilon Box sides for every objective
+     * @param cdMode  How CD is maintained by the level of members
+     */
+    @SuppressWarnings("WeakerAccess")
+    public EpsilonBoxArchive(@Nonnull double[] epsilon,
+                             @Nonnull INonDominatedSorter sorter,
+                             @Nonnull CrowdingDistanceMode cdMode) {
+        this(epsilon.clone(), sorter, cdMode, new BoxIndex<>(epsilon.length),
+                emptyLevel(sorter, epsilon.length, cdMode),
+                emptyLevel(sorter, epsilon.length, CrowdingDistanceMode.LAZY));
+    }
+
+    private EpsilonBoxArchive(@Nonnull double[] epsilon,
+                              @Nonnull INonDominatedSorter sorter,
+                              @Nonnull CrowdingDistanceMode cdMode,
+                              @Nonnull BoxIndex<Occupant<T>> boxes,
+                              @Nonnull JFBYNonDominationLevel<T> front,
+                              @Nonnull JFBYNonDominationLevel<T> corners) {
+        this.epsilon = epsilon;
+        this.sorter = sorter;
+        this.cdMode = cdMode;
+        this.boxes = boxes;
+        this.front = front;
+        this.corners = corners;
+    }
+
+    /**
+     * @return 0 if the point is a member of the archive after the call, 1 if it was rejected
+     */
+    @Override
+    public synchronized int addIndividual(@Nonnull IIndividual<T> individual) {
+        final double[] obj = individual.getObjectives();
+        final long[] box = box(obj);
+        final Occupant<T> occupant = boxes.get(box);
+        if (occupant != null) {
+            if (occupant.individual.equals(individual)) {
+                return 0;
+            }
+            final int cmp = dominates(obj, occupant.individual.getObjectives(), obj.length);
+            if (cmp > 0 || cmp == 0 && distanceToCorner(obj, box) >= distanceToCorner(occupant.individual.getObjectives(), box)) {
+                return 1;
+            }
+            //The box stays occupied, so no other box changes
+            replaceMembers(Collections.singletonList(occupant.individual), individual);
+            boxes.put(box, new Occupant<>(individual, occupant.corner));
+            return 0;
+        }
+
+        final IIndividual<T> corner = new FitnessAndCdIndividual<>(corner(box), null);
+        if (corners.dominatedByAnyPointOfThisLayer(corner)) {
+            return 1;
+        }
+        final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> result =
+                corners.addMembers(Collections.singletonList(corner));
+        corners = result.getModifiedLevel();
+        final List<IIndividual<T>> evicted = new ArrayList<>();
+        for (IIndividual<T> evictedCorner : result.getEvictedMembers()) {
+            evicted.add(boxes.remove(box(evictedCorner)).individual);
+        }
+        evicted.sort(AscLexSortComparator.getInstance());
+        replaceMembers(evicted, individual);
+        boxes.put(box, new Occupant<>(individual, corner));
+        return 0;
+    }
+
+    /**
+     * Remove a member. Points rejected or evicted by it before are not restored.
+     */
+    @Override
+    public synchronized boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        final long[] box = box(individual.getObjectives());
+        final Occupant<T> occupant = boxes.get(box);
+        if (occupant == null || !occupant.individual.equals(individual)) {
+            return false;
+        }
+        boxes.remove(box);
+        if (boxes.size() == 0) {
+            front = emptyLevel(sorter, epsilon.length, cdMode);
+            corners = emptyLevel(sorter, epsilon.length, CrowdingDistanceMode.LAZY);
+        } else {
+            corners = removeIndividualFromLevel(corners, corners.findMember(occupant.corner), sorter);
+            front = removeIndividualFromLevel(front, front.findMember(individual), sorter);
+        }
+        return true;
+    }
+
+    @Override
+    @Nonnull
+    public synchronized PopulationSnapshot<T> getSnapshot() {
+        if (front.getMembers().isEmpty()) {
+            return new PopulationSnapshot<>(Collections.emptyList(), 0);
+        }
+        return new PopulationSnapshot<>(Collections.singletonList(front), front.getMembers().size());
+    }
+
+    @Override
+    public synchronized int size() {
+        return boxes.size();
+    }
+
+    /**
+     * @return A copy of this archive. Levels are immutable, so they are shared.
+     */
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public synchronized EpsilonBoxArchive<T> clone() {
+        return new EpsilonBoxArchive<>(epsilon, sorter, cdMode, boxes.copy(), front, corners);
+    }
+
+    /**
+     * @param removed Lexicographically sorted members to replace
+     */
+    private void replaceMembers(@Nonnull List<IIndividual<T>> removed, @Nonnull IIndividual<T> addend) {
+        if (removed.size() == front.getMembers().size()) {
+            front = emptyLevel(sorter, epsilon.length, cdMode);
+        } else if (!removed.isEmpty()) {
+            final List<IIndividual<T>> members = new ArrayList<>(removed.size());
+            for (IIndividual<T> individual : removed) {
+                members.add(front.findMember(individual));
+            }
+            front = removeIndividualsFromLevel(front, members, sorter);
+        }
+        front = front.addMembers(Collections.singletonList(addend)).getModifiedLevel();
+    }
+
+    @Nonnull
+    private long[] box(@Nonnull double[] obj) {
+        final long[] rs = new long[obj.length];
+        for (int k = 0; k < obj.length; ++k) {
+            rs[k] = (long) Math.floor(obj[k] / epsilon[k]);
+        }
+        return rs;
+    }
+
+    @Nonnull
+    private static long[] box(@Nonnull IIndividual<?> corner) {
+        final double[] obj = corner.getObjectives();
+        final long[] rs = new long[obj.length];
+        for (int k = 0; k < obj.length; ++k) {
+            rs[k] = (long) obj[k];
+        }
+        return rs;
+    }
+
+    @Nonnull
+    private static double[] corner(@Nonnull long[] box) {
+        final double[] rs = new double[box.length];
+        for (int k = 0; k < box.length; ++k) {
+            rs[k] = box[k];
+        }
+        return rs;
+    }
+
+    private double distanceToCorner(@Nonnull double[] obj, @Nonnull long[] box) {
+        double rs = 0;
+        for (int k = 0; k < obj.length; ++k) {
+            final double d = obj[k] / epsilon[k] - box[k];
+            rs += d * d;
+        }
+        return rs;
+    }
+
+    private static class Occupant<T> {
+        @Nonnull
+        private final IIndividual<T> individual;
+
+        @Nonnull
+        private final IIndividual<T> corner;
+
+        private Occupant(@Nonnull IIndividual<T> individual, @Nonnull IIndividual<T> corner) {
+            this.individual = individual;
+            this.corner = corner;
+        }
+    }
+}
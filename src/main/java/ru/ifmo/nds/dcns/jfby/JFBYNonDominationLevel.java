@@ -2,27 +2,37 @@ package ru.ifmo.nds.dcns.jfby;
 
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.INonDominationLevel;
-import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.dcns.sorter.LowDimensionalNds;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+import ru.ifmo.nds.util.DominanceIndex;
+import ru.ifmo.nds.util.DominanceStatistics;
+import ru.ifmo.nds.util.LevelBounds;
 import ru.ifmo.nds.util.SortedObjectives;
 import ru.ifmo.nds.util.RankedPopulation;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static ru.ifmo.nds.util.Utils.dominates;
+import static ru.ifmo.nds.util.Utils.lexCompare;
 
 @ThreadSafe
 @Immutable
 public class JFBYNonDominationLevel<T> implements INonDominationLevel<T> {
     @Nonnull
-    private final JFB2014 sorter;
+    private final INonDominatedSorter sorter;
 
     @Nonnull
     private final List<IIndividual<T>> members;
@@ -30,36 +40,106 @@ public class JFBYNonDominationLevel<T> implements INonDominationLevel<T> {
     @Nonnull
     private final SortedObjectives<IIndividual<T>, T> sortedObjectives;
 
+    /**
+     * Levels with at least this number of members and at least three objectives build a {@link DominanceIndex}
+     * on the first dominance check. In two dimensions the scan ordered by the first objective is good enough.
+     */
+    static final int DOMINANCE_INDEX_THRESHOLD = 64;
+
+    /**
+     * Calculated on the first dominance check unless derived from the bounds of the previous version of the level
+     */
+    @Nullable
+    private volatile LevelBounds bounds;
+
+    /**
+     * Built on the first dominance check of a large level, then updated by the derived versions of the level
+     */
+    @Nullable
+    private volatile DominanceIndex<T> dominanceIndex;
+
     /**
      * Inefficient (O(NlogN) CD recalc) new level construction
      * @param sorter Sorter impl
      * @param members Level members
      */
-    public JFBYNonDominationLevel(@Nonnull JFB2014 sorter,
+    public JFBYNonDominationLevel(@Nonnull INonDominatedSorter sorter,
                                   @Nonnull List<IIndividual<T>> members) {
+        this(sorter, members, CrowdingDistanceMode.FULL);
+    }
+
+    /**
+     * @param sorter Sorter impl
+     * @param members Level members
+     * @param cdMode How CD is maintained by this level and the levels derived from it
+     */
+    public JFBYNonDominationLevel(@Nonnull INonDominatedSorter sorter,
+                                  @Nonnull List<IIndividual<T>> members,
+                                  @Nonnull CrowdingDistanceMode cdMode) {
         this.sorter = sorter;
         if (!members.isEmpty()) {
             final int dim = members.get(0).getObjectives().length;
-            this.sortedObjectives = SortedObjectives.create(dim, members, (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload()));
-            this.members = sortedObjectives.getLexSortedPop();
+            this.sortedObjectives = SortedObjectives.create(dim, members, (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload()), cdMode);
+            this.members = sortedObjectives.getRawLexSortedPop();
         } else {
             this.members = Collections.emptyList();
-            this.sortedObjectives = SortedObjectives.empty(0);
+            this.sortedObjectives = SortedObjectives.empty(0, cdMode);
         }
     }
 
-    public JFBYNonDominationLevel(@Nonnull JFB2014 sorter,
-                                  @Nonnull List<IIndividual<T>> members,
+    /**
+     * @param sortedObjectives Members of the level
+     */
+    public JFBYNonDominationLevel(@Nonnull INonDominatedSorter sorter,
                                   @Nonnull SortedObjectives<IIndividual<T>, T> sortedObjectives) {
+        this(sorter, sortedObjectives, null);
+    }
+
+    /**
+     * @param sortedObjectives Members of the level
+     * @param bounds           Bounds of the members (possibly wider), null to calculate them when required
+     */
+    public JFBYNonDominationLevel(@Nonnull INonDominatedSorter sorter,
+                                  @Nonnull SortedObjectives<IIndividual<T>, T> sortedObjectives,
+                                  @Nullable LevelBounds bounds) {
+        this(sorter, sortedObjectives.getRawLexSortedPop(), sortedObjectives, bounds, null);
+    }
+
+    private JFBYNonDominationLevel(@Nonnull INonDominatedSorter sorter,
+                                   @Nonnull List<IIndividual<T>> members,
+                                   @Nonnull SortedObjectives<IIndividual<T>, T> sortedObjectives,
+                                   @Nullable LevelBounds bounds,
+                                   @Nullable DominanceIndex<T> dominanceIndex) {
         this.sorter = sorter;
         this.members = Collections.unmodifiableList(members);
         this.sortedObjectives = sortedObjectives;
+        this.bounds = bounds;
+        this.dominanceIndex = dominanceIndex;
     }
 
+    /**
+     * @param nso     Result of the update of {@link #getSortedObjectives()} of this level
+     * @param added   Members added by the update
+     * @param removed Members removed by the update
+     * @return Level with the members of {@code nso}, which inherits the bounds and the dominance index of this level
+     */
+    public JFBYNonDominationLevel<T> derive(@Nonnull SortedObjectives<IIndividual<T>, T> nso,
+                                            @Nonnull List<IIndividual<T>> added,
+                                            @Nonnull List<IIndividual<T>> removed) {
+        final DominanceIndex<T> index = dominanceIndex;
+        return new JFBYNonDominationLevel<>(sorter, nso.getRawLexSortedPop(), nso,
+                LevelBounds.update(bounds, added, removed),
+                index == null ? null : index.update(added, removed));
+    }
+
+    /**
+     * @return Members with calculated CD. In {@link CrowdingDistanceMode#LAZY} mode access to them triggers
+     * the calculation, so the insertion paths use the raw members instead.
+     */
     @Override
     @Nonnull
     public List<IIndividual<T>> getMembers() {
-        return members;
+        return sortedObjectives.getLexSortedPop();
     }
 
     @Nonnull
@@ -69,13 +149,34 @@ public class JFBYNonDominationLevel<T> implements INonDominationLevel<T> {
 
     @Override
     public MemberAdditionResult<T, JFBYNonDominationLevel<T>> addMembers(@Nonnull List<IIndividual<T>> addends) {
-        final int[] ranks = new int[members.size()];
-        final RankedPopulation<IIndividual<T>> rp = sorter.addRankedMembers(members, ranks, addends, 0);
-        final ArrayList<IIndividual<T>> nextLevel = new ArrayList<>(ranks.length);
+        final DominanceIndex<T> index = addends.size() == 1 ? getDominanceIndex() : null;
+        final List<IIndividual<T>> nextLevel;
+        if (addends.size() == 1 && Staircase.supports(addends.get(0).getObjectives().length)) {
+            final double[] addendObj = addends.get(0).getObjectives();
+            if (Staircase.dominatedByAny(members, addendObj)) {
+                return new MemberAdditionResult<>(addends, this);
+            }
+            nextLevel = Staircase.dominatedMembers(members, addendObj);
+        } else if (index != null) {
+            //A single addend is either dominated by some member or evicts exactly the members it dominates
+            final double[] addendObj = addends.get(0).getObjectives();
+            if (index.dominatedByAny(addendObj)) {
+                return new MemberAdditionResult<>(addends, this);
+            }
+            nextLevel = new ArrayList<>();
+            index.collectDominated(addendObj, nextLevel);
+            nextLevel.sort(AscLexSortComparator.getInstance());
+        } else {
+            final int[] ranks = new int[members.size()];
+            final RankedPopulation<IIndividual<T>> rp = LowDimensionalNds.supports(addends.get(0).getObjectives().length)
+                    ? LowDimensionalNds.addRankedMembers(members, ranks, addends, 0)
+                    : sorter.addRankedMembers(members, ranks, addends, 0);
+            nextLevel = new ArrayList<>(ranks.length);
 
-        for (int i = 0; i < rp.getPop().length; ++i) {
-            if (rp.getRanks()[i] != 0) {
-                nextLevel.add(rp.getPop()[i]);
+            for (int i = 0; i < rp.getPop().length; ++i) {
+                if (rp.getRanks()[i] != 0) {
+                    nextLevel.add(rp.getPop()[i]);
+                }
             }
         }
 
@@ -85,30 +186,199 @@ public class JFBYNonDominationLevel<T> implements INonDominationLevel<T> {
                 (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
         );
 
-        return new MemberAdditionResult<>(
-                nextLevel,
-                new JFBYNonDominationLevel<>(sorter, nso.getLexSortedPop(), nso)
-        );
+        return new MemberAdditionResult<>(nextLevel, derive(nso, addends, nextLevel));
+    }
+
+    /**
+     * Batch insertion step: the candidates which are dominated neither by the members of this level nor by other
+     * candidates become members, and the members dominated by them are evicted.
+     *
+     * @param candidates Lexicographically sorted points which are not dominated by the previous levels
+     * @return Modified level. "Evicted" members are the rejected candidates together with the evicted members,
+     * lexicographically sorted.
+     */
+    public MemberAdditionResult<T, JFBYNonDominationLevel<T>> mergeCandidates(@Nonnull List<IIndividual<T>> candidates) {
+        return merge(candidates, false);
+    }
+
+    /**
+     * {@link #mergeCandidates} for candidates which do not dominate each other, such as a front of a batch:
+     * the ones not dominated by the members are added with {@link #addMembers} without sorting them.
+     */
+    public MemberAdditionResult<T, JFBYNonDominationLevel<T>> mergeAntichain(@Nonnull List<IIndividual<T>> candidates) {
+        return merge(candidates, true);
+    }
+
+    private MemberAdditionResult<T, JFBYNonDominationLevel<T>> merge(@Nonnull List<IIndividual<T>> candidates,
+                                                                      boolean antichain) {
+        final List<IIndividual<T>> notDominated = new ArrayList<>(candidates.size());
+        final List<IIndividual<T>> rejected = new ArrayList<>();
+        for (IIndividual<T> candidate : candidates) {
+            if (dominatedByAnyPointOfThisLayer(candidate)) {
+                rejected.add(candidate);
+            } else {
+                notDominated.add(candidate);
+            }
+        }
+        if (notDominated.isEmpty()) {
+            return new MemberAdditionResult<>(candidates, this);
+        }
+
+        final List<IIndividual<T>> front;
+        if (antichain) {
+            front = notDominated;
+        } else {
+            final IIndividual[] sorted = notDominated.toArray(new IIndividual[notDominated.size()]);
+            final int[] ranks = sorter.performNds(sorted);
+            front = new ArrayList<>(sorted.length);
+            for (int i = 0; i < sorted.length; ++i) {
+                //noinspection unchecked
+                (ranks[i] == 0 ? front : rejected).add(sorted[i]);
+            }
+        }
+
+        final MemberAdditionResult<T, JFBYNonDominationLevel<T>> mar = addMembers(front);
+        final List<IIndividual<T>> rest = new ArrayList<>(rejected.size() + mar.getEvictedMembers().size());
+        rest.addAll(rejected);
+        rest.addAll(mar.getEvictedMembers());
+        rest.sort(AscLexSortComparator.getInstance());
+        return new MemberAdditionResult<>(rest, mar.getModifiedLevel());
+    }
+
+    /**
+     * @return The member with the objectives of {@code point}, null if there is none. O(log n).
+     */
+    @Nullable
+    public IIndividual<T> findMember(@Nonnull IIndividual<T> point) {
+        final double[] obj = point.getObjectives();
+        int l = 0;
+        int r = members.size() - 1;
+        while (l <= r) {
+            final int mid = (l + r) >>> 1;
+            final int cmp = lexCompare(members.get(mid).getObjectives(), obj, obj.length);
+            if (cmp < 0) {
+                l = mid + 1;
+            } else if (cmp > 0) {
+                r = mid - 1;
+            } else {
+                return members.get(mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decremental step: a member has to be promoted to the previous level if it was dominated by some of the points
+     * removed from it and is not dominated by the remaining ones. Such members never dominate each other
+     * or the members of the previous level, so they can be added to it without evictions.
+     *
+     * @param removed       Points removed from the previous level
+     * @param previousLevel Previous level without {@code removed}
+     * @return Lexicographically sorted members to promote
+     */
+    @Nonnull
+    public List<IIndividual<T>> selectPromoted(@Nonnull List<IIndividual<T>> removed,
+                                               @Nonnull INonDominationLevel<T> previousLevel) {
+        final Set<IIndividual<T>> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        final DominanceIndex<T> index = getDominanceIndex();
+        for (IIndividual<T> point : removed) {
+            final double[] obj = point.getObjectives();
+            if (Staircase.supports(obj.length)) {
+                candidates.addAll(Staircase.dominatedMembers(members, obj));
+            } else if (index != null) {
+                final List<IIndividual<T>> dominated = new ArrayList<>();
+                index.collectDominated(obj, dominated);
+                candidates.addAll(dominated);
+            } else {
+                for (IIndividual<T> member : members) {
+                    if (dominates(obj, member.getObjectives(), obj.length) < 0) {
+                        candidates.add(member);
+                    }
+                }
+            }
+        }
+
+        final List<IIndividual<T>> rs = new ArrayList<>(candidates.size());
+        for (IIndividual<T> candidate : candidates) {
+            if (!previousLevel.dominatedByAnyPointOfThisLayer(candidate)) {
+                rs.add(candidate);
+            }
+        }
+        rs.sort(AscLexSortComparator.getInstance());
+        return rs;
     }
 
     @Override
     public boolean dominatedByAnyPointOfThisLayer(@Nonnull IIndividual point) {
+        final LevelBounds levelBounds = getBounds();
+        if (levelBounds == null) {
+            return false;
+        }
         final double[] pointObj = point.getObjectives();
+        if (levelBounds.cannotDominate(pointObj)) {
+            DominanceStatistics.prunedByMinCorner(members.size());
+            return false;
+        }
+        if (levelBounds.mustDominate(pointObj)) {
+            DominanceStatistics.prunedByMaxCorner(members.size());
+            return true;
+        }
+        if (Staircase.supports(pointObj.length)) {
+            DominanceStatistics.searched();
+            return Staircase.dominatedByAny(members, pointObj);
+        }
+        final DominanceIndex<T> index = getDominanceIndex();
+        if (index != null) {
+            DominanceStatistics.searched();
+            return index.dominatedByAny(pointObj);
+        }
+
+        int comparisons = 0;
+        boolean rs = false;
         for (IIndividual member : members) {
             final double[] memberObj = member.getObjectives();
             if (memberObj[0] > pointObj[0])
                 break;
-            if (dominates(memberObj, pointObj, pointObj.length) < 0)
-                return true;
+            ++comparisons;
+            if (dominates(memberObj, pointObj, pointObj.length) < 0) {
+                rs = true;
+                break;
+            }
+        }
+        DominanceStatistics.scanned(comparisons);
+        return rs;
+    }
+
+    /**
+     * @return Dominance index of the members, null if the level is too small to benefit from it
+     */
+    @Nullable
+    public DominanceIndex<T> getDominanceIndex() {
+        DominanceIndex<T> rs = dominanceIndex;
+        if (rs == null && members.size() >= DOMINANCE_INDEX_THRESHOLD
+                && members.get(0).getObjectives().length >= 3) {
+            rs = DominanceIndex.build(members);
+            dominanceIndex = rs;
+        }
+        return rs;
+    }
+
+    @Override
+    @Nullable
+    public LevelBounds getBounds() {
+        LevelBounds rs = bounds;
+        if (rs == null && !members.isEmpty()) {
+            rs = LevelBounds.of(members);
+            bounds = rs;
         }
-        return false;
+        return rs;
     }
 
     @Override
     public JFBYNonDominationLevel<T> copy() {
         final List<IIndividual<T>> newMembers = new ArrayList<>(members.size());
         newMembers.addAll(members);
-        return new JFBYNonDominationLevel<>(sorter, newMembers, sortedObjectives);
+        return new JFBYNonDominationLevel<>(sorter, newMembers, sortedObjectives, bounds, dominanceIndex);
     }
 
     @Override
@@ -1,11 +1,17 @@
 package ru.ifmo.nds.dcns.jfby;
 
+import ru.ifmo.nds.IEvictionPolicy;
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.IManagedPopulation;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.PopulationSnapshot;
 import ru.ifmo.nds.dcns.sorter.IncrementalJFB;
-import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.eviction.CrowdingDistanceEviction;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.BatchFronts;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+import ru.ifmo.nds.util.ObjectiveHashSet;
 import ru.ifmo.nds.util.SortedObjectives;
 
 import javax.annotation.Nonnull;
@@ -13,8 +19,10 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.*;
 
-import static ru.ifmo.nds.util.Utils.getWorstCDIndividual;
+import static ru.ifmo.nds.util.Utils.recordPlacement;
 import static ru.ifmo.nds.util.Utils.removeIndividualFromLevel;
+import static ru.ifmo.nds.util.Utils.removeIndividualsFromLevel;
+import static ru.ifmo.nds.util.Utils.sortIntoLevels;
 
 @SuppressWarnings("WeakerAccess")
 @NotThreadSafe
@@ -22,9 +30,9 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
     @Nonnull
     private final List<JFBYNonDominationLevel<T>> nonDominationLevels;
 
-    private final Map<IIndividual<T>, Boolean> presentIndividuals = new HashMap<>();
+    private final ObjectiveHashSet presentIndividuals = new ObjectiveHashSet();
 
-    private final JFB2014 sorter;
+    private final INonDominatedSorter sorter;
 
     private int lastNumberOfMovements = 0;
     private int lastSumOfMovements = 0;
@@ -32,6 +40,12 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
 
     private final long expectedPopSize;
 
+    @Nonnull
+    private final CrowdingDistanceMode cdMode;
+
+    @Nonnull
+    private final IEvictionPolicy evictionPolicy;
+
     public JFBYPopulation(long expectedPopSize) {
         this(new IncrementalJFB(), expectedPopSize);
     }
@@ -40,20 +54,46 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
         this(nonDominationLevels, new IncrementalJFB(), expectedPopSize);
     }
 
-    public JFBYPopulation(@Nonnull final JFB2014 sorter, long expectedPopSize) {
+    public JFBYPopulation(@Nonnull final INonDominatedSorter sorter, long expectedPopSize) {
         this(new ArrayList<>(), sorter, expectedPopSize);
     }
 
+    public JFBYPopulation(@Nonnull final INonDominatedSorter sorter, long expectedPopSize,
+                          @Nonnull final CrowdingDistanceMode cdMode) {
+        this(new ArrayList<>(), sorter, expectedPopSize, cdMode);
+    }
+
     public JFBYPopulation(@Nonnull final List<JFBYNonDominationLevel<T>> nonDominationLevels,
-                          @Nonnull final JFB2014 sorter, long expectedPopSize) {
+                          @Nonnull final INonDominatedSorter sorter, long expectedPopSize) {
+        this(nonDominationLevels, sorter, expectedPopSize, CrowdingDistanceMode.FULL);
+    }
+
+    /**
+     * @param cdMode How CD is maintained by the levels created by this population
+     */
+    public JFBYPopulation(@Nonnull final List<JFBYNonDominationLevel<T>> nonDominationLevels,
+                          @Nonnull final INonDominatedSorter sorter, long expectedPopSize,
+                          @Nonnull final CrowdingDistanceMode cdMode) {
+        this(nonDominationLevels, sorter, expectedPopSize, cdMode, CrowdingDistanceEviction.getInstance());
+    }
+
+    /**
+     * @param evictionPolicy Selects the members of the last level to remove when the population is too large
+     */
+    public JFBYPopulation(@Nonnull final List<JFBYNonDominationLevel<T>> nonDominationLevels,
+                          @Nonnull final INonDominatedSorter sorter, long expectedPopSize,
+                          @Nonnull final CrowdingDistanceMode cdMode,
+                          @Nonnull final IEvictionPolicy evictionPolicy) {
         this.nonDominationLevels = nonDominationLevels;
         this.sorter = sorter;
         this.expectedPopSize = expectedPopSize;
+        this.cdMode = cdMode;
+        this.evictionPolicy = evictionPolicy;
 
         for (INonDominationLevel<T> level : nonDominationLevels) {
             size += level.getMembers().size();
             for (IIndividual<T> individual : level.getMembers()) {
-                presentIndividuals.put(individual, true);
+                presentIndividuals.add(individual.getObjectives());
             }
         }
     }
@@ -76,22 +116,47 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
             } else {
                 --size;
                 final IIndividual<T> individual = lastLevel.getMembers().get(0);
-                presentIndividuals.remove(individual);
+                presentIndividuals.remove(individual.getObjectives());
                 return individual;
             }
         } else {
-            final IIndividual<T> removedIndividual = getWorstCDIndividual(lastLevel);
+            final IIndividual<T> removedIndividual = evictionPolicy.selectWorst(lastLevel);
             if (removedIndividual == null) {
                 return null;
             }
             final JFBYNonDominationLevel<T> newLevel = removeIndividualFromLevel(lastLevel, removedIndividual, sorter);
             nonDominationLevels.set(lastLevelIndex, newLevel);
-            presentIndividuals.remove(removedIndividual);
+            presentIndividuals.remove(removedIndividual.getObjectives());
             --size;
             return removedIndividual;
         }
     }
 
+    /**
+     * Remove {@code count} worst individuals at once: whole last levels, then the members of the last level
+     * selected by the eviction policy
+     */
+    void intRemoveWorst(int count) {
+        while (count > 0 && !nonDominationLevels.isEmpty()) {
+            final int lastLevelIndex = nonDominationLevels.size() - 1;
+            final JFBYNonDominationLevel<T> lastLevel = nonDominationLevels.get(lastLevelIndex);
+            final int levelSize = lastLevel.getMembers().size();
+            final List<IIndividual<T>> removed;
+            if (levelSize <= count) {
+                nonDominationLevels.remove(lastLevelIndex);
+                removed = lastLevel.getMembers();
+            } else {
+                removed = evictionPolicy.selectWorst(lastLevel, count);
+                nonDominationLevels.set(lastLevelIndex, removeIndividualsFromLevel(lastLevel, removed, sorter));
+            }
+            for (IIndividual<T> individual : removed) {
+                presentIndividuals.remove(individual.getObjectives());
+            }
+            size -= removed.size();
+            count -= removed.size();
+        }
+    }
+
     @Override
     public int size() {
         return size;
@@ -104,13 +169,14 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
 
         final int rank = determineRank(addend);
 
-        if (presentIndividuals.putIfAbsent(addend, true) != null) {
+        if (!presentIndividuals.add(addend.getObjectives())) {
             return rank;
         } else if (rank >= nonDominationLevels.size()) {
             final List<IIndividual<T>> individuals = Collections.singletonList(addend);
             final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(
                     sorter,
-                    individuals
+                    individuals,
+                    cdMode
             );
             nonDominationLevels.add(level);
         } else {
@@ -123,9 +189,10 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
                 lastSumOfMovements += addends.size();
 
                 if (prevSize == addends.size()) { //Whole level was pushed
-                    final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(sorter, addends, prevSortedObjectives);
+                    final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(sorter, prevSortedObjectives);
                     nonDominationLevels.add(i, level);
-                    return rank;
+                    addends = Collections.emptyList();
+                    break;
                 }
 
                 final JFBYNonDominationLevel<T> level = nonDominationLevels.get(i);
@@ -137,7 +204,7 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
                 i++;
             }
             if (!addends.isEmpty()) {
-                final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(sorter, addends);
+                final JFBYNonDominationLevel<T> level = new JFBYNonDominationLevel<>(sorter, addends, cdMode);
                 nonDominationLevels.add(level);
             }
         }
@@ -148,17 +215,116 @@ public class JFBYPopulation<T> implements IManagedPopulation<T> {
         return rank;
     }
 
+    /**
+     * Sorts the batch into fronts once (see {@link BatchFronts}) and merges it level by level: a front joins
+     * the candidates at the level next to the one where the previous front has placed a point. Then removes
+     * the excess individuals in a single pass.
+     */
+    @Override
+    public int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        lastNumberOfMovements = 0;
+        lastSumOfMovements = 0;
+
+        final List<IIndividual<T>> batch = new ArrayList<>(addends.size());
+        for (IIndividual<T> addend : addends) {
+            if (presentIndividuals.add(addend.getObjectives())) {
+                batch.add(addend);
+            }
+        }
+
+        final Map<IIndividual<T>, Integer> placement = new HashMap<>();
+        if (!batch.isEmpty()) {
+            batch.sort(AscLexSortComparator.getInstance());
+            final BatchFronts<T> fronts = new BatchFronts<>(batch, sorter);
+            int rank = fronts.firstRank(nonDominationLevels);
+            List<IIndividual<T>> pending = fronts.first();
+            while (!pending.isEmpty() && rank < nonDominationLevels.size()) {
+                ++lastNumberOfMovements;
+                lastSumOfMovements += pending.size();
+
+                final INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> mar =
+                        fronts.mergeInto(nonDominationLevels.get(rank), pending);
+                nonDominationLevels.set(rank, mar.getModifiedLevel());
+                recordPlacement(pending, mar.getEvictedMembers(), rank, placement);
+                pending = fronts.next(pending, mar.getEvictedMembers());
+                ++rank;
+            }
+            pending = fronts.withUnreleased(pending);
+            if (!pending.isEmpty()) {
+                for (List<IIndividual<T>> levelMembers : sortIntoLevels(pending, sorter)) {
+                    recordPlacement(levelMembers, Collections.emptyList(), rank++, placement);
+                    nonDominationLevels.add(new JFBYNonDominationLevel<>(sorter, levelMembers, cdMode));
+                }
+            }
+        }
+        size += batch.size();
+
+        final int[] ranks = new int[addends.size()];
+        int i = 0;
+        for (IIndividual<T> addend : addends) {
+            final Integer r = placement.get(addend);
+            ranks[i++] = r != null ? r : determineRank(addend);
+        }
+
+        if (size > expectedPopSize) {
+            intRemoveWorst((int) (size - expectedPopSize));
+        }
+        return ranks;
+    }
+
+    /**
+     * Removes the individual from its level, then promotes level by level (see
+     * {@link JFBYNonDominationLevel#selectPromoted}) until some level keeps all its members. A level which loses
+     * all its members is dropped: the next levels are already sorted correctly relative to the previous one.
+     */
+    @Override
+    public boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        if (!presentIndividuals.remove(individual.getObjectives())) {
+            return false;
+        }
+        --size;
+
+        int rank = determineRank(individual);
+        JFBYNonDominationLevel<T> level = nonDominationLevels.get(rank);
+        final IIndividual<T> member = Objects.requireNonNull(level.findMember(individual),
+                "Impossible situation: the point is not a member of its level");
+        if (level.getMembers().size() == 1) {
+            nonDominationLevels.remove(rank);
+            return true;
+        }
+
+        List<IIndividual<T>> removed = Collections.singletonList(member);
+        level = removeIndividualsFromLevel(level, removed, sorter);
+        nonDominationLevels.set(rank, level);
+        while (rank + 1 < nonDominationLevels.size()) {
+            final JFBYNonDominationLevel<T> next = nonDominationLevels.get(rank + 1);
+            final List<IIndividual<T>> promoted = next.selectPromoted(removed, level);
+            if (promoted.isEmpty()) {
+                break;
+            }
+            nonDominationLevels.set(rank, level.addMembers(promoted).getModifiedLevel());
+            if (promoted.size() == next.getMembers().size()) {
+                nonDominationLevels.remove(rank + 1);
+                break;
+            }
+            level = removeIndividualsFromLevel(next, promoted, sorter);
+            nonDominationLevels.set(++rank, level);
+            removed = promoted;
+        }
+        return true;
+    }
+
     /**
      * @return A copy of this population. All layers are also copied.
      */
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     @Override
     public JFBYPopulation<T> clone() {
-        final JFBYPopulation<T> copy = new JFBYPopulation<>(nonDominationLevels, sorter, expectedPopSize);
-        for (INonDominationLevel<T> level : nonDominationLevels) {
-            copy.getSnapshot().getLevels().add(level.copy());
+        final List<JFBYNonDominationLevel<T>> levels = new ArrayList<>(nonDominationLevels.size());
+        for (JFBYNonDominationLevel<T> level : nonDominationLevels) {
+            levels.add(level.copy());
         }
-        return copy;
+        return new JFBYPopulation<>(levels, sorter, expectedPopSize, cdMode, evictionPolicy);
     }
 
     @Override
@@ -0,0 +1,92 @@
+package ru.ifmo.nds.dcns.jfby;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operations on a two-dimensional non-domination level. Its lexicographically sorted members form a staircase:
+ * the first objective increases and the second one decreases, so both queries are binary searches.
+ */
+final class Staircase {
+    private Staircase() {
+    }
+
+    static boolean supports(int dim) {
+        return dim == 2;
+    }
+
+    /**
+     * O(log n): only the last member which is not greater than {@code point} in the first objective
+     * may dominate it, the ones before it are greater in the second objective.
+     *
+     * @param members Lexicographically sorted members of a level
+     */
+    static <T> boolean dominatedByAny(@Nonnull List<IIndividual<T>> members, @Nonnull double[] point) {
+        final int i = upperBound(members, point[0]) - 1;
+        if (i < 0) {
+            return false;
+        }
+        final double[] member = members.get(i).getObjectives();
+        return member[1] <= point[1] && (member[0] < point[0] || member[1] < point[1]);
+    }
+
+    /**
+     * O(k + log n): the members dominated by {@code point} form a contiguous range starting at the first member
+     * which is not less than {@code point} in the first objective.
+     *
+     * @param members Lexicographically sorted members of a level
+     * @return Lexicographically sorted members dominated by {@code point}
+     */
+    @Nonnull
+    static <T> List<IIndividual<T>> dominatedMembers(@Nonnull List<IIndividual<T>> members, @Nonnull double[] point) {
+        int from = lowerBound(members, point[0]);
+        if (from < members.size()) {
+            final double[] first = members.get(from).getObjectives();
+            if (first[0] == point[0] && first[1] == point[1]) {
+                ++from;
+            }
+        }
+        int until = from;
+        while (until < members.size() && members.get(until).getObjectives()[1] >= point[1]) {
+            ++until;
+        }
+        return new ArrayList<>(members.subList(from, until));
+    }
+
+    /**
+     * @return Index of the first member whose first objective is not less than {@code value}
+     */
+    private static <T> int lowerBound(List<IIndividual<T>> members, double value) {
+        int l = 0;
+        int r = members.size();
+        while (l < r) {
+            final int mid = (l + r) >>> 1;
+            if (members.get(mid).getObjectives()[0] < value) {
+                l = mid + 1;
+            } else {
+                r = mid;
+            }
+        }
+        return l;
+    }
+
+    /**
+     * @return Index of the first member whose first objective is greater than {@code value}
+     */
+    private static <T> int upperBound(List<IIndividual<T>> members, double value) {
+        int l = 0;
+        int r = members.size();
+        while (l < r) {
+            final int mid = (l + r) >>> 1;
+            if (members.get(mid).getObjectives()[0] <= value) {
+                l = mid + 1;
+            } else {
+                r = mid;
+            }
+        }
+        return l;
+    }
+}
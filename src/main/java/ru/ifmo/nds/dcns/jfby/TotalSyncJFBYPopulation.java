@@ -1,14 +1,17 @@
 package ru.ifmo.nds.dcns.jfby;
 
+import ru.ifmo.nds.IEvictionPolicy;
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.PopulationSnapshot;
-import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
 import ru.ifmo.nds.util.RankedPopulation;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @SuppressWarnings("unused")
@@ -21,14 +24,26 @@ public class TotalSyncJFBYPopulation<T> extends JFBYPopulation<T> {
         super(nonDominationLevels, expectedPopSize);
     }
 
-    public TotalSyncJFBYPopulation(@Nonnull JFB2014 sorter, long expectedPopSize) {
+    public TotalSyncJFBYPopulation(@Nonnull INonDominatedSorter sorter, long expectedPopSize) {
         super(sorter, expectedPopSize);
     }
 
-    public TotalSyncJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels, @Nonnull JFB2014 sorter, long expectedPopSize) {
+    public TotalSyncJFBYPopulation(@Nonnull INonDominatedSorter sorter, long expectedPopSize, @Nonnull CrowdingDistanceMode cdMode) {
+        super(sorter, expectedPopSize, cdMode);
+    }
+
+    public TotalSyncJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels, @Nonnull INonDominatedSorter sorter, long expectedPopSize) {
         super(nonDominationLevels, sorter, expectedPopSize);
     }
 
+    public TotalSyncJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels, @Nonnull INonDominatedSorter sorter, long expectedPopSize, @Nonnull CrowdingDistanceMode cdMode) {
+        super(nonDominationLevels, sorter, expectedPopSize, cdMode);
+    }
+
+    public TotalSyncJFBYPopulation(@Nonnull List<JFBYNonDominationLevel<T>> nonDominationLevels, @Nonnull INonDominatedSorter sorter, long expectedPopSize, @Nonnull CrowdingDistanceMode cdMode, @Nonnull IEvictionPolicy evictionPolicy) {
+        super(nonDominationLevels, sorter, expectedPopSize, cdMode, evictionPolicy);
+    }
+
     @Nonnull
     @Override
     public synchronized PopulationSnapshot<T> getSnapshot() {
@@ -57,6 +72,16 @@ public class TotalSyncJFBYPopulation<T> extends JFBYPopulation<T> {
         return super.addIndividual(addend);
     }
 
+    @Override
+    public synchronized int[] addIndividuals(@Nonnull Collection<IIndividual<T>> addends) {
+        return super.addIndividuals(addends);
+    }
+
+    @Override
+    public synchronized boolean removeIndividual(@Nonnull IIndividual<T> individual) {
+        return super.removeIndividual(individual);
+    }
+
     @Override
     public synchronized JFBYPopulation<T> clone() {
         return super.clone();
@@ -0,0 +1,131 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.ObjectiveMatrix;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+
+/**
+ * Best Order Sort, proposed in the following paper:
+ * <p>
+ * inproceedings{
+ * author       = {Proteek Chandan Roy and Md. Monirul Islam and Kalyanmoy Deb},
+ * title        = {Best Order Sort: A New Algorithm to Non-dominated Sorting for Evolutionary Multi-objective Optimization},
+ * booktitle    = {Proceedings of Genetic and Evolutionary Computation Conference Companion},
+ * year         = {2016},
+ * pages        = {1113-1120},
+ * langid       = {english}
+ * }
+ * <p>
+ * The population is sorted by every objective (ties are broken lexicographically), and the sorted lists are
+ * scanned simultaneously. A point is ranked when it is met for the first time: all points which dominate it
+ * precede it in every list, so only the already scanned part of a single list has to be checked.
+ */
+@ThreadSafe
+public class BestOrderSort implements INonDominatedSorter {
+    @Override
+    public int[] performNds(IIndividual[] population) {
+        if (population == null || population.length == 0)
+            return new int[0];
+
+        Arrays.sort(population, AscLexSortComparator.getInstance());
+
+        final int n = population.length;
+        final int dim = population[0].getObjectives().length;
+        final int[] ranks = new int[n];
+        if (dim == 0)
+            return ranks;
+
+        final double[] obj = ObjectiveMatrix.pack(population, new double[n * dim]);
+
+        //orders[j] is the population sorted by the j-th objective. Indices are the lexicographical order already.
+        final int[][] orders = new int[dim][n];
+        final int[] buffer = new int[n];
+        for (int j = 0; j < dim; ++j) {
+            for (int i = 0; i < n; ++i)
+                orders[j][i] = i;
+            if (j > 0)
+                sortByObjective(obj, dim, j, orders[j], buffer);
+        }
+
+        //lists[j][r] contains the scanned points of rank r in the order of the j-th objective
+        int[][][] lists = new int[dim][4][];
+        int[][] listSizes = new int[dim][4];
+        int rankCount = 0;
+
+        Arrays.fill(ranks, -1);
+        int ranked = 0;
+        for (int i = 0; i < n && ranked < n; ++i) {
+            for (int j = 0; j < dim; ++j) {
+                final int s = orders[j][i];
+                if (ranks[s] < 0) {
+                    int r = 0;
+                    while (r < rankCount && dominatedByAny(obj, dim, lists[j][r], listSizes[j][r], s))
+                        ++r;
+
+                    if (r == rankCount) {
+                        if (rankCount == lists[0].length) {
+                            for (int t = 0; t < dim; ++t) {
+                                lists[t] = Arrays.copyOf(lists[t], rankCount * 2);
+                                listSizes[t] = Arrays.copyOf(listSizes[t], rankCount * 2);
+                            }
+                        }
+                        for (int t = 0; t < dim; ++t)
+                            lists[t][rankCount] = new int[4];
+                        ++rankCount;
+                    }
+                    ranks[s] = r;
+                    ++ranked;
+                }
+
+                final int r = ranks[s];
+                if (listSizes[j][r] == lists[j][r].length)
+                    lists[j][r] = Arrays.copyOf(lists[j][r], listSizes[j][r] * 2);
+                lists[j][r][listSizes[j][r]++] = s;
+            }
+        }
+        return ranks;
+    }
+
+    private static boolean dominatedByAny(double[] obj, int dim, int[] list, int size, int point) {
+        final int pointOffset = point * dim;
+        for (int i = size - 1; i >= 0; --i) {
+            if (dominates(obj, list[i] * dim, pointOffset, dim) < 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stable merge sort of {@code order} by the {@code j}-th objective
+     */
+    private static void sortByObjective(double[] obj, int dim, int j, int[] order, int[] buffer) {
+        final int n = order.length;
+        for (int width = 1; width < n; width *= 2) {
+            for (int from = 0; from + width < n; from += 2 * width) {
+                final int mid = from + width;
+                final int until = Math.min(from + 2 * width, n);
+                System.arraycopy(order, from, buffer, 0, width);
+                int l = 0;
+                int r = mid;
+                int w = from;
+                while (l < width && r < until) {
+                    if (obj[buffer[l] * dim + j] <= obj[order[r] * dim + j])
+                        order[w++] = buffer[l++];
+                    else
+                        order[w++] = order[r++];
+                }
+                System.arraycopy(buffer, l, order, w, width - l);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BestOrderSort";
+    }
+}
@@ -0,0 +1,114 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.ObjectiveMatrix;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+
+/**
+ * Efficient non-dominated sort, proposed in the following paper:
+ * <p>
+ * article{
+ * author       = {Xingyi Zhang and Ye Tian and Ran Cheng and Yaochu Jin},
+ * title        = {An Efficient Approach to Nondominated Sorting for Evolutionary Multiobjective Optimization},
+ * journal      = {IEEE Transactions on Evolutionary Computation},
+ * volume       = {19},
+ * number       = {2},
+ * year         = {2015},
+ * pages        = {201-213},
+ * langid       = {english}
+ * }
+ * <p>
+ * Points are processed in the lexicographical order, so a point may be dominated only by the points already
+ * assigned to fronts. The front of each point is searched either sequentially (ENS-SS) or by binary search (ENS-BS).
+ */
+@ThreadSafe
+public class ENS implements INonDominatedSorter {
+    public enum SearchStrategy {
+        SEQUENTIAL,
+        BINARY
+    }
+
+    private final SearchStrategy strategy;
+
+    public ENS() {
+        this(SearchStrategy.BINARY);
+    }
+
+    public ENS(@Nonnull SearchStrategy strategy) {
+        this.strategy = Objects.requireNonNull(strategy);
+    }
+
+    @Override
+    public int[] performNds(IIndividual[] population) {
+        if (population == null || population.length == 0)
+            return new int[0];
+
+        Arrays.sort(population, AscLexSortComparator.getInstance());
+
+        final int n = population.length;
+        final int dim = population[0].getObjectives().length;
+        final double[] obj = ObjectiveMatrix.pack(population, new double[n * dim]);
+        final int[] ranks = new int[n];
+
+        int[][] fronts = new int[4][];
+        int[] frontSizes = new int[4];
+        int frontCount = 0;
+        for (int i = 0; i < n; ++i) {
+            final int rank;
+            if (strategy == SearchStrategy.SEQUENTIAL) {
+                int k = 0;
+                while (k < frontCount && dominatedByFront(obj, dim, fronts[k], frontSizes[k], i))
+                    ++k;
+                rank = k;
+            } else {
+                int lo = 0;
+                int hi = frontCount;
+                while (lo < hi) {
+                    final int mid = (lo + hi) >>> 1;
+                    if (dominatedByFront(obj, dim, fronts[mid], frontSizes[mid], i))
+                        lo = mid + 1;
+                    else
+                        hi = mid;
+                }
+                rank = lo;
+            }
+
+            if (rank == frontCount) {
+                if (frontCount == fronts.length) {
+                    fronts = Arrays.copyOf(fronts, frontCount * 2);
+                    frontSizes = Arrays.copyOf(frontSizes, frontCount * 2);
+                }
+                fronts[frontCount++] = new int[4];
+            }
+            if (frontSizes[rank] == fronts[rank].length)
+                fronts[rank] = Arrays.copyOf(fronts[rank], frontSizes[rank] * 2);
+            fronts[rank][frontSizes[rank]++] = i;
+            ranks[i] = rank;
+        }
+        return ranks;
+    }
+
+    /**
+     * Members of the front are checked starting from the last added one
+     */
+    private static boolean dominatedByFront(double[] obj, int dim, int[] front, int frontSize, int point) {
+        final int pointOffset = point * dim;
+        for (int i = frontSize - 1; i >= 0; --i) {
+            if (dominates(obj, front[i] * dim, pointOffset, dim) < 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ENS-" + (strategy == SearchStrategy.SEQUENTIAL ? "SS" : "BS");
+    }
+}
@@ -0,0 +1,85 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.PartialRanks;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import java.util.List;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+/**
+ * Non-dominated sorting algorithm. Implementations must be thread-safe.
+ */
+public interface INonDominatedSorter {
+    /**
+     * Sorts population lexicographically (input array will be modified!) and returns array of ranks
+     * (for the sorted population)
+     *
+     * @param population population
+     * @return ranks
+     */
+    int[] performNds(IIndividual[] population);
+
+    /**
+     * Sorts population lexicographically (input array will be modified!) and ranks only the first levels
+     * which contain at least {@code targetCount} points, e.g. the survivors of NSGA-II selection.
+     * <p>
+     * Default implementation ranks the whole population and cuts the result.
+     *
+     * @param population  population
+     * @param targetCount Number of points the exactly ranked levels should contain
+     * @return Ranks (for the sorted population) with the "cut" level, which needs tie-breaking
+     */
+    default PartialRanks performPartialNds(IIndividual[] population, int targetCount) {
+        return PartialRanks.cut(performNds(population), targetCount);
+    }
+
+    /**
+     * Add a set of already evaluated points of the same rank to the sorted population,
+     * if ALL POINTS IN POP HAVE THE SAME RANK.
+     * <p>
+     * Default implementation merges both lists and compares every member of {@code pop} with every addend.
+     *
+     * @param pop      Sorted population
+     * @param ranks    Ranks of the members of {@code pop}
+     * @param addends  Lexicographically sorted points to add to {@code pop}
+     * @param rankHint Pre-evaluated rank of {@code addends} based on domination
+     *                 relationships with the members of {@code pop}
+     * @return Updated population
+     */
+    default <T> RankedPopulation<IIndividual<T>> addRankedMembers(List<IIndividual<T>> pop,
+                                                                  int[] ranks,
+                                                                  List<IIndividual<T>> addends,
+                                                                  int rankHint) {
+        @SuppressWarnings("unchecked") final IIndividual<T>[] newPop = new IIndividual[pop.size() + addends.size()];
+        final int[] newRanks = new int[newPop.length];
+        final int dim = addends.get(0).getObjectives().length;
+
+        int iPop = 0;
+        int iAdd = 0;
+        for (int i = 0; i < newPop.length; ++i) {
+            if (iAdd == addends.size() ||
+                    iPop < pop.size() && lexCompare(pop.get(iPop).getObjectives(), addends.get(iAdd).getObjectives(), dim) <= 0) {
+                newPop[i] = pop.get(iPop);
+                newRanks[i] = ranks[iPop++];
+
+                if (newRanks[i] <= rankHint) {
+                    //Only the addends preceding this point in the lexicographical order may dominate it
+                    for (int j = 0; j < iAdd; ++j) {
+                        if (dominates(addends.get(j).getObjectives(), newPop[i].getObjectives(), dim) < 0) {
+                            newRanks[i] = rankHint + 1;
+                            break;
+                        }
+                    }
+                }
+            } else {
+                newPop[i] = addends.get(iAdd++);
+                newRanks[i] = rankHint;
+            }
+        }
+
+        return new RankedPopulation<>(newPop, newRanks);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.ifmo.nds.dcns.sorter;
 
 import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.PartialRanks;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.HashMap;
@@ -10,13 +11,21 @@ import java.util.Map;
 import static ru.ifmo.nds.util.Utils.dominates;
 
 /**
- * Can perform NDS only on a sorted population with one new point (or a contiguous set of points with the same rank)
+ * Sweeps of this class are valid only for a sorted population with one new point
+ * (or a contiguous set of points with the same rank), so a full sorting is delegated to {@link PrimitiveJFB}
  */
 @ThreadSafe
 public class IncrementalJFB extends JFB2014 {
+    private final JFB2014 fullSorter = new PrimitiveJFB();
+
     @Override
     public int[] performNds(IIndividual[] population) {
-        throw new UnsupportedOperationException("Can't perform non-incremental sorting");
+        return fullSorter.performNds(population);
+    }
+
+    @Override
+    public PartialRanks performPartialNds(IIndividual[] population, int targetCount) {
+        return fullSorter.performPartialNds(population, targetCount);
     }
 
     @Override
@@ -2,6 +2,8 @@ package ru.ifmo.nds.dcns.sorter;
 
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.ObjectiveMatrix;
+import ru.ifmo.nds.util.PartialRanks;
 import ru.ifmo.nds.util.median.QuickSelect;
 import ru.ifmo.nds.util.RankedPopulation;
 
@@ -28,7 +30,7 @@ import static ru.ifmo.nds.util.Utils.dominates;
  */
 @SuppressWarnings({"UnnecessaryReturnStatement", "Convert2streamapi"})
 @ThreadSafe
-public class JFB2014 { //todo: extract interface
+public class JFB2014 implements INonDominatedSorter {
     @SuppressWarnings("WeakerAccess")
     public static final String JFB_ENABLE_TRACE_PROPERTY = "ru.itmo.jfb.trace_to_stdout";
 
@@ -102,8 +104,8 @@ public class JFB2014 { //todo: extract interface
         }
 
         //ndHelperB(newPop, newRanks, dim - 1, lSet, hSet, 0);
-        ndHelperB(newPop, newRanks, dim - 1, Collections.singletonList(addendIndex), hSet, 0);
-        ndHelperA(newPop, newRanks, dim - 1, hSet, 0);
+        ndHelperB(newPop, newRanks, dim - 1, Collections.singletonList(addendIndex), hSet, Integer.MAX_VALUE, 0);
+        ndHelperA(newPop, newRanks, dim - 1, hSet, Integer.MAX_VALUE, 0);
 
         return new RankedPopulation<>(newPop, newRanks);
     }
@@ -115,6 +117,7 @@ public class JFB2014 { //todo: extract interface
      * @param population population
      * @return ranks
      */
+    @Override
     public int[] performNds(IIndividual[] population) {
         if (population == null || population.length == 0)
             return new int[0];
@@ -137,16 +140,60 @@ public class JFB2014 { //todo: extract interface
                     ranks[i] = ranks[i - 1] + 1;
             }
             return ranks;
+        } else if (LowDimensionalNds.supports(k)) {
+            LowDimensionalNds.rankSorted(ObjectiveMatrix.pack(population, new double[population.length * k]), population.length, k, ranks);
+            return ranks;
         } else {
             final List<Integer> workingSet = new ArrayList<>(population.length);
             for (int i = 0; i < population.length; ++i)
                 workingSet.add(i);
 
-            ndHelperA(population, ranks, k - 1, workingSet, 0);
+            ndHelperA(population, ranks, k - 1, workingSet, Integer.MAX_VALUE, 0);
             return ranks;
         }
     }
 
+    /**
+     * Ranks only the points which may belong to the levels up to some cap: a point is dropped from further
+     * processing as soon as its rank exceeds the cap, since ranks only grow, and the points of the lower levels
+     * are never dominated by it. The cap grows (at least twice, or to the number of levels extrapolated from the
+     * known ones) until the levels up to it cover {@code targetCount} points, so when the first levels are large,
+     * most of the population is never ranked exactly.
+     */
+    @Override
+    public PartialRanks performPartialNds(IIndividual[] population, int targetCount) {
+        if (population == null || population.length == 0)
+            return PartialRanks.cut(new int[0], targetCount);
+
+        final int k = population[0].getObjectives().length;
+        if (k <= 1 || LowDimensionalNds.supports(k) || targetCount >= population.length) {
+            return PartialRanks.cut(performNds(population), targetCount);
+        }
+
+        Arrays.sort(population, AscLexSortComparator.getInstance());
+        final List<Integer> workingSet = new ArrayList<>(population.length);
+        for (int i = 0; i < population.length; ++i)
+            workingSet.add(i);
+
+        int maxRank = 0;
+        while (true) {
+            final int[] ranks = new int[population.length];
+            ndHelperA(population, ranks, k - 1, workingSet, maxRank, 0);
+            int covered = 0;
+            for (int rank : ranks) {
+                if (rank <= maxRank) {
+                    ++covered;
+                }
+            }
+            if (covered >= targetCount || covered == population.length) {
+                return PartialRanks.cut(ranks, targetCount);
+            }
+            //Extrapolate the average size of the known levels, with a margin
+            final long expectedLevels = (long) targetCount * (maxRank + 1) * 5 / 4 / covered + 1;
+            maxRank = (int) Math.min(population.length, Math.max(2 * maxRank + 1, expectedLevels));
+        }
+    }
+
     /**
      * Add a set of already evaluated points of the same rank to the sorted population,
      * if ALL POINTS IN POP HAVE THE SAME RANK
@@ -158,6 +205,7 @@ public class JFB2014 { //todo: extract interface
      *                 relationships with the members of {@code pop}
      * @return Updated population
      */
+    @Override
     public <T> RankedPopulation<IIndividual<T>> addRankedMembers(List<IIndividual<T>> pop,
                                                           int[] ranks,
                                                           List<IIndividual<T>> addends,
@@ -196,7 +244,7 @@ public class JFB2014 { //todo: extract interface
             }
         }
 
-        ndHelperB(newPop, newRanks, dim - 1, lSet, hSet, 0);
+        ndHelperB(newPop, newRanks, dim - 1, lSet, hSet, Integer.MAX_VALUE, 0);
         //ndHelperA(newPop, newRanks, dim - 1, hSet, 0);
 
         return new RankedPopulation<>(newPop, newRanks);
@@ -210,12 +258,14 @@ public class JFB2014 { //todo: extract interface
      * @param ranks      ranks[i] is the rank of individual pop[i]
      * @param k          Maximum comparable coordinate index
      * @param workingSet Indices of the population members that should be analyzed during the current run. Must be sorted.
+     * @param maxRank    Points with greater ranks are not processed, their ranks remain greater than it
      * @param level      Recursion level (used for logging)
      */
     private void ndHelperA(IIndividual[] pop,
                            int[] ranks,
                            int k,
                            List<Integer> workingSet,
+                           int maxRank,
                            int level) {
         if (debugEnabled) {
             assert (pop.length == ranks.length);
@@ -227,6 +277,7 @@ public class JFB2014 { //todo: extract interface
             logToStdout(level, ("Ranks = " + Arrays.toString(ranks)));
         }
 
+        workingSet = withinRank(workingSet, ranks, maxRank);
         if (workingSet == null || workingSet.size() < 2) {
             return;
         } else if (workingSet.size() == 2) {
@@ -259,18 +310,18 @@ public class JFB2014 { //todo: extract interface
                         logToStdout(level, "Ranks: " + Arrays.toString(ranks));
                     }
 
-                    ndHelperA(pop, ranks, k, l, level + 1);
-                    ndHelperB(pop, ranks, k - 1, l, m, level + 1);
-                    ndHelperA(pop, ranks, k - 1, m, level + 1);
-                    ndHelperB(pop, ranks, k - 1, lm, h, level + 1);
-                    ndHelperA(pop, ranks, k, h, level + 1);
+                    ndHelperA(pop, ranks, k, l, maxRank, level + 1);
+                    ndHelperB(pop, ranks, k - 1, l, m, maxRank, level + 1);
+                    ndHelperA(pop, ranks, k - 1, m, maxRank, level + 1);
+                    ndHelperB(pop, ranks, k - 1, lm, h, maxRank, level + 1);
+                    ndHelperA(pop, ranks, k, h, maxRank, level + 1);
                     return;
                 } else {
                     sKPrev = popIndex[k];
                 }
             }
 
-            ndHelperA(pop, ranks, k - 1, workingSet, level + 1);
+            ndHelperA(pop, ranks, k - 1, workingSet, maxRank, level + 1);
         }
     }
 
@@ -345,6 +396,7 @@ public class JFB2014 { //todo: extract interface
      * @param k     Maximum comparable coordinate index
      * @param lSet  Lower set (its ranks are already calculated). Must be sorted.
      * @param hSet  Higher set (its ranks are to be updated). Must be sorted.
+     * @param maxRank Points with greater ranks are not processed, their ranks remain greater than it
      * @param level Recursion level (used for logging)
      *
      * @return whether at least one individual has changed its rank
@@ -354,6 +406,7 @@ public class JFB2014 { //todo: extract interface
                               int k,
                               List<Integer> lSet,
                               List<Integer> hSet,
+                              int maxRank,
                               int level) {
         assert !debugEnabled || (pop.length == ranks.length);
 
@@ -361,6 +414,8 @@ public class JFB2014 { //todo: extract interface
             logToStdout(level, ("NDHelperB. K = " + k + ", l = " + lSet + ", h = " + hSet));
         }
 
+        lSet = withinRank(lSet, ranks, maxRank);
+        hSet = withinRank(hSet, ranks, maxRank);
         if (lSet == null || lSet.isEmpty() || hSet == null || hSet.isEmpty()) {
             return false;
         } else if (lSet.size() == 1 || hSet.size() == 1) {
@@ -394,7 +449,7 @@ public class JFB2014 { //todo: extract interface
             }
 
             if (lMax <= hMin) {
-                return ndHelperB(pop, ranks, k - 1, lSet, hSet, level + 1);
+                return ndHelperB(pop, ranks, k - 1, lSet, hSet, maxRank, level + 1);
             } else if (lMin <= hMax) {
                 final double[] kth = new double[hSet.size() + lSet.size()];
                 for (int i = 0; i < lSet.size(); ++i)
@@ -414,11 +469,11 @@ public class JFB2014 { //todo: extract interface
                 final List<Integer> h2 = new ArrayList<>();
                 split(pop, k, median, hSet, l2, m2, h2);
 
-                boolean rankChanged = ndHelperB(pop, ranks, k, l1, l2, level + 1);
-                rankChanged |= ndHelperB(pop, ranks, k - 1, l1, m2, level + 1);
-                rankChanged |= ndHelperB(pop, ranks, k - 1, m1, m2, level + 1);
-                rankChanged |= ndHelperB(pop, ranks, k - 1, l1m1, h2, level + 1);
-                rankChanged |= ndHelperB(pop, ranks, k, h1, h2, level + 1);
+                boolean rankChanged = ndHelperB(pop, ranks, k, l1, l2, maxRank, level + 1);
+                rankChanged |= ndHelperB(pop, ranks, k - 1, l1, m2, maxRank, level + 1);
+                rankChanged |= ndHelperB(pop, ranks, k - 1, m1, m2, maxRank, level + 1);
+                rankChanged |= ndHelperB(pop, ranks, k - 1, l1m1, h2, maxRank, level + 1);
+                rankChanged |= ndHelperB(pop, ranks, k, h1, h2, maxRank, level + 1);
 
                 return rankChanged;
             }
@@ -517,6 +572,27 @@ public class JFB2014 { //todo: extract interface
         }
     }
 
+    /**
+     * @return Members of {@code set} with ranks not greater than {@code maxRank}, in the same order
+     */
+    private static List<Integer> withinRank(List<Integer> set, int[] ranks, int maxRank) {
+        if (set == null || maxRank == Integer.MAX_VALUE) {
+            return set;
+        }
+        List<Integer> rs = null;
+        for (int i = 0; i < set.size(); ++i) {
+            final int index = set.get(i);
+            if (ranks[index] > maxRank) {
+                if (rs == null) {
+                    rs = new ArrayList<>(set.subList(0, i));
+                }
+            } else if (rs != null) {
+                rs.add(index);
+            }
+        }
+        return rs == null ? set : rs;
+    }
+
     private List<Integer> sortedMerge(List<Integer> l1,
                                       List<Integer> l2) {
         final List<Integer> res = new ArrayList<>(l1.size() + l2.size());
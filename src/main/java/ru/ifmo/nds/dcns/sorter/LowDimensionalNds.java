@@ -0,0 +1,205 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+/**
+ * Dedicated non-dominated sorting for two and three objectives.
+ * <p>
+ * Points are processed in the lexicographical order, so every point which may dominate the current one
+ * is already assigned to a front. For two objectives each front is represented by its last point
+ * (the one with the smallest second objective), for three objectives - by a staircase of its projection
+ * onto the last two objectives. "Is dominated by the front" is monotone in the front index, so the front of
+ * each point is found by binary search.
+ */
+@ThreadSafe
+public final class LowDimensionalNds {
+    private LowDimensionalNds() {
+    }
+
+    /**
+     * @return true if {@link #rankSorted} may be used for this number of objectives
+     */
+    public static boolean supports(int dim) {
+        return dim == 2 || dim == 3;
+    }
+
+    /**
+     * Assign ranks to the lexicographically sorted points
+     *
+     * @param obj   Lexicographically sorted flat row-major objective matrix
+     * @param n     Number of points
+     * @param dim   Number of objectives, 2 or 3
+     * @param ranks Output, must be filled with zeros
+     */
+    public static void rankSorted(double[] obj, int n, int dim, int[] ranks) {
+        if (dim == 2) {
+            rankSorted2D(obj, n, ranks);
+        } else if (dim == 3) {
+            rankSorted3D(obj, n, ranks);
+        } else {
+            throw new IllegalArgumentException("Only 2 and 3 objectives are supported, got " + dim);
+        }
+    }
+
+    private static void rankSorted2D(double[] obj, int n, int[] ranks) {
+        //Last (lexicographically largest) point of each front, it has the smallest second objective in the front
+        final int[] tails = new int[n];
+        int frontCount = 0;
+        for (int i = 0; i < n; ++i) {
+            final double x = obj[2 * i];
+            final double y = obj[2 * i + 1];
+            int lo = 0;
+            int hi = frontCount;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                final int t = tails[mid];
+                final double ty = obj[2 * t + 1];
+                if (ty < y || ty == y && obj[2 * t] < x)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            tails[lo] = i;
+            ranks[i] = lo;
+            if (lo == frontCount)
+                ++frontCount;
+        }
+    }
+
+    private static void rankSorted3D(double[] obj, int n, int[] ranks) {
+        final Staircase[] fronts = new Staircase[n];
+        int frontCount = 0;
+        for (int i = 0; i < n; ++i) {
+            int lo = 0;
+            int hi = frontCount;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (fronts[mid].dominates(obj, i))
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            if (lo == frontCount)
+                fronts[frontCount++] = new Staircase();
+            fronts[lo].add(obj, i);
+            ranks[i] = lo;
+        }
+    }
+
+    /**
+     * Same contract as {@link INonDominatedSorter#addRankedMembers}, for two or three objectives.
+     * Takes O((|pop| + |addends|) log |addends|) time.
+     */
+    public static <T> RankedPopulation<IIndividual<T>> addRankedMembers(List<IIndividual<T>> pop,
+                                                                        int[] ranks,
+                                                                        List<IIndividual<T>> addends,
+                                                                        int rankHint) {
+        @SuppressWarnings("unchecked") final IIndividual<T>[] newPop = new IIndividual[pop.size() + addends.size()];
+        final int[] newRanks = new int[newPop.length];
+        final int dim = addends.get(0).getObjectives().length;
+        if (!supports(dim)) {
+            throw new IllegalArgumentException("Only 2 and 3 objectives are supported, got " + dim);
+        }
+
+        //The addends merged so far, the same representation as a front in rankSorted
+        final double[] addendObj = new double[addends.size() * dim];
+        final Staircase staircase = dim == 3 ? new Staircase() : null;
+        int tail = -1;
+
+        int iPop = 0;
+        int iAdd = 0;
+        for (int i = 0; i < newPop.length; ++i) {
+            if (iAdd == addends.size() ||
+                    iPop < pop.size() && lexCompare(pop.get(iPop).getObjectives(), addends.get(iAdd).getObjectives(), dim) <= 0) {
+                newPop[i] = pop.get(iPop);
+                newRanks[i] = ranks[iPop++];
+
+                if (newRanks[i] <= rankHint && iAdd > 0) {
+                    final double[] obj = newPop[i].getObjectives();
+                    final boolean dominated;
+                    if (dim == 2) {
+                        final double ty = addendObj[2 * tail + 1];
+                        dominated = ty < obj[1] || ty == obj[1] && addendObj[2 * tail] < obj[0];
+                    } else {
+                        dominated = staircase.dominates(obj, 0, addendObj);
+                    }
+                    if (dominated)
+                        newRanks[i] = rankHint + 1;
+                }
+            } else {
+                System.arraycopy(addends.get(iAdd).getObjectives(), 0, addendObj, iAdd * dim, dim);
+                if (dim == 2) {
+                    if (tail < 0 || addendObj[2 * iAdd + 1] < addendObj[2 * tail + 1])
+                        tail = iAdd;
+                } else {
+                    staircase.add(addendObj, iAdd);
+                }
+
+                newPop[i] = addends.get(iAdd++);
+                newRanks[i] = rankHint;
+            }
+        }
+
+        return new RankedPopulation<>(newPop, newRanks);
+    }
+
+    /**
+     * Projection of a set of mutually non-dominated three-dimensional points onto the last two objectives:
+     * the second objective strictly increases and the third one strictly decreases along the staircase.
+     * Points are added in the lexicographical order.
+     */
+    private static class Staircase {
+        //From the second objective to the point index
+        private final TreeMap<Double, Integer> steps = new TreeMap<>();
+
+        /**
+         * @return true if some point of the staircase dominates the {@code point}-th point of {@code obj},
+         * which is lexicographically not less than every point of the staircase
+         */
+        boolean dominates(double[] obj, int point) {
+            return dominates(obj, 3 * point, obj);
+        }
+
+        /**
+         * @param query      Objectives of the queried point start at {@code offset}
+         * @param stairsData Flat matrix the staircase indices refer to
+         */
+        boolean dominates(double[] query, int offset, double[] stairsData) {
+            final double y = query[offset + 1];
+            final double z = query[offset + 2];
+            final Map.Entry<Double, Integer> e = steps.floorEntry(y);
+            if (e == null)
+                return false;
+            final int q = e.getValue();
+            final double qz = stairsData[3 * q + 2];
+            if (qz != z)
+                return qz < z;
+            return stairsData[3 * q + 1] < y || stairsData[3 * q] < query[offset];
+        }
+
+        void add(double[] obj, int point) {
+            final double y = obj[3 * point + 1];
+            final double z = obj[3 * point + 2];
+            final Map.Entry<Double, Integer> floor = steps.floorEntry(y);
+            if (floor != null && obj[3 * floor.getValue() + 2] <= z) {
+                //Equal projection, the existing point is lexicographically not greater
+                return;
+            }
+
+            Map.Entry<Double, Integer> next = steps.ceilingEntry(y);
+            while (next != null && obj[3 * next.getValue() + 2] >= z) {
+                steps.remove(next.getKey());
+                next = steps.higherEntry(next.getKey());
+            }
+            steps.put(y, point);
+        }
+    }
+}
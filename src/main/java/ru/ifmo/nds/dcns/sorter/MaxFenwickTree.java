@@ -0,0 +1,54 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Fenwick tree over keys [0, capacity) which answers prefix maximum queries for non-negative values.
+ * Instead of being recreated, the tree is cleaned up by resetting exactly the keys that were updated,
+ * so it may be reused by many sweeps over small subsets of a large key space.
+ */
+@NotThreadSafe
+class MaxFenwickTree {
+    private static final int NONE = -1;
+
+    private int[] tree = new int[1];
+
+    void ensureCapacity(int capacity) {
+        if (tree.length < capacity + 1) {
+            tree = new int[capacity + 1];
+            Arrays.fill(tree, NONE);
+        }
+    }
+
+    /**
+     * Set the value of {@code key} to max(current value, {@code value})
+     */
+    void update(int key, int value) {
+        for (int i = key + 1; i < tree.length; i += i & -i) {
+            if (tree[i] < value)
+                tree[i] = value;
+        }
+    }
+
+    /**
+     * @return Maximum value over the keys less than {@code until}, or -1 if none of them was updated
+     */
+    int query(int until) {
+        int rs = NONE;
+        for (int i = until; i > 0; i -= i & -i) {
+            if (tree[i] > rs)
+                rs = tree[i];
+        }
+        return rs;
+    }
+
+    /**
+     * Forget all values written to {@code key}
+     */
+    void reset(int key) {
+        for (int i = key + 1; i < tree.length && tree[i] != NONE; i += i & -i) {
+            tree[i] = NONE;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join version of {@link PrimitiveJFB}. Produces exactly the same ranks.
+ * <p>
+ * Subproblems which update ranks of disjoint sets of points are run in parallel:
+ * <ul>
+ * <li>in ndHelperA, the pair ndHelperB(L, M) + ndHelperA(M) runs together with ndHelperB(L, H);</li>
+ * <li>in ndHelperB, the updates of the L, M and H parts of the higher set run together.</li>
+ * </ul>
+ * Ranks of the lower set are only read during these steps, but its index range is permuted by the recursion,
+ * so every forked task except one gets a private copy of the range it shares with its siblings.
+ * Subproblems smaller than the sequential cutoff are solved by the sequential algorithm.
+ */
+@ThreadSafe
+public class ParallelJFB extends PrimitiveJFB {
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 2048;
+
+    private final ForkJoinPool pool;
+    private final int sequentialCutoff;
+
+    public ParallelJFB() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    public ParallelJFB(int sequentialCutoff) {
+        this(ForkJoinPool.commonPool(), sequentialCutoff);
+    }
+
+    /**
+     * @param pool             Pool to run the sorting in
+     * @param sequentialCutoff Subproblems with less points (in both sets in total) are not split into parallel tasks
+     */
+    public ParallelJFB(@Nonnull ForkJoinPool pool, int sequentialCutoff) {
+        if (sequentialCutoff < 2) {
+            throw new IllegalArgumentException("Sequential cutoff should be at least 2, got " + sequentialCutoff);
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.sequentialCutoff = sequentialCutoff;
+    }
+
+    public int getSequentialCutoff() {
+        return sequentialCutoff;
+    }
+
+    @Override
+    public int[] performNds(IIndividual[] population) {
+        return pool.invoke(ForkJoinTask.adapt(() -> super.performNds(population)));
+    }
+
+    @Override
+    public int[] performNds(@Nonnull double[] objectives, int n, int dim) {
+        return pool.invoke(ForkJoinTask.adapt(() -> super.performNds(objectives, n, dim)));
+    }
+
+    /**
+     * A worker may run another sorting call while it waits for its subtasks, so the per-call data
+     * cannot live in a per-thread arena
+     */
+    @Override
+    Arena getCallArena(int n) {
+        final Arena arena = new Arena();
+        arena.ensureCapacity(n);
+        return arena;
+    }
+
+    @Override
+    void ndHelperARecursion(State state, int k, int[] set, int from, int lEnd, int mEnd, int until) {
+        if (until - from < sequentialCutoff) {
+            super.ndHelperARecursion(state, k, set, from, lEnd, mEnd, until);
+            return;
+        }
+
+        ndHelperA(state, k, set, from, lEnd);
+
+        final int[] lCopy = Arrays.copyOfRange(set, from, lEnd);
+        ForkJoinTask.invokeAll(
+                action(() -> {
+                    ndHelperB(state, k - 1, set, from, lEnd, set, lEnd, mEnd);
+                    ndHelperA(state, k - 1, set, lEnd, mEnd);
+                }),
+                action(() -> ndHelperB(state, k - 1, lCopy, 0, lCopy.length, set, mEnd, until))
+        );
+
+        ndHelperB(state, k - 1, set, lEnd, mEnd, set, mEnd, until);
+        merge(set, from, lEnd, mEnd);
+        ndHelperA(state, k, set, mEnd, until);
+        merge(set, from, mEnd, until);
+    }
+
+    @Override
+    void ndHelperBRecursion(State state, int k,
+                            int[] lSet, int lFrom, int lEnd1, int mEnd1, int lUntil,
+                            int[] hSet, int hFrom, int lEnd2, int mEnd2, int hUntil) {
+        if (lUntil - lFrom + hUntil - hFrom < sequentialCutoff) {
+            super.ndHelperBRecursion(state, k,
+                    lSet, lFrom, lEnd1, mEnd1, lUntil,
+                    hSet, hFrom, lEnd2, mEnd2, hUntil);
+            return;
+        }
+
+        final int[] lCopy = Arrays.copyOfRange(lSet, lFrom, lEnd1);
+        final int[] lmCopy = Arrays.copyOfRange(lSet, lFrom, mEnd1);
+        merge(lmCopy, 0, lEnd1 - lFrom, lmCopy.length);
+
+        ForkJoinTask.invokeAll(
+                action(() -> ndHelperB(state, k, lCopy, 0, lCopy.length, hSet, hFrom, lEnd2)),
+                action(() -> ndHelperB(state, k - 1, lmCopy, 0, lmCopy.length, hSet, lEnd2, mEnd2)),
+                action(() -> {
+                    merge(lSet, lFrom, lEnd1, mEnd1);
+                    ndHelperB(state, k - 1, lSet, lFrom, mEnd1, hSet, mEnd2, hUntil);
+                    ndHelperB(state, k, lSet, mEnd1, lUntil, hSet, mEnd2, hUntil);
+                })
+        );
+
+        merge(lSet, lFrom, mEnd1, lUntil);
+        merge(hSet, hFrom, lEnd2, mEnd2);
+        merge(hSet, hFrom, mEnd2, hUntil);
+    }
+
+    private static RecursiveAction action(Runnable runnable) {
+        return new RecursiveAction() {
+            @Override
+            protected void compute() {
+                runnable.run();
+            }
+        };
+    }
+}
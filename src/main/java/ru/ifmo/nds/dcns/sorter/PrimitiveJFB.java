@@ -0,0 +1,518 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.ObjectiveMatrix;
+import ru.ifmo.nds.util.median.QuickSelect;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+/**
+ * Version of {@link JFB2014} which performs the whole divide-and-conquer on int[] index buffers.
+ * <p>
+ * Each working set is a contiguous range of an index array. Splits are done in place (stable, via a scratch buffer)
+ * and every helper restores the sorted order of its ranges before returning, so the merged L+M set is obtained by
+ * a single in-place merge instead of creating new lists. Buffers are kept in a per-thread arena and reused between
+ * calls, so {@link #performNds(IIndividual[])} does not allocate anything proportional to the recursion size
+ * except the returned array of ranks.
+ * <p>
+ * The 2D base cases are array-only: the second objective is compressed to ranks once per call, and both sweeps
+ * use a prefix-maximum {@link MaxFenwickTree} instead of a tree set of wrapper objects.
+ * <p>
+ * Objectives are read from a flat row-major matrix. Individuals are packed into it once per call, or the matrix
+ * may be passed directly via {@link #performNds(double[], int, int)}.
+ */
+@ThreadSafe
+public class PrimitiveJFB extends JFB2014 {
+    private final ThreadLocal<Arena> arenas = ThreadLocal.withInitial(Arena::new);
+    private final QuickSelect quickSelect = new QuickSelect();
+
+    /**
+     * Reusable per-thread buffers
+     */
+    static class Arena {
+        int[] indices = new int[0];
+        int[] order = new int[0];
+        int[] buffer = new int[0];
+        int[] sortedRanks = new int[0];
+        int[] secondCoordKeys = new int[0];
+        double[] medianBuffer = new double[0];
+        double[] objectives = new double[0];
+        final MaxFenwickTree tree = new MaxFenwickTree();
+
+        void ensureCapacity(int n) {
+            if (indices.length < n) {
+                indices = new int[n];
+                order = new int[n];
+                buffer = new int[n];
+                sortedRanks = new int[n];
+                secondCoordKeys = new int[n];
+                medianBuffer = new double[n];
+            }
+            tree.ensureCapacity(n);
+        }
+
+        double[] objectives(int size) {
+            if (objectives.length < size) {
+                objectives = new double[size];
+            }
+            return objectives;
+        }
+    }
+
+    /**
+     * Data of a single sorting call, shared by all helpers
+     */
+    static class State {
+        /**
+         * Lexicographically sorted flat row-major objective matrix
+         */
+        final double[] obj;
+        final int n;
+        final int dim;
+        final int[] ranks;
+        /**
+         * Position of each point in the population sorted by the second objective (then by the first one).
+         * Points with equal first two objectives share the key.
+         */
+        final int[] secondCoordKeys;
+
+        State(double[] obj, int n, int dim, int[] ranks, int[] secondCoordKeys) {
+            this.obj = obj;
+            this.n = n;
+            this.dim = dim;
+            this.ranks = ranks;
+            this.secondCoordKeys = secondCoordKeys;
+        }
+
+        double get(int index, int k) {
+            return obj[index * dim + k];
+        }
+    }
+
+    Arena getArena(int n) {
+        final Arena arena = arenas.get();
+        arena.ensureCapacity(n);
+        return arena;
+    }
+
+    /**
+     * @return Buffers which hold the data of a whole sorting call. Unlike the scratch buffers of {@link #getArena},
+     * they are in use for the entire call, including the time the recursion waits for other threads.
+     */
+    Arena getCallArena(int n) {
+        return getArena(n);
+    }
+
+    @Override
+    public int[] performNds(IIndividual[] population) {
+        if (population == null || population.length == 0)
+            return new int[0];
+
+        Arrays.sort(population, AscLexSortComparator.getInstance());
+
+        final int n = population.length;
+        final int dim = population[0].getObjectives().length;
+        final Arena arena = getCallArena(n);
+        final double[] obj = ObjectiveMatrix.pack(population, arena.objectives(n * dim));
+
+        final int[] ranks = new int[n];
+        rankSorted(new State(obj, n, dim, ranks, arena.secondCoordKeys), arena);
+        return ranks;
+    }
+
+    /**
+     * Perform NDS over a flat row-major objective matrix. The matrix itself is not modified.
+     *
+     * @param objectives Objectives, row i occupies [i * {@code dim}, (i + 1) * {@code dim})
+     * @param n          Number of points
+     * @param dim        Number of objectives
+     * @return ranks[i] is the rank of the i-th row (in the original order)
+     */
+    public int[] performNds(@Nonnull double[] objectives, int n, int dim) {
+        if ((long) n * dim > objectives.length) {
+            throw new IllegalArgumentException("Matrix " + n + "x" + dim + " does not fit into " + objectives.length + " values");
+        }
+
+        final int[] ranks = new int[n];
+        if (n == 0)
+            return ranks;
+
+        final Arena arena = getCallArena(n);
+        final int[] order = arena.order;
+        for (int i = 0; i < n; ++i)
+            order[i] = i;
+        for (int width = 1; width < n; width *= 2) {
+            for (int from = 0; from + width < n; from += 2 * width) {
+                mergeLex(objectives, dim, order, from, from + width, Math.min(from + 2 * width, n));
+            }
+        }
+
+        final double[] obj = arena.objectives(n * dim);
+        for (int i = 0; i < n; ++i)
+            System.arraycopy(objectives, order[i] * dim, obj, i * dim, dim);
+
+        final int[] sortedRanks = arena.sortedRanks;
+        Arrays.fill(sortedRanks, 0, n, 0);
+        rankSorted(new State(obj, n, dim, sortedRanks, arena.secondCoordKeys), arena);
+
+        for (int i = 0; i < n; ++i)
+            ranks[order[i]] = sortedRanks[i];
+        return ranks;
+    }
+
+    /**
+     * @param matrix Packed objectives
+     * @return ranks[i] is the rank of the i-th row of the {@code matrix}
+     * @see #performNds(double[], int, int)
+     */
+    public int[] performNds(@Nonnull ObjectiveMatrix matrix) {
+        return performNds(matrix.getData(), matrix.size(), matrix.getDim());
+    }
+
+    /**
+     * Assign ranks to the lexicographically sorted points of {@code state}
+     */
+    private void rankSorted(State state, Arena arena) {
+        final int n = state.n;
+        final int[] ranks = state.ranks;
+        if (state.dim == 0) {
+            return;
+        } else if (state.dim == 1) {
+            for (int i = 1; i < n; ++i) {
+                if (state.obj[i] == state.obj[i - 1])
+                    ranks[i] = ranks[i - 1];
+                else
+                    ranks[i] = ranks[i - 1] + 1;
+            }
+        } else if (LowDimensionalNds.supports(state.dim)) {
+            LowDimensionalNds.rankSorted(state.obj, n, state.dim, ranks);
+        } else {
+            final int[] indices = arena.indices;
+            compressSecondCoordinate(state, indices);
+
+            for (int i = 0; i < n; ++i)
+                indices[i] = i;
+            ndHelperA(state, state.dim - 1, indices, 0, n);
+        }
+    }
+
+    /**
+     * Fill {@link State#secondCoordKeys}
+     *
+     * @param state   Sorting state with lexicographically sorted population
+     * @param indices Scratch array of at least population size
+     */
+    private void compressSecondCoordinate(State state, int[] indices) {
+        final int n = state.n;
+        for (int i = 0; i < n; ++i)
+            indices[i] = i;
+
+        //Stable sort by the second objective keeps the lexicographical order of the first one for equal values
+        for (int width = 1; width < n; width *= 2) {
+            for (int from = 0; from + width < n; from += 2 * width) {
+                mergeBySecondCoord(state, indices, from, from + width, Math.min(from + 2 * width, n));
+            }
+        }
+
+        final int[] keys = state.secondCoordKeys;
+        int key = 0;
+        keys[indices[0]] = 0;
+        for (int i = 1; i < n; ++i) {
+            final int prev = indices[i - 1];
+            final int curr = indices[i];
+            if (state.get(prev, 1) != state.get(curr, 1) || state.get(prev, 0) != state.get(curr, 0))
+                ++key;
+            keys[curr] = key;
+        }
+    }
+
+    private void mergeBySecondCoord(State state, int[] set, int from, int mid, int until) {
+        final int[] buffer = getArena(until - from).buffer;
+        final int leftSize = mid - from;
+        System.arraycopy(set, from, buffer, 0, leftSize);
+        int l = 0;
+        int r = mid;
+        int w = from;
+        while (l < leftSize && r < until) {
+            if (state.get(buffer[l], 1) <= state.get(set[r], 1))
+                set[w++] = buffer[l++];
+            else
+                set[w++] = set[r++];
+        }
+        System.arraycopy(buffer, l, set, w, leftSize - l);
+    }
+
+    private void mergeLex(double[] objectives, int dim, int[] set, int from, int mid, int until) {
+        final int[] buffer = getArena(until - from).buffer;
+        final int leftSize = mid - from;
+        System.arraycopy(set, from, buffer, 0, leftSize);
+        int l = 0;
+        int r = mid;
+        int w = from;
+        while (l < leftSize && r < until) {
+            if (lexCompare(objectives, buffer[l] * dim, set[r] * dim, dim) <= 0)
+                set[w++] = buffer[l++];
+            else
+                set[w++] = set[r++];
+        }
+        System.arraycopy(buffer, l, set, w, leftSize - l);
+    }
+
+    /**
+     * Assign ranks to the points of the working set basing on the first {@code k} + 1 coordinates.
+     *
+     * @param state Sorting state
+     * @param k     Maximum comparable coordinate index
+     * @param set   Index buffer. Its range [{@code from}, {@code until}) is the working set, must be sorted.
+     *              The range is permuted during the run, but is sorted again on exit.
+     */
+    void ndHelperA(State state, int k, int[] set, int from, int until) {
+        final int[] ranks = state.ranks;
+        final int size = until - from;
+        if (size < 2) {
+            return;
+        } else if (size == 2) {
+            final int l = set[from];
+            final int h = set[from + 1];
+            if (dominates(state.obj, l * state.dim, h * state.dim, k + 1) < 0)
+                ranks[h] = Math.max(ranks[h], ranks[l] + 1);
+        } else if (k == 1) {
+            sweepA(state, set, from, until);
+        } else if (allEqual(state, k, set, from, until)) {
+            ndHelperA(state, k - 1, set, from, until);
+        } else {
+            final double[] kth = getArena(size).medianBuffer;
+            for (int i = from; i < until; ++i)
+                kth[i - from] = state.get(set[i], k);
+            final double median = quickSelect.getMedian(kth, size);
+
+            final int lEnd = split(state, k, median, false, set, from, until);
+            final int mEnd = split(state, k, median, true, set, lEnd, until);
+
+            ndHelperARecursion(state, k, set, from, lEnd, mEnd, until);
+        }
+    }
+
+    /**
+     * Recursive step of {@link #ndHelperA}: the working set is already split into
+     * L = [{@code from}, {@code lEnd}), M = [{@code lEnd}, {@code mEnd}) and H = [{@code mEnd}, {@code until})
+     * by the median of the {@code k}-th objective. Restores the sorted order of the whole range.
+     */
+    void ndHelperARecursion(State state, int k, int[] set, int from, int lEnd, int mEnd, int until) {
+        ndHelperA(state, k, set, from, lEnd);
+        ndHelperB(state, k - 1, set, from, lEnd, set, lEnd, mEnd);
+        ndHelperA(state, k - 1, set, lEnd, mEnd);
+        merge(set, from, lEnd, mEnd);
+        ndHelperB(state, k - 1, set, from, mEnd, set, mEnd, until);
+        ndHelperA(state, k, set, mEnd, until);
+        merge(set, from, mEnd, until);
+    }
+
+    /**
+     * Adjust ranks of the points from the higher set basing on the ranks of the points from the lower set
+     * basing on the first {@code k} + 1 coordinates.
+     * Both ranges are permuted during the run, but are sorted again on exit.
+     *
+     * @param state Sorting state
+     * @param k     Maximum comparable coordinate index
+     * @param lSet  Index buffer of the lower set (its ranks are already calculated)
+     * @param hSet  Index buffer of the higher set (its ranks are to be updated)
+     */
+    void ndHelperB(State state, int k,
+                   int[] lSet, int lFrom, int lUntil,
+                   int[] hSet, int hFrom, int hUntil) {
+        final int[] ranks = state.ranks;
+        final int dim = state.dim;
+        final int lSize = lUntil - lFrom;
+        final int hSize = hUntil - hFrom;
+        if (lSize == 0 || hSize == 0) {
+            return;
+        } else if (lSize == 1 || hSize == 1) {
+            for (int hi = hFrom; hi < hUntil; ++hi) {
+                final int h = hSet[hi];
+                for (int li = lFrom; li < lUntil; ++li) {
+                    final int l = lSet[li];
+                    if (ranks[l] + 1 > ranks[h] && dominates(state.obj, l * dim, h * dim, dim) < 0)
+                        ranks[h] = ranks[l] + 1;
+                }
+            }
+        } else if (k == 1) {
+            sweepB(state, lSet, lFrom, lUntil, hSet, hFrom, hUntil);
+        } else {
+            double lMin = Double.POSITIVE_INFINITY;
+            double lMax = Double.NEGATIVE_INFINITY;
+            for (int i = lFrom; i < lUntil; ++i) {
+                final double v = state.get(lSet[i], k);
+                lMin = Math.min(v, lMin);
+                lMax = Math.max(v, lMax);
+            }
+
+            double hMin = Double.POSITIVE_INFINITY;
+            double hMax = Double.NEGATIVE_INFINITY;
+            for (int i = hFrom; i < hUntil; ++i) {
+                final double v = state.get(hSet[i], k);
+                hMin = Math.min(v, hMin);
+                hMax = Math.max(v, hMax);
+            }
+
+            if (lMax <= hMin) {
+                ndHelperB(state, k - 1, lSet, lFrom, lUntil, hSet, hFrom, hUntil);
+            } else if (lMin <= hMax) {
+                final double[] kth = getArena(lSize + hSize).medianBuffer;
+                for (int i = lFrom; i < lUntil; ++i)
+                    kth[i - lFrom] = state.get(lSet[i], k);
+                for (int i = hFrom; i < hUntil; ++i)
+                    kth[lSize + i - hFrom] = state.get(hSet[i], k);
+                final double median = quickSelect.getMedian(kth, lSize + hSize);
+
+                final int lEnd1 = split(state, k, median, false, lSet, lFrom, lUntil);
+                final int mEnd1 = split(state, k, median, true, lSet, lEnd1, lUntil);
+                final int lEnd2 = split(state, k, median, false, hSet, hFrom, hUntil);
+                final int mEnd2 = split(state, k, median, true, hSet, lEnd2, hUntil);
+
+                ndHelperBRecursion(state, k,
+                        lSet, lFrom, lEnd1, mEnd1, lUntil,
+                        hSet, hFrom, lEnd2, mEnd2, hUntil);
+            }
+        }
+    }
+
+    /**
+     * Recursive step of {@link #ndHelperB}: both sets are already split into L, M and H parts
+     * by the median of the {@code k}-th objective. Restores the sorted order of both sets.
+     */
+    void ndHelperBRecursion(State state, int k,
+                            int[] lSet, int lFrom, int lEnd1, int mEnd1, int lUntil,
+                            int[] hSet, int hFrom, int lEnd2, int mEnd2, int hUntil) {
+        ndHelperB(state, k, lSet, lFrom, lEnd1, hSet, hFrom, lEnd2);
+        ndHelperB(state, k - 1, lSet, lFrom, lEnd1, hSet, lEnd2, mEnd2);
+        ndHelperB(state, k - 1, lSet, lEnd1, mEnd1, hSet, lEnd2, mEnd2);
+        merge(lSet, lFrom, lEnd1, mEnd1);
+        ndHelperB(state, k - 1, lSet, lFrom, mEnd1, hSet, mEnd2, hUntil);
+        ndHelperB(state, k, lSet, mEnd1, lUntil, hSet, mEnd2, hUntil);
+
+        merge(lSet, lFrom, mEnd1, lUntil);
+        merge(hSet, hFrom, lEnd2, mEnd2);
+        merge(hSet, hFrom, mEnd2, hUntil);
+    }
+
+    /**
+     * Assign ranks using the first two coordinates.
+     * Points are added to a prefix-maximum Fenwick tree keyed by the compressed second coordinate,
+     * so each point costs O(log N) array operations and no allocations.
+     */
+    void sweepA(State state, int[] set, int from, int until) {
+        final int[] ranks = state.ranks;
+        final int[] keys = state.secondCoordKeys;
+        final MaxFenwickTree tree = getArena(state.n).tree;
+
+        for (int i = from; i < until; ++i) {
+            final int curr = set[i];
+            final int r = tree.query(keys[curr]);
+            if (r + 1 > ranks[curr])
+                ranks[curr] = r + 1;
+            tree.update(keys[curr], ranks[curr]);
+        }
+
+        for (int i = from; i < until; ++i) {
+            tree.reset(keys[set[i]]);
+        }
+    }
+
+    /**
+     * Adjust ranks of the points from the higher set basing on the ranks of the points from the lower set
+     * basing on the first two coordinates.
+     * Within the recursion every member of the lower set is not greater than any member of the higher set
+     * in the remaining coordinates, and is strictly less in at least one of them, so a lower point with the
+     * same first two coordinates dominates the higher one.
+     */
+    void sweepB(State state,
+                int[] lSet, int lFrom, int lUntil,
+                int[] hSet, int hFrom, int hUntil) {
+        final int[] ranks = state.ranks;
+        final int[] keys = state.secondCoordKeys;
+        final int dim = state.dim;
+        final MaxFenwickTree tree = getArena(state.n).tree;
+
+        int lIndex = lFrom;
+        for (int hi = hFrom; hi < hUntil; ++hi) {
+            final int h = hSet[hi];
+            while (lIndex < lUntil && lexCompare(state.obj, lSet[lIndex] * dim, h * dim, 2) <= 0) {
+                final int l = lSet[lIndex];
+                tree.update(keys[l], ranks[l]);
+                lIndex++;
+            }
+
+            final int r = tree.query(keys[h] + 1);
+            if (r + 1 > ranks[h])
+                ranks[h] = r + 1;
+        }
+
+        for (int i = lFrom; i < lIndex; ++i) {
+            tree.reset(keys[lSet[i]]);
+        }
+    }
+
+    /*
+     * Utility methods
+     */
+
+    private boolean allEqual(State state, int k, int[] set, int from, int until) {
+        final double first = state.get(set[from], k);
+        for (int i = from + 1; i < until; ++i) {
+            if (state.get(set[i], k) != first)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stable in-place partition of the range. Points having their {@code k}-th objective less than
+     * {@code medianValue} (or less or equal, if {@code inclusive}) are moved to the beginning of the range.
+     *
+     * @return Index of the first point of the second part
+     */
+    int split(State state, int k, double medianValue, boolean inclusive, int[] set, int from, int until) {
+        final int[] buffer = getArena(until - from).buffer;
+        int left = from;
+        int right = 0;
+        for (int i = from; i < until; ++i) {
+            final int index = set[i];
+            final double value = state.get(index, k);
+            if (value < medianValue || inclusive && value == medianValue)
+                set[left++] = index;
+            else
+                buffer[right++] = index;
+        }
+        System.arraycopy(buffer, 0, set, left, right);
+        return left;
+    }
+
+    /**
+     * Merge two adjacent sorted ranges [{@code from}, {@code mid}) and [{@code mid}, {@code until})
+     */
+    void merge(int[] set, int from, int mid, int until) {
+        if (from == mid || mid == until || set[mid - 1] < set[mid])
+            return;
+
+        final int[] buffer = getArena(until - from).buffer;
+        final int leftSize = mid - from;
+        System.arraycopy(set, from, buffer, 0, leftSize);
+        int l = 0;
+        int r = mid;
+        int w = from;
+        while (l < leftSize && r < until) {
+            if (buffer[l] <= set[r])
+                set[w++] = buffer[l++];
+            else
+                set[w++] = set[r++];
+        }
+        System.arraycopy(buffer, l, set, w, leftSize - l);
+    }
+}
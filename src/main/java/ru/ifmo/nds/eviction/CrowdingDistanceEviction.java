@@ -0,0 +1,68 @@
+package ru.ifmo.nds.eviction;
+
+import ru.ifmo.nds.IEvictionPolicy;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.INonDominationLevel;
+import ru.ifmo.nds.util.Utils;
+import ru.ifmo.nds.util.median.QuickSelect;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NSGA-II eviction: members with the smallest crowding distance go first, ties are broken in the lexicographical
+ * order. Several members are selected by one quickselect over the CD of the level, without recalculating it
+ * between the removals.
+ */
+@ThreadSafe
+public class CrowdingDistanceEviction implements IEvictionPolicy {
+    private final static CrowdingDistanceEviction instance = new CrowdingDistanceEviction();
+
+    private final QuickSelect quickSelect = new QuickSelect();
+
+    private CrowdingDistanceEviction() {
+    }
+
+    public static CrowdingDistanceEviction getInstance() {
+        return instance;
+    }
+
+    @Nonnull
+    @Override
+    public <T> IIndividual<T> selectWorst(@Nonnull INonDominationLevel<T> lastLevel) {
+        return Utils.getWorstCDIndividual(lastLevel);
+    }
+
+    @Nonnull
+    @Override
+    public <T> List<IIndividual<T>> selectWorst(@Nonnull INonDominationLevel<T> lastLevel, int count) {
+        final List<IIndividual<T>> members = lastLevel.getMembers();
+        final double[] cd = new double[members.size()];
+        int i = 0;
+        for (IIndividual<T> member : members) {
+            cd[i++] = member.getCrowdingDistance();
+        }
+        final double cdThreshold = quickSelect.getKthElement(cd, count - 1);
+
+        int belowThreshold = 0;
+        for (IIndividual<T> member : members) {
+            if (member.getCrowdingDistance() < cdThreshold) {
+                ++belowThreshold;
+            }
+        }
+        int atThreshold = count - belowThreshold;
+        final List<IIndividual<T>> rs = new ArrayList<>(count);
+        for (IIndividual<T> member : members) {
+            final double memberCd = member.getCrowdingDistance();
+            if (memberCd < cdThreshold) {
+                rs.add(member);
+            } else if (memberCd == cdThreshold && atThreshold > 0) {
+                rs.add(member);
+                --atThreshold;
+            }
+        }
+        return rs;
+    }
+}
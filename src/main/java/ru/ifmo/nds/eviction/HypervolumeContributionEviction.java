@@ -0,0 +1,355 @@
+package ru.ifmo.nds.eviction;
+
+import ru.ifmo.nds.IEvictionPolicy;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.INonDominationLevel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+/**
+ * SMS-EMOA eviction: members with the smallest exclusive hypervolume contribution go first. Several members are
+ * selected one by one, updating the contributions of the remaining members after every selection.
+ * <p>
+ * Contributions are exact for two and three objectives. A two-objective contribution is the product of the gaps to
+ * the lexicographical neighbours, so a selection updates two of them in O(1). A three-objective contribution is found
+ * by an O(N log N) sweep over the other members clipped to the box dominated by the member, and a selection
+ * recomputes only the members whose common box with the selected one is not dominated by a third member.
+ * Levels with more objectives are passed to the fallback policy.
+ * <p>
+ * The three-objective contributions of the members left after the last selection are cached, and the next selection
+ * compares the level with them. Only the contributions of the added members and of the members whose common box
+ * with an added or a dropped member is not dominated by an unchanged member are recomputed, so one insertion
+ * followed by one eviction recomputes a few contributions instead of all of them. If more than log(N) members
+ * have changed, all the contributions are recomputed.
+ * Members outside the box dominating the reference point contribute nothing.
+ */
+@ThreadSafe
+public class HypervolumeContributionEviction implements IEvictionPolicy {
+    @Nonnull
+    private final double[] referencePoint;
+
+    @Nonnull
+    private final IEvictionPolicy manyObjectivesPolicy;
+
+    private final AtomicReference<Contributions> lastContributions = new AtomicReference<>();
+
+    /**
+     * @param referencePoint Finite point dominated by all members which should be kept
+     */
+    @SuppressWarnings("WeakerAccess")
+    public HypervolumeContributionEviction(@Nonnull double[] referencePoint) {
+        this(referencePoint, new MonteCarloHypervolumeEviction(referencePoint));
+    }
+
+    /**
+     * @param manyObjectivesPolicy Policy for the levels with more than three objectives
+     */
+    @SuppressWarnings("WeakerAccess")
+    public HypervolumeContributionEviction(@Nonnull double[] referencePoint,
+                                           @Nonnull IEvictionPolicy manyObjectivesPolicy) {
+        this.referencePoint = referencePoint.clone();
+        this.manyObjectivesPolicy = manyObjectivesPolicy;
+    }
+
+    @Nonnull
+    @Override
+    public <T> List<IIndividual<T>> selectWorst(@Nonnull INonDominationLevel<T> lastLevel, int count) {
+        final List<IIndividual<T>> members = lastLevel.getMembers();
+        final int dim = members.get(0).getObjectives().length;
+        if (dim > 3) {
+            return manyObjectivesPolicy.selectWorst(lastLevel, count);
+        } else if (dim != referencePoint.length) {
+            throw new IllegalArgumentException("Reference point has " + referencePoint.length
+                    + " objectives, the level has " + dim);
+        } else if (dim < 2) {
+            return new ArrayList<>(members.subList(0, count));
+        }
+
+        final int n = members.size();
+        final double[][] points = new double[n][];
+        for (int i = 0; i < n; ++i) {
+            points[i] = members.get(i).getObjectives();
+        }
+        final boolean[] removed = new boolean[n];
+        final int[] prev = new int[n];
+        final int[] next = new int[n];
+        for (int i = 0; i < n; ++i) {
+            prev[i] = i - 1;
+            next[i] = i + 1 < n ? i + 1 : -1;
+        }
+
+        final double[] contributions = new double[n];
+        if (dim == 2) {
+            for (int i = 0; i < n; ++i) {
+                contributions[i] = contribution2D(points, i, prev[i], next[i]);
+            }
+        } else if (!reuseContributions(points, contributions)) {
+            for (int i = 0; i < n; ++i) {
+                contributions[i] = contribution3D(points, i, removed);
+            }
+        }
+
+        for (int c = 0; c < count; ++c) {
+            int worst = -1;
+            for (int i = 0; i < n; ++i) {
+                if (!removed[i] && (worst < 0 || contributions[i] < contributions[worst])) {
+                    worst = i;
+                }
+            }
+            removed[worst] = true;
+            if (prev[worst] >= 0) {
+                next[prev[worst]] = next[worst];
+            }
+            if (next[worst] >= 0) {
+                prev[next[worst]] = prev[worst];
+            }
+            if (dim == 2) {
+                final int p = prev[worst];
+                final int q = next[worst];
+                if (p >= 0) {
+                    contributions[p] = contribution2D(points, p, prev[p], next[p]);
+                }
+                if (q >= 0) {
+                    contributions[q] = contribution2D(points, q, prev[q], next[q]);
+                }
+            } else {
+                for (int i = 0; i < n; ++i) {
+                    if (!removed[i] && sharesExclusiveBox(points, i, worst, removed)) {
+                        contributions[i] = contribution3D(points, i, removed);
+                    }
+                }
+            }
+        }
+
+        final List<IIndividual<T>> rs = new ArrayList<>(count);
+        final double[][] remainingPoints = new double[n - count][];
+        final double[] remainingContributions = new double[n - count];
+        int r = 0;
+        for (int i = 0; i < n; ++i) {
+            if (removed[i]) {
+                rs.add(members.get(i));
+            } else {
+                remainingPoints[r] = points[i];
+                remainingContributions[r++] = contributions[i];
+            }
+        }
+        if (dim == 3) {
+            lastContributions.set(new Contributions(remainingPoints, remainingContributions));
+        }
+        return rs;
+    }
+
+    /**
+     * Fills the contributions of the lexicographically sorted three-objective points from the cached ones,
+     * recomputing those of the added points and of the points whose contributions the changes may affect
+     *
+     * @return false if the cached contributions cannot be reused
+     */
+    private boolean reuseContributions(@Nonnull double[][] points, @Nonnull double[] contributions) {
+        final Contributions cached = lastContributions.get();
+        if (cached == null || cached.points.length == 0) {
+            return false;
+        }
+        final int n = points.length;
+        final int maxChanged = 32 - Integer.numberOfLeadingZeros(n);
+        final boolean[] kept = new boolean[n];
+        final List<double[]> changed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while ((i < n || j < cached.points.length) && changed.size() <= maxChanged) {
+            final int cmp = i >= n ? 1 : j >= cached.points.length ? -1 : lexCompare(points[i], cached.points[j], 3);
+            if (cmp == 0) {
+                kept[i] = true;
+                contributions[i++] = cached.values[j++];
+            } else if (cmp < 0) {
+                changed.add(points[i++]);
+            } else {
+                changed.add(cached.points[j++]);
+            }
+        }
+        if (changed.size() > maxChanged) {
+            return false;
+        }
+
+        final boolean[] removed = new boolean[n];
+        for (i = 0; i < n; ++i) {
+            if (!kept[i] || affectedByChanges(points, i, kept, changed)) {
+                contributions[i] = contribution3D(points, i, removed);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #sharesExclusiveBox} for several changes: the contribution of {@code i} stays the same if its
+     * common box with every changed point lies outside the reference box or inside the box of a kept point
+     *
+     * @param kept    Whether a point was in the level when the contributions were cached
+     * @param changed Points added to the level or dropped from it since then
+     */
+    private boolean affectedByChanges(@Nonnull double[][] points, int i, @Nonnull boolean[] kept,
+                                      @Nonnull List<double[]> changed) {
+        for (double[] point : changed) {
+            final double[] corner = max(points[i], point);
+            if (!insideReferenceBox(corner)) {
+                continue;
+            }
+            boolean covered = false;
+            for (int j = 0; j < points.length && !covered; ++j) {
+                covered = j != i && kept[j] && weaklyDominates(points[j], corner);
+            }
+            if (!covered) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param prev Index of the previous remaining point in the lexicographical order, -1 if none
+     * @param next Index of the next remaining point in the lexicographical order, -1 if none
+     */
+    private double contribution2D(@Nonnull double[][] points, int i, int prev, int next) {
+        final double right = next < 0 ? referencePoint[0] : Math.min(points[next][0], referencePoint[0]);
+        final double top = prev < 0 ? referencePoint[1] : Math.min(points[prev][1], referencePoint[1]);
+        return Math.max(0, right - points[i][0]) * Math.max(0, top - points[i][1]);
+    }
+
+    private double contribution3D(@Nonnull double[][] points, int i, @Nonnull boolean[] removed) {
+        final double[] point = points[i];
+        if (!insideReferenceBox(point)) {
+            return 0;
+        }
+        final List<double[]> clipped = new ArrayList<>();
+        for (int j = 0; j < points.length; ++j) {
+            if (j != i && !removed[j]) {
+                final double[] corner = max(point, points[j]);
+                if (insideReferenceBox(corner)) {
+                    clipped.add(corner);
+                }
+            }
+        }
+        double box = 1;
+        for (int k = 0; k < 3; ++k) {
+            box *= referencePoint[k] - point[k];
+        }
+        return Math.max(0, box - hypervolume3D(clipped));
+    }
+
+    /**
+     * @return false if the box dominated by both points {@code i} and {@code removedIndex} is empty or lies inside
+     * the box of another remaining point, that is, if the removal cannot change the contribution of {@code i}
+     */
+    private boolean sharesExclusiveBox(@Nonnull double[][] points, int i, int removedIndex, @Nonnull boolean[] removed) {
+        final double[] corner = max(points[i], points[removedIndex]);
+        if (!insideReferenceBox(corner)) {
+            return false;
+        }
+        for (int j = 0; j < points.length; ++j) {
+            if (j != i && !removed[j] && weaklyDominates(points[j], corner)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sweep by the last objective, keeping the two-objective staircase of the passed points and its area
+     *
+     * @param points Points inside the reference box
+     */
+    private double hypervolume3D(@Nonnull List<double[]> points) {
+        points.sort(Comparator.comparingDouble(p -> p[2]));
+        final TreeMap<Double, Double> staircase = new TreeMap<>();
+        double area = 0;
+        double volume = 0;
+        for (int i = 0; i < points.size(); ++i) {
+            final double[] point = points.get(i);
+            area += addToStaircase(staircase, point[0], point[1]);
+            final double nextZ = i + 1 < points.size() ? points.get(i + 1)[2] : referencePoint[2];
+            volume += area * (nextZ - point[2]);
+        }
+        return volume;
+    }
+
+    /**
+     * @return Area added to the staircase by the point
+     */
+    private double addToStaircase(@Nonnull TreeMap<Double, Double> staircase, double x, double y) {
+        final Map.Entry<Double, Double> floor = staircase.floorEntry(x);
+        if (floor != null && floor.getValue() <= y) {
+            return 0;
+        }
+        final Map.Entry<Double, Double> lower = staircase.lowerEntry(x);
+        double top = lower == null ? referencePoint[1] : lower.getValue();
+        double currentX = x;
+        double added = 0;
+        final Iterator<Map.Entry<Double, Double>> tail = staircase.tailMap(x, true).entrySet().iterator();
+        while (tail.hasNext()) {
+            final Map.Entry<Double, Double> step = tail.next();
+            added += (step.getKey() - currentX) * (top - y);
+            currentX = step.getKey();
+            if (step.getValue() < y) {
+                top = y;
+                break;
+            }
+            top = step.getValue();
+            tail.remove();
+        }
+        added += (referencePoint[0] - currentX) * (top - y);
+        staircase.put(x, y);
+        return added;
+    }
+
+    private boolean insideReferenceBox(@Nonnull double[] point) {
+        for (int k = 0; k < point.length; ++k) {
+            if (point[k] >= referencePoint[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean weaklyDominates(@Nonnull double[] point, @Nonnull double[] other) {
+        for (int k = 0; k < point.length; ++k) {
+            if (point[k] > other[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private static double[] max(@Nonnull double[] a, @Nonnull double[] b) {
+        final double[] rs = new double[a.length];
+        for (int k = 0; k < a.length; ++k) {
+            rs[k] = Math.max(a[k], b[k]);
+        }
+        return rs;
+    }
+
+    @Immutable
+    private static class Contributions {
+        @Nonnull
+        private final double[][] points;
+
+        @Nonnull
+        private final double[] values;
+
+        private Contributions(@Nonnull double[][] points, @Nonnull double[] values) {
+            this.points = points;
+            this.values = values;
+        }
+    }
+}
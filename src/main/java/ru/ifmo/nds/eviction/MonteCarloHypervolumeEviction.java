@@ -0,0 +1,128 @@
+package ru.ifmo.nds.eviction;
+
+import ru.ifmo.nds.IEvictionPolicy;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.INonDominationLevel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * SMS-EMOA eviction for any number of objectives with the hypervolume contributions estimated by sampling
+ * the box between the ideal point of the level and the reference point: a sample counts towards the contribution
+ * of a member if this member is the only one dominating it.
+ * <p>
+ * Every sample keeps the number of remaining members dominating it and the XOR of their indices, so selecting
+ * a member updates the estimates of the others in O(samples * dim) without resampling.
+ * The same seed is used for every selection, so the result depends only on the level.
+ */
+@ThreadSafe
+public class MonteCarloHypervolumeEviction implements IEvictionPolicy {
+    private static final int DEFAULT_SAMPLES = 10000;
+    private static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+    @Nonnull
+    private final double[] referencePoint;
+
+    private final int samples;
+    private final long seed;
+
+    @SuppressWarnings("WeakerAccess")
+    public MonteCarloHypervolumeEviction(@Nonnull double[] referencePoint) {
+        this(referencePoint, DEFAULT_SAMPLES, DEFAULT_SEED);
+    }
+
+    /**
+     * @param referencePoint Finite point dominated by all members which should be kept
+     * @param samples        Number of sample points per selection
+     */
+    @SuppressWarnings("WeakerAccess")
+    public MonteCarloHypervolumeEviction(@Nonnull double[] referencePoint, int samples, long seed) {
+        this.referencePoint = referencePoint.clone();
+        this.samples = samples;
+        this.seed = seed;
+    }
+
+    @Nonnull
+    @Override
+    public <T> List<IIndividual<T>> selectWorst(@Nonnull INonDominationLevel<T> lastLevel, int count) {
+        final List<IIndividual<T>> members = lastLevel.getMembers();
+        final int n = members.size();
+        final int dim = referencePoint.length;
+        if (members.get(0).getObjectives().length != dim) {
+            throw new IllegalArgumentException("Reference point has " + dim
+                    + " objectives, the level has " + members.get(0).getObjectives().length);
+        }
+
+        final double[] ideal = referencePoint.clone();
+        for (IIndividual<T> member : members) {
+            final double[] objectives = member.getObjectives();
+            for (int k = 0; k < dim; ++k) {
+                ideal[k] = Math.min(ideal[k], objectives[k]);
+            }
+        }
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final double[] sample = new double[dim];
+        final double[][] samplePoints = new double[samples][];
+        final int[] dominators = new int[samples];
+        final int[] dominatorsXor = new int[samples];
+        final int[] contributions = new int[n];
+        for (int s = 0; s < samples; ++s) {
+            for (int k = 0; k < dim; ++k) {
+                sample[k] = ideal[k] + random.nextDouble() * (referencePoint[k] - ideal[k]);
+            }
+            for (int i = 0; i < n; ++i) {
+                if (weaklyDominates(members.get(i).getObjectives(), sample)) {
+                    ++dominators[s];
+                    dominatorsXor[s] ^= i;
+                }
+            }
+            if (dominators[s] == 1) {
+                ++contributions[dominatorsXor[s]];
+            }
+            samplePoints[s] = sample.clone();
+        }
+
+        final boolean[] removed = new boolean[n];
+        for (int c = 0; c < count; ++c) {
+            int worst = -1;
+            for (int i = 0; i < n; ++i) {
+                if (!removed[i] && (worst < 0 || contributions[i] < contributions[worst])) {
+                    worst = i;
+                }
+            }
+            removed[worst] = true;
+            final double[] objectives = members.get(worst).getObjectives();
+            for (int s = 0; s < samples; ++s) {
+                if (weaklyDominates(objectives, samplePoints[s])) {
+                    --dominators[s];
+                    dominatorsXor[s] ^= worst;
+                    if (dominators[s] == 1) {
+                        ++contributions[dominatorsXor[s]];
+                    }
+                }
+            }
+        }
+
+        final List<IIndividual<T>> rs = new ArrayList<>(count);
+        for (int i = 0; i < n; ++i) {
+            if (removed[i]) {
+                rs.add(members.get(i));
+            }
+        }
+        return rs;
+    }
+
+    private static boolean weaklyDominates(@Nonnull double[] point, @Nonnull double[] other) {
+        for (int k = 0; k < point.length; ++k) {
+            if (point[k] > other[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,238 @@
+package ru.ifmo.nds.eviction;
+
+import ru.ifmo.nds.IEvictionPolicy;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.INonDominationLevel;
+import ru.ifmo.nds.util.LevelBounds;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * NSGA-III niching for many-objective populations. The objectives of the last level are normalized by its bounds,
+ * every member is associated with the nearest reference direction by the perpendicular distance, and members are
+ * selected one by one from the most crowded niche, farthest from its direction first.
+ * <p>
+ * Only the last level takes part in the niche counts, so a selection costs O(N log N) for a level of N members
+ * once the associations are known. The associations are cached by the objective arrays of the members, which are
+ * shared by the individuals the levels create on updates, and are reused while the bounds of the level stay the same:
+ * only the members added to the level since the last selection are associated in O(directions * dim).
+ */
+@ThreadSafe
+public class ReferencePointEviction implements IEvictionPolicy {
+    @Nonnull
+    private final double[][] directions;
+
+    private final AtomicReference<Associations> lastAssociations = new AtomicReference<>();
+
+    /**
+     * Das and Dennis directions: all points of the unit simplex with coordinates divisible by 1 / {@code divisions}
+     */
+    @SuppressWarnings("WeakerAccess")
+    public ReferencePointEviction(int dim, int divisions) {
+        this(simplexLattice(dim, divisions, 1, 0));
+    }
+
+    /**
+     * Two-layered directions for many objectives: the boundary lattice with {@code outerDivisions} and the inner one
+     * with {@code innerDivisions}, shrunk by half towards the centre of the simplex
+     */
+    @SuppressWarnings("WeakerAccess")
+    public ReferencePointEviction(int dim, int outerDivisions, int innerDivisions) {
+        this(concat(simplexLattice(dim, outerDivisions, 1, 0),
+                simplexLattice(dim, innerDivisions, 0.5, 0.5 / dim)));
+    }
+
+    /**
+     * @param referencePoints Non-negative points with at least one positive coordinate, usually on the unit simplex
+     */
+    @SuppressWarnings("WeakerAccess")
+    public ReferencePointEviction(@Nonnull double[][] referencePoints) {
+        this.directions = new double[referencePoints.length][];
+        for (int r = 0; r < referencePoints.length; ++r) {
+            double norm = 0;
+            for (double v : referencePoints[r]) {
+                norm += v * v;
+            }
+            norm = Math.sqrt(norm);
+            directions[r] = new double[referencePoints[r].length];
+            for (int k = 0; k < referencePoints[r].length; ++k) {
+                directions[r][k] = referencePoints[r][k] / norm;
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public <T> List<IIndividual<T>> selectWorst(@Nonnull INonDominationLevel<T> lastLevel, int count) {
+        final List<IIndividual<T>> members = lastLevel.getMembers();
+        final int n = members.size();
+        final LevelBounds bounds = lastLevel.getBounds();
+        final double[] min = bounds.getMinCorner();
+        final double[] max = bounds.getMaxCorner();
+        if (min.length != directions[0].length) {
+            throw new IllegalArgumentException("Reference points have " + directions[0].length
+                    + " objectives, the level has " + min.length);
+        }
+
+        final Associations cached = lastAssociations.get();
+        final Map<double[], Association> reusable = cached != null
+                && Arrays.equals(cached.min, min) && Arrays.equals(cached.max, max) ? cached.byObjectives : null;
+        final Map<double[], Association> byObjectives = new IdentityHashMap<>(2 * n);
+        final Association[] associations = new Association[n];
+        for (int i = 0; i < n; ++i) {
+            final double[] objectives = members.get(i).getObjectives();
+            Association association = reusable == null ? null : reusable.get(objectives);
+            if (association == null) {
+                association = associate(objectives, min, max);
+            }
+            associations[i] = association;
+            byObjectives.put(objectives, association);
+        }
+        lastAssociations.set(new Associations(min, max, byObjectives));
+
+        //Members of every niche, farthest from the direction first
+        final int[] nicheSizes = new int[directions.length];
+        for (Association association : associations) {
+            ++nicheSizes[association.niche];
+        }
+        final int[][] niches = new int[directions.length][];
+        final List<Integer> occupied = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            final int niche = associations[i].niche;
+            if (niches[niche] == null) {
+                niches[niche] = new int[nicheSizes[niche]];
+                occupied.add(niche);
+            }
+            niches[niche][--nicheSizes[niche]] = i;
+        }
+        for (int niche : occupied) {
+            final Integer[] sorted = new Integer[niches[niche].length];
+            for (int j = 0; j < sorted.length; ++j) {
+                sorted[j] = niches[niche][j];
+            }
+            Arrays.sort(sorted, (a, b) -> Double.compare(associations[b].distance, associations[a].distance));
+            for (int j = 0; j < sorted.length; ++j) {
+                niches[niche][j] = sorted[j];
+            }
+        }
+
+        final int[] selectedFromNiche = new int[directions.length];
+        final boolean[] removed = new boolean[n];
+        for (int c = 0; c < count; ++c) {
+            int crowdest = -1;
+            for (int niche : occupied) {
+                if (crowdest < 0 || niches[niche].length - selectedFromNiche[niche]
+                        > niches[crowdest].length - selectedFromNiche[crowdest]) {
+                    crowdest = niche;
+                }
+            }
+            removed[niches[crowdest][selectedFromNiche[crowdest]++]] = true;
+        }
+
+        final List<IIndividual<T>> rs = new ArrayList<>(count);
+        for (int i = 0; i < n; ++i) {
+            if (removed[i]) {
+                rs.add(members.get(i));
+            }
+        }
+        return rs;
+    }
+
+    @Nonnull
+    private Association associate(@Nonnull double[] objectives, @Nonnull double[] min, @Nonnull double[] max) {
+        final double[] normalized = new double[objectives.length];
+        double squaredNorm = 0;
+        for (int k = 0; k < objectives.length; ++k) {
+            final double range = max[k] - min[k];
+            normalized[k] = range > 0 ? (objectives[k] - min[k]) / range : 0;
+            squaredNorm += normalized[k] * normalized[k];
+        }
+        int niche = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int r = 0; r < directions.length; ++r) {
+            double projection = 0;
+            for (int k = 0; k < normalized.length; ++k) {
+                projection += normalized[k] * directions[r][k];
+            }
+            final double distance = squaredNorm - projection * projection;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                niche = r;
+            }
+        }
+        return new Association(niche, Math.sqrt(Math.max(0, bestDistance)));
+    }
+
+    /**
+     * @return Points {@code scale * x + shift} for all non-negative {@code x} with coordinates divisible
+     * by 1 / {@code divisions} and the sum of 1
+     */
+    @Nonnull
+    private static double[][] simplexLattice(int dim, int divisions, double scale, double shift) {
+        final List<double[]> rs = new ArrayList<>();
+        fillLattice(rs, new int[dim], 0, divisions, divisions, scale, shift);
+        return rs.toArray(new double[rs.size()][]);
+    }
+
+    private static void fillLattice(@Nonnull List<double[]> rs, @Nonnull int[] point, int coordinate, int left,
+                                    int divisions, double scale, double shift) {
+        if (coordinate == point.length - 1) {
+            point[coordinate] = left;
+            final double[] p = new double[point.length];
+            for (int k = 0; k < point.length; ++k) {
+                p[k] = scale * point[k] / divisions + shift;
+            }
+            rs.add(p);
+        } else {
+            for (int v = 0; v <= left; ++v) {
+                point[coordinate] = v;
+                fillLattice(rs, point, coordinate + 1, left - v, divisions, scale, shift);
+            }
+        }
+    }
+
+    @Nonnull
+    private static double[][] concat(@Nonnull double[][] a, @Nonnull double[][] b) {
+        final double[][] rs = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, rs, a.length, b.length);
+        return rs;
+    }
+
+    @Immutable
+    private static class Association {
+        private final int niche;
+        private final double distance;
+
+        private Association(int niche, double distance) {
+            this.niche = niche;
+            this.distance = distance;
+        }
+    }
+
+    @Immutable
+    private static class Associations {
+        @Nonnull
+        private final double[] min;
+
+        @Nonnull
+        private final double[] max;
+
+        @Nonnull
+        private final Map<double[], Association> byObjectives;
+
+        private Associations(@Nonnull double[] min, @Nonnull double[] max,
+                             @Nonnull Map<double[], Association> byObjectives) {
+            this.min = min;
+            this.max = max;
+            this.byObjectives = byObjectives;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.INonDominationLevel;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static ru.ifmo.nds.util.Utils.sortIntoLevels;
+
+/**
+ * Batch of points being merged into the levels of a population, sorted into non-domination levels ("fronts") once.
+ * <p>
+ * Every point of a front is dominated by some point of the previous front, so it cannot be placed above the level
+ * next to the first one where the previous front has placed a point, and the first front bounds the rank of the whole
+ * batch. So the merge starts from {@link #firstRank} with the first front only, and every next front joins
+ * the candidates after the previous one has been placed somewhere (see {@link #next}). The fronts which have not
+ * joined before the last level are appended with the rest (see {@link #withUnreleased}).
+ */
+@NotThreadSafe
+public final class BatchFronts<T> {
+    @Nonnull
+    private final List<List<IIndividual<T>>> fronts;
+
+    private int released = 1;
+
+    /**
+     * Whether the candidates are what is left of the first front, so that they do not dominate each other
+     */
+    private boolean antichain = true;
+
+    /**
+     * @param batch Non-empty list of distinct lexicographically sorted points
+     */
+    public BatchFronts(@Nonnull List<IIndividual<T>> batch, @Nonnull INonDominatedSorter sorter) {
+        this.fronts = sortIntoLevels(batch, sorter);
+    }
+
+    /**
+     * @return Lexicographically sorted candidates for the level of {@link #firstRank}
+     */
+    @Nonnull
+    public List<IIndividual<T>> first() {
+        return fronts.get(0);
+    }
+
+    /**
+     * @return Whether every point of the first front, hence of the whole batch, is dominated by some member of the level
+     */
+    public boolean dominatedBy(@Nonnull INonDominationLevel<T> level) {
+        for (IIndividual<T> point : fronts.get(0)) {
+            if (!level.dominatedByAnyPointOfThisLayer(point)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The lowest rank at which a point of the batch can be placed
+     */
+    public int firstRank(@Nonnull List<? extends INonDominationLevel<T>> levels) {
+        int l = 0;
+        int r = levels.size() - 1;
+        int lastNonDominating = r + 1;
+        while (l <= r) {
+            final int test = (l + r) / 2;
+            if (!dominatedBy(levels.get(test))) {
+                lastNonDominating = test;
+                r = test - 1;
+            } else {
+                l = test + 1;
+            }
+        }
+        return lastNonDominating;
+    }
+
+    /**
+     * Does not change the state, so the merge may be retried
+     *
+     * @param candidates The ones returned by {@link #first} or {@link #next}
+     * @return See {@link JFBYNonDominationLevel#mergeCandidates}
+     */
+    @Nonnull
+    public INonDominationLevel.MemberAdditionResult<T, JFBYNonDominationLevel<T>> mergeInto(
+            @Nonnull JFBYNonDominationLevel<T> level,
+            @Nonnull List<IIndividual<T>> candidates) {
+        return antichain ? level.mergeAntichain(candidates) : level.mergeCandidates(candidates);
+    }
+
+    /**
+     * Called once the level has been merged with {@code candidates}
+     *
+     * @param rest Candidates which were not placed, and the evicted members, lexicographically sorted
+     * @return Candidates for the next level: {@code rest}, together with the next front if some point of the last
+     * joined one has been placed
+     */
+    @Nonnull
+    public List<IIndividual<T>> next(@Nonnull List<IIndividual<T>> candidates, @Nonnull List<IIndividual<T>> rest) {
+        final Set<IIndividual<T>> notPlaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        notPlaced.addAll(rest);
+        if (antichain && !notPlaced.containsAll(candidates)) {
+            antichain = false;
+        }
+        if (released == fronts.size() || notPlaced.containsAll(fronts.get(released - 1))) {
+            return rest;
+        }
+        return lexMerge(rest, fronts.get(released++));
+    }
+
+    /**
+     * Does not change the state
+     *
+     * @param rest Candidates left after the last level
+     * @return {@code rest} together with the fronts which have not joined the candidates, lexicographically sorted
+     */
+    @Nonnull
+    public List<IIndividual<T>> withUnreleased(@Nonnull List<IIndividual<T>> rest) {
+        if (released == fronts.size()) {
+            return rest;
+        }
+        final List<IIndividual<T>> rs = new ArrayList<>(rest);
+        for (int i = released; i < fronts.size(); ++i) {
+            rs.addAll(fronts.get(i));
+        }
+        rs.sort(AscLexSortComparator.getInstance());
+        return rs;
+    }
+
+    @Nonnull
+    private static <T> List<IIndividual<T>> lexMerge(@Nonnull List<IIndividual<T>> a,
+                                                     @Nonnull List<IIndividual<T>> b) {
+        final AscLexSortComparator comparator = AscLexSortComparator.getInstance();
+        final List<IIndividual<T>> rs = new ArrayList<>(a.size() + b.size());
+        int ai = 0;
+        int bi = 0;
+        while (ai < a.size() || bi < b.size()) {
+            if (bi >= b.size() || ai < a.size() && comparator.compare(a.get(ai), b.get(bi)) <= 0) {
+                rs.add(a.get(ai++));
+            } else {
+                rs.add(b.get(bi++));
+            }
+        }
+        return rs;
+    }
+}
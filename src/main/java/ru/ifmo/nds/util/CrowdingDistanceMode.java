@@ -0,0 +1,45 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+
+/**
+ * How non-domination levels maintain crowding distances of their members
+ */
+public enum CrowdingDistanceMode {
+    /**
+     * Every update recalculates CD of all members of the level and replaces all of them: O(N * dim) time and
+     * allocations per update, but the cheapest one for small levels.
+     */
+    FULL {
+        @Override
+        <T extends IIndividual<P>, P> SortedObjectives<T, P> empty(int dim) {
+            return FullSortedObjectives.newEmpty(dim);
+        }
+    },
+
+    /**
+     * Orders by every objective are kept in persistent balanced trees. An update recalculates CD only of the
+     * neighbours of added and removed members, unless the range of some objective changes.
+     * Allocates O(dim * log N) per changed member.
+     */
+    INCREMENTAL {
+        @Override
+        <T extends IIndividual<P>, P> SortedObjectives<T, P> empty(int dim) {
+            return IncrementalSortedObjectives.newEmpty(dim);
+        }
+    },
+
+    /**
+     * Updates only merge the lists of members. CD of all members is calculated on the first access to them
+     * after an update, so levels which are modified several times between the reads of CD do not allocate
+     * new individuals at all.
+     */
+    LAZY {
+        @Override
+        <T extends IIndividual<P>, P> SortedObjectives<T, P> empty(int dim) {
+            return LazySortedObjectives.newEmpty(dim);
+        }
+    };
+
+    abstract <T extends IIndividual<P>, P> SortedObjectives<T, P> empty(int dim);
+}
@@ -0,0 +1,280 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Persistent k-d tree over the members of a non-domination level, every subtree keeps the bounding box of its points.
+ * <p>
+ * Dominance queries skip the subtrees whose boxes cannot contain a dominating (dominated) point and accept
+ * the whole subtrees whose boxes are dominating (dominated) entirely, so they do not degrade to a full scan
+ * in high dimensions, where the first objective alone prunes almost nothing.
+ * <p>
+ * Updates copy the path to the changed leaf, so versions of a level share unchanged subtrees.
+ * A subtree which becomes too unbalanced is rebuilt.
+ */
+@Immutable
+public final class DominanceIndex<T> {
+    private static final int LEAF_SIZE = 16;
+
+    @Nullable
+    private final Node<T> root;
+
+    private DominanceIndex(@Nullable Node<T> root) {
+        this.root = root;
+    }
+
+    @Nonnull
+    public static <T> DominanceIndex<T> build(@Nonnull Collection<? extends IIndividual<T>> members) {
+        //noinspection unchecked
+        final IIndividual<T>[] points = members.toArray(new IIndividual[members.size()]);
+        return new DominanceIndex<>(points.length == 0 ? null : build(points, 0, points.length));
+    }
+
+    /**
+     * @param added   Points to add
+     * @param removed Points to remove, matched by their objectives
+     */
+    @Nonnull
+    public DominanceIndex<T> update(@Nonnull Collection<? extends IIndividual<T>> added,
+                                    @Nonnull Collection<? extends IIndividual<T>> removed) {
+        Node<T> newRoot = root;
+        for (IIndividual<T> point : removed) {
+            newRoot = remove(newRoot, point.getObjectives());
+        }
+        for (IIndividual<T> point : added) {
+            newRoot = insert(newRoot, point);
+        }
+        return newRoot == root ? this : new DominanceIndex<>(newRoot);
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * @return true if some point of the index dominates {@code point}
+     */
+    public boolean dominatedByAny(@Nonnull double[] point) {
+        return dominatedByAny(root, point);
+    }
+
+    /**
+     * @param rs Receives the points of the index dominated by {@code point}, in no particular order
+     */
+    public void collectDominated(@Nonnull double[] point, @Nonnull List<IIndividual<T>> rs) {
+        collectDominated(root, point, rs);
+    }
+
+    private static <T> boolean dominatedByAny(@Nullable Node<T> node, double[] point) {
+        if (node == null || !lessOrEqual(node.min, point)) {
+            return false;
+        }
+        if (lessOrEqual(node.max, point) && !Arrays.equals(node.max, point)) {
+            return true;
+        }
+        if (node instanceof Leaf) {
+            for (IIndividual<T> member : ((Leaf<T>) node).points) {
+                if (Utils.dominates(member.getObjectives(), point, point.length) < 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final Inner<T> inner = (Inner<T>) node;
+        return dominatedByAny(inner.left, point) || dominatedByAny(inner.right, point);
+    }
+
+    private static <T> void collectDominated(@Nullable Node<T> node, double[] point, List<IIndividual<T>> rs) {
+        if (node == null || !lessOrEqual(point, node.max)) {
+            return;
+        }
+        if (node instanceof Leaf) {
+            for (IIndividual<T> member : ((Leaf<T>) node).points) {
+                if (Utils.dominates(point, member.getObjectives(), point.length) < 0) {
+                    rs.add(member);
+                }
+            }
+        } else if (lessOrEqual(point, node.min) && !Arrays.equals(node.min, point)) {
+            collectAll(node, rs);
+        } else {
+            final Inner<T> inner = (Inner<T>) node;
+            collectDominated(inner.left, point, rs);
+            collectDominated(inner.right, point, rs);
+        }
+    }
+
+    private static <T> void collectAll(Node<T> node, List<IIndividual<T>> rs) {
+        if (node instanceof Leaf) {
+            rs.addAll(Arrays.asList(((Leaf<T>) node).points));
+        } else {
+            collectAll(((Inner<T>) node).left, rs);
+            collectAll(((Inner<T>) node).right, rs);
+        }
+    }
+
+    private static boolean lessOrEqual(double[] a, double[] b) {
+        for (int i = 0; i < a.length; ++i) {
+            if (a[i] > b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> Node<T> build(IIndividual<T>[] points, int from, int until) {
+        final double[] min = points[from].getObjectives().clone();
+        final double[] max = min.clone();
+        for (int i = from + 1; i < until; ++i) {
+            final double[] obj = points[i].getObjectives();
+            for (int j = 0; j < min.length; ++j) {
+                min[j] = Math.min(min[j], obj[j]);
+                max[j] = Math.max(max[j], obj[j]);
+            }
+        }
+
+        int splitDim = 0;
+        for (int j = 1; j < min.length; ++j) {
+            if (max[j] - min[j] > max[splitDim] - min[splitDim]) {
+                splitDim = j;
+            }
+        }
+        if (until - from <= LEAF_SIZE || max[splitDim] == min[splitDim]) {
+            return new Leaf<>(Arrays.copyOfRange(points, from, until), min, max);
+        }
+
+        final int d = splitDim;
+        Arrays.sort(points, from, until, Comparator.comparingDouble(p -> p.getObjectives()[d]));
+        double splitValue = points[(from + until) >>> 1].getObjectives()[d];
+        int mid = from;
+        while (points[mid].getObjectives()[d] < splitValue) {
+            ++mid;
+        }
+        if (mid == from) {
+            while (points[mid].getObjectives()[d] == splitValue) {
+                ++mid;
+            }
+            splitValue = points[mid].getObjectives()[d];
+        }
+        return new Inner<>(d, splitValue, build(points, from, mid), build(points, mid, until));
+    }
+
+    private static <T> Node<T> rebuild(Node<T> node) {
+        final List<IIndividual<T>> points = new ArrayList<>(node.size);
+        collectAll(node, points);
+        //noinspection unchecked
+        return build(points.toArray(new IIndividual[points.size()]), 0, points.size());
+    }
+
+    private static <T> Node<T> insert(@Nullable Node<T> node, IIndividual<T> point) {
+        if (node == null) {
+            final double[] obj = point.getObjectives();
+            //noinspection unchecked
+            return new Leaf<>(new IIndividual[]{point}, obj.clone(), obj.clone());
+        }
+        if (node instanceof Leaf) {
+            final IIndividual<T>[] old = ((Leaf<T>) node).points;
+            final IIndividual<T>[] points = Arrays.copyOf(old, old.length + 1);
+            points[old.length] = point;
+            return build(points, 0, points.length);
+        }
+        final Inner<T> inner = (Inner<T>) node;
+        final Inner<T> rs = point.getObjectives()[inner.splitDim] < inner.splitValue
+                ? new Inner<>(inner.splitDim, inner.splitValue, insert(inner.left, point), inner.right)
+                : new Inner<>(inner.splitDim, inner.splitValue, inner.left, insert(inner.right, point));
+        return rs.isBalanced() ? rs : rebuild(rs);
+    }
+
+    @Nullable
+    private static <T> Node<T> remove(@Nullable Node<T> node, double[] obj) {
+        if (node == null || !lessOrEqual(node.min, obj) || !lessOrEqual(obj, node.max)) {
+            return node;
+        }
+        if (node instanceof Leaf) {
+            final IIndividual<T>[] points = ((Leaf<T>) node).points;
+            for (int i = 0; i < points.length; ++i) {
+                if (Arrays.equals(points[i].getObjectives(), obj)) {
+                    if (points.length == 1) {
+                        return null;
+                    }
+                    final IIndividual<T>[] rest = Arrays.copyOf(points, points.length - 1);
+                    if (i < rest.length) {
+                        rest[i] = points[points.length - 1];
+                    }
+                    return build(rest, 0, rest.length);
+                }
+            }
+            return node;
+        }
+        final Inner<T> inner = (Inner<T>) node;
+        final boolean toLeft = obj[inner.splitDim] < inner.splitValue;
+        final Node<T> child = toLeft ? inner.left : inner.right;
+        final Node<T> newChild = remove(child, obj);
+        if (newChild == child) {
+            return node;
+        }
+        if (newChild == null) {
+            return toLeft ? inner.right : inner.left;
+        }
+        final Inner<T> rs = toLeft
+                ? new Inner<>(inner.splitDim, inner.splitValue, newChild, inner.right)
+                : new Inner<>(inner.splitDim, inner.splitValue, inner.left, newChild);
+        return rs.isBalanced() ? rs : rebuild(rs);
+    }
+
+    private static abstract class Node<T> {
+        final double[] min;
+        final double[] max;
+        final int size;
+
+        Node(double[] min, double[] max, int size) {
+            this.min = min;
+            this.max = max;
+            this.size = size;
+        }
+    }
+
+    private static final class Leaf<T> extends Node<T> {
+        final IIndividual<T>[] points;
+
+        Leaf(IIndividual<T>[] points, double[] min, double[] max) {
+            super(min, max, points.length);
+            this.points = points;
+        }
+    }
+
+    private static final class Inner<T> extends Node<T> {
+        final int splitDim;
+        final double splitValue;
+        final Node<T> left;
+        final Node<T> right;
+
+        Inner(int splitDim, double splitValue, Node<T> left, Node<T> right) {
+            super(union(left.min, right.min, true), union(left.max, right.max, false), left.size + right.size);
+            this.splitDim = splitDim;
+            this.splitValue = splitValue;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isBalanced() {
+            return size <= 2 * LEAF_SIZE || 4 * Math.max(left.size, right.size) <= 3 * size;
+        }
+
+        private static double[] union(double[] a, double[] b, boolean min) {
+            final double[] rs = new double[a.length];
+            for (int i = 0; i < rs.length; ++i) {
+                rs[i] = min ? Math.min(a[i], b[i]) : Math.max(a[i], b[i]);
+            }
+            return rs;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.ifmo.nds.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the "is the point dominated by any member of the level" checks made by non-domination levels.
+ * <p>
+ * Levels are immutable and shared between populations, so the counters are global. They are disabled by default
+ * to keep the checks free of shared writes, see {@link #setEnabled}.
+ * A check answered by {@link LevelBounds} saves at most the size of the level member comparisons;
+ * this upper bound is what {@link #getSavedComparisons()} reports.
+ */
+@ThreadSafe
+public final class DominanceStatistics {
+    private static volatile boolean enabled = false;
+
+    private static final LongAdder checks = new LongAdder();
+    private static final LongAdder prunedByMinCorner = new LongAdder();
+    private static final LongAdder prunedByMaxCorner = new LongAdder();
+    private static final LongAdder memberComparisons = new LongAdder();
+    private static final LongAdder searched = new LongAdder();
+    private static final LongAdder savedComparisons = new LongAdder();
+
+    private DominanceStatistics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        DominanceStatistics.enabled = enabled;
+    }
+
+    public static void prunedByMinCorner(int levelSize) {
+        if (enabled) {
+            checks.increment();
+            prunedByMinCorner.increment();
+            savedComparisons.add(levelSize);
+        }
+    }
+
+    public static void prunedByMaxCorner(int levelSize) {
+        if (enabled) {
+            checks.increment();
+            prunedByMaxCorner.increment();
+            savedComparisons.add(levelSize);
+        }
+    }
+
+    /**
+     * A check was answered by a linear scan of the members
+     */
+    public static void scanned(int comparisons) {
+        if (enabled) {
+            checks.increment();
+            memberComparisons.add(comparisons);
+        }
+    }
+
+    /**
+     * A check was answered by a search structure of the level (a staircase or a dominance index)
+     */
+    public static void searched() {
+        if (enabled) {
+            checks.increment();
+            searched.increment();
+        }
+    }
+
+    public static long getChecks() {
+        return checks.sum();
+    }
+
+    /**
+     * @return Number of checks answered "not dominated" by the min corner
+     */
+    public static long getPrunedByMinCorner() {
+        return prunedByMinCorner.sum();
+    }
+
+    /**
+     * @return Number of checks answered "dominated" by the max corner
+     */
+    public static long getPrunedByMaxCorner() {
+        return prunedByMaxCorner.sum();
+    }
+
+    /**
+     * @return Number of member comparisons made by the checks which were not pruned
+     */
+    public static long getMemberComparisons() {
+        return memberComparisons.sum();
+    }
+
+    /**
+     * @return Number of checks answered by the search structures of the levels
+     */
+    public static long getSearched() {
+        return searched.sum();
+    }
+
+    public static long getSavedComparisons() {
+        return savedComparisons.sum();
+    }
+
+    public static void reset() {
+        checks.reset();
+        prunedByMinCorner.reset();
+        prunedByMaxCorner.reset();
+        memberComparisons.reset();
+        searched.reset();
+        savedComparisons.reset();
+    }
+
+    @SuppressWarnings("StringBufferReplaceableByString")
+    public static String asString() {
+        final StringBuilder sb = new StringBuilder("DominanceStatistics{");
+        sb.append("checks=").append(getChecks());
+        sb.append(", prunedByMinCorner=").append(getPrunedByMinCorner());
+        sb.append(", prunedByMaxCorner=").append(getPrunedByMaxCorner());
+        sb.append(", memberComparisons=").append(getMemberComparisons());
+        sb.append(", searched=").append(getSearched());
+        sb.append(", savedComparisons=").append(getSavedComparisons());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,309 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+/**
+ * {@link CrowdingDistanceMode#INCREMENTAL}: for every objective the objective vectors of the members are kept in
+ * a persistent treap ordered by this objective (ties are broken lexicographically), so an update copies only
+ * O(log N) tree nodes per objective and per changed member.
+ * <p>
+ * CD of a member depends only on its neighbours in every objective and on the ranges of the objectives,
+ * so an update recalculates CD of the added members and of the neighbours of the added and removed ones.
+ * Only these members are replaced by the results of cdUpdater, others are reused. If the range of some objective
+ * changes, CD of every member changes, and all of them are recalculated.
+ * <p>
+ * The lexicographically sorted list of members is still copied by every update, but it is copying of references.
+ */
+@Immutable
+final class IncrementalSortedObjectives<T extends IIndividual<P>, P> extends SortedObjectives<T, P> {
+    private final int dim;
+
+    @Nonnull
+    private final List<T> lexSortedPop;
+
+    /**
+     * byObjective[o] is the root of the treap of the objective vectors ordered by the o-th objective
+     */
+    @Nonnull
+    private final Node[] byObjective;
+
+    private IncrementalSortedObjectives(int dim, @Nonnull List<T> lexSortedPop, @Nonnull Node[] byObjective) {
+        this.dim = dim;
+        this.lexSortedPop = lexSortedPop;
+        this.byObjective = byObjective;
+    }
+
+    static <T1 extends IIndividual<P1>, P1> IncrementalSortedObjectives<T1, P1> newEmpty(int dim) {
+        return new IncrementalSortedObjectives<>(dim, Collections.emptyList(), new Node[dim]);
+    }
+
+    //ToAdd and ToRemove are lex. sorted
+    @Override
+    public IncrementalSortedObjectives<T, P> update(@Nonnull final List<T> toAdd,
+                                                    @Nonnull final List<T> toRemove,
+                                                    @Nonnull final BiFunction<T, Double, T> cdUpdater) {
+        final List<T> newLexSortedPop = new ArrayList<>(lexSortedPop.size() + toAdd.size() - toRemove.size());
+        int iPop = 0;
+        int iAdd = 0;
+        int iRem = 0;
+        while (iPop < lexSortedPop.size() || iAdd < toAdd.size()) {
+            if (iPop < lexSortedPop.size() && iRem < toRemove.size() &&
+                    lexSortedPop.get(iPop).equals(toRemove.get(iRem))) {
+                ++iPop;
+                ++iRem;
+            } else if (iAdd < toAdd.size() && (iPop >= lexSortedPop.size() ||
+                    lexCompare(lexSortedPop.get(iPop).getObjectives(), toAdd.get(iAdd).getObjectives(), dim) > 0)) {
+                newLexSortedPop.add(toAdd.get(iAdd++));
+            } else {
+                newLexSortedPop.add(lexSortedPop.get(iPop++));
+            }
+        }
+
+        final Node[] newByObjective = byObjective.clone();
+        for (int o = 0; o < dim; ++o) {
+            for (T removed : toRemove) {
+                newByObjective[o] = remove(newByObjective[o], removed.getObjectives(), o, dim);
+            }
+            for (T added : toAdd) {
+                newByObjective[o] = insert(newByObjective[o], added.getObjectives(), ThreadLocalRandom.current().nextInt(), o, dim);
+            }
+        }
+
+        final double[] inverseDelta = new double[dim];
+        boolean rangeChanged = false;
+        for (int o = 0; o < dim; ++o) {
+            final Node first = first(newByObjective[o]);
+            final Node last = last(newByObjective[o]);
+            final Node oldFirst = first(byObjective[o]);
+            final Node oldLast = last(byObjective[o]);
+            if (first == null) {
+                rangeChanged = true;
+                continue;
+            }
+            inverseDelta[o] = 1 / (last.key[o] - first.key[o]);
+            if (oldFirst == null || oldFirst.key[o] != first.key[o] || oldLast.key[o] != last.key[o]) {
+                rangeChanged = true;
+            }
+        }
+
+        if (rangeChanged) {
+            for (int i = 0; i < newLexSortedPop.size(); ++i) {
+                final T member = newLexSortedPop.get(i);
+                newLexSortedPop.set(i, cdUpdater.apply(member, crowdingDistance(newByObjective, inverseDelta, member.getObjectives())));
+            }
+        } else {
+            final Set<double[]> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (T added : toAdd) {
+                changed.add(added.getObjectives());
+                addNeighbours(newByObjective, added.getObjectives(), changed);
+            }
+            for (T removed : toRemove) {
+                addNeighbours(newByObjective, removed.getObjectives(), changed);
+            }
+            for (double[] objectives : changed) {
+                final int i = lexIndexOf(newLexSortedPop, objectives);
+                newLexSortedPop.set(i, cdUpdater.apply(newLexSortedPop.get(i), crowdingDistance(newByObjective, inverseDelta, objectives)));
+            }
+        }
+
+        return new IncrementalSortedObjectives<>(dim, newLexSortedPop, newByObjective);
+    }
+
+    @Override
+    @Nonnull
+    public List<T> getLexSortedPop() {
+        return Collections.unmodifiableList(lexSortedPop);
+    }
+
+    @Override
+    @Nonnull
+    public CrowdingDistanceMode getMode() {
+        return CrowdingDistanceMode.INCREMENTAL;
+    }
+
+    /**
+     * The same sum as in {@link FullSortedObjectives}, in the same order of objectives
+     */
+    private double crowdingDistance(Node[] roots, double[] inverseDelta, double[] objectives) {
+        double cd = 0;
+        for (int o = 0; o < dim; ++o) {
+            final Node lower = lower(roots[o], objectives, o, dim);
+            final Node higher = higher(roots[o], objectives, o, dim);
+            if (lower == null || higher == null) {
+                cd = Double.POSITIVE_INFINITY;
+            } else {
+                cd += (higher.key[o] - lower.key[o]) * inverseDelta[o];
+            }
+        }
+        return cd;
+    }
+
+    private void addNeighbours(Node[] roots, double[] objectives, Set<double[]> changed) {
+        for (int o = 0; o < dim; ++o) {
+            final Node lower = lower(roots[o], objectives, o, dim);
+            if (lower != null) {
+                changed.add(lower.key);
+            }
+            final Node higher = higher(roots[o], objectives, o, dim);
+            if (higher != null) {
+                changed.add(higher.key);
+            }
+        }
+    }
+
+    private int lexIndexOf(List<T> pop, double[] objectives) {
+        int l = 0;
+        int r = pop.size() - 1;
+        while (l <= r) {
+            final int mid = (l + r) >>> 1;
+            final int cmp = lexCompare(pop.get(mid).getObjectives(), objectives, dim);
+            if (cmp < 0) {
+                l = mid + 1;
+            } else if (cmp > 0) {
+                r = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        throw new IllegalStateException("Member " + Arrays.toString(objectives) + " is not found");
+    }
+
+    /**
+     * Node of a persistent treap, never modified after construction
+     */
+    private static final class Node {
+        final double[] key;
+        final int priority;
+        final Node left;
+        final Node right;
+
+        Node(double[] key, int priority, Node left, Node right) {
+            this.key = key;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static int compare(double[] a, double[] b, int o, int dim) {
+        final int cmp = Double.compare(a[o], b[o]);
+        return cmp != 0 ? cmp : lexCompare(a, b, dim);
+    }
+
+    private static Node insert(@Nullable Node node, double[] key, int priority, int o, int dim) {
+        if (node == null) {
+            return new Node(key, priority, null, null);
+        }
+        if (priority > node.priority) {
+            final Node[] split = split(node, key, o, dim);
+            return new Node(key, priority, split[0], split[1]);
+        }
+        if (compare(key, node.key, o, dim) < 0) {
+            return new Node(node.key, node.priority, insert(node.left, key, priority, o, dim), node.right);
+        } else {
+            return new Node(node.key, node.priority, node.left, insert(node.right, key, priority, o, dim));
+        }
+    }
+
+    /**
+     * @return Trees with the keys less than {@code key} and not less than {@code key}
+     */
+    private static Node[] split(@Nullable Node node, double[] key, int o, int dim) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node.key, key, o, dim) < 0) {
+            final Node[] split = split(node.right, key, o, dim);
+            split[0] = new Node(node.key, node.priority, node.left, split[0]);
+            return split;
+        } else {
+            final Node[] split = split(node.left, key, o, dim);
+            split[1] = new Node(node.key, node.priority, split[1], node.right);
+            return split;
+        }
+    }
+
+    /**
+     * All keys of {@code a} are less than all keys of {@code b}
+     */
+    private static Node merge(@Nullable Node a, @Nullable Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            return new Node(a.key, a.priority, a.left, merge(a.right, b));
+        } else {
+            return new Node(b.key, b.priority, merge(a, b.left), b.right);
+        }
+    }
+
+    private static Node remove(@Nullable Node node, double[] key, int o, int dim) {
+        if (node == null) {
+            return null;
+        }
+        final int cmp = compare(key, node.key, o, dim);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        } else if (cmp < 0) {
+            return new Node(node.key, node.priority, remove(node.left, key, o, dim), node.right);
+        } else {
+            return new Node(node.key, node.priority, node.left, remove(node.right, key, o, dim));
+        }
+    }
+
+    @Nullable
+    private static Node lower(@Nullable Node node, double[] key, int o, int dim) {
+        Node rs = null;
+        while (node != null) {
+            if (compare(node.key, key, o, dim) < 0) {
+                rs = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rs;
+    }
+
+    @Nullable
+    private static Node higher(@Nullable Node node, double[] key, int o, int dim) {
+        Node rs = null;
+        while (node != null) {
+            if (compare(node.key, key, o, dim) > 0) {
+                rs = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return rs;
+    }
+
+    @Nullable
+    private static Node first(@Nullable Node node) {
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    @Nullable
+    private static Node last(@Nullable Node node) {
+        while (node != null && node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,137 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiFunction;
+
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+/**
+ * {@link CrowdingDistanceMode#LAZY}: an update only merges the lexicographically sorted lists of raw members
+ * and marks CD as dirty. CD of all members is calculated (as in {@link CrowdingDistanceMode#FULL}) on the first
+ * access to a member of {@link #getLexSortedPop()}, and is cached until the next update.
+ * <p>
+ * Members to remove are matched by their objectives, because raw members are not necessarily wrapped by cdUpdater.
+ * Concurrent first accesses may calculate CD more than once, but the results are equal.
+ */
+@ThreadSafe
+final class LazySortedObjectives<T extends IIndividual<P>, P> extends SortedObjectives<T, P> {
+    private final int dim;
+
+    @Nonnull
+    private final List<T> rawLexSortedPop;
+
+    @Nullable
+    private final BiFunction<T, Double, T> cdUpdater;
+
+    /**
+     * Null while CD is dirty
+     */
+    @Nullable
+    private volatile List<T> evaluated;
+
+    private LazySortedObjectives(int dim,
+                                 @Nonnull List<T> rawLexSortedPop,
+                                 @Nullable BiFunction<T, Double, T> cdUpdater) {
+        this.dim = dim;
+        this.rawLexSortedPop = Collections.unmodifiableList(rawLexSortedPop);
+        this.cdUpdater = cdUpdater;
+    }
+
+    static <T1 extends IIndividual<P1>, P1> LazySortedObjectives<T1, P1> newEmpty(int dim) {
+        return new LazySortedObjectives<>(dim, Collections.emptyList(), null);
+    }
+
+    //ToAdd and ToRemove are lex. sorted
+    @Override
+    public LazySortedObjectives<T, P> update(@Nonnull final List<T> toAdd,
+                                             @Nonnull final List<T> toRemove,
+                                             @Nonnull final BiFunction<T, Double, T> cdUpdater) {
+        final List<T> newLexSortedPop = new ArrayList<>(rawLexSortedPop.size() + toAdd.size() - toRemove.size());
+        int iPop = 0;
+        int iAdd = 0;
+        int iRem = 0;
+        while (iPop < rawLexSortedPop.size() || iAdd < toAdd.size()) {
+            if (iPop < rawLexSortedPop.size()) {
+                final double[] p = rawLexSortedPop.get(iPop).getObjectives();
+                while (iRem < toRemove.size() && lexCompare(toRemove.get(iRem).getObjectives(), p, dim) < 0) {
+                    ++iRem;
+                }
+                if (iRem < toRemove.size() && lexCompare(toRemove.get(iRem).getObjectives(), p, dim) == 0) {
+                    ++iPop;
+                    ++iRem;
+                    continue;
+                }
+            }
+            if (iAdd < toAdd.size() && (iPop >= rawLexSortedPop.size() ||
+                    lexCompare(rawLexSortedPop.get(iPop).getObjectives(), toAdd.get(iAdd).getObjectives(), dim) > 0)) {
+                newLexSortedPop.add(toAdd.get(iAdd++));
+            } else {
+                newLexSortedPop.add(rawLexSortedPop.get(iPop++));
+            }
+        }
+        return new LazySortedObjectives<>(dim, newLexSortedPop, cdUpdater);
+    }
+
+    /**
+     * @return View of the members with calculated CD. Its size is known without the calculation,
+     * access to any member triggers it.
+     */
+    @Override
+    @Nonnull
+    public List<T> getLexSortedPop() {
+        return new LazyList();
+    }
+
+    @Override
+    @Nonnull
+    public List<T> getRawLexSortedPop() {
+        return rawLexSortedPop;
+    }
+
+    @Override
+    @Nonnull
+    public CrowdingDistanceMode getMode() {
+        return CrowdingDistanceMode.LAZY;
+    }
+
+    boolean isDirty() {
+        return evaluated == null;
+    }
+
+    @Nonnull
+    private List<T> evaluate() {
+        List<T> rs = evaluated;
+        if (rs == null) {
+            if (rawLexSortedPop.isEmpty() || cdUpdater == null) {
+                rs = rawLexSortedPop;
+            } else {
+                rs = FullSortedObjectives.<T, P>newEmpty(dim)
+                        .update(rawLexSortedPop, Collections.emptyList(), cdUpdater)
+                        .getLexSortedPop();
+            }
+            evaluated = rs;
+        }
+        return rs;
+    }
+
+    private final class LazyList extends AbstractList<T> implements RandomAccess {
+        @Override
+        public T get(int index) {
+            return evaluate().get(index);
+        }
+
+        @Override
+        public int size() {
+            return rawLexSortedPop.size();
+        }
+    }
+}
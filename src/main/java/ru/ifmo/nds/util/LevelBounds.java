@@ -0,0 +1,133 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Component-wise minimum and maximum corners of the objectives of a non-empty non-domination level.
+ * <p>
+ * A point which is less than the min corner in some objective cannot be dominated by any member,
+ * and a point which is not less than the max corner in all objectives (and differs from it) is dominated
+ * by every member, so both cases are answered in O(dim) without scanning the members.
+ * {@link #update} keeps the corners exact, but corners wider than the actual ones keep both answers correct too.
+ */
+@Immutable
+public final class LevelBounds {
+    @Nonnull
+    private final double[] min;
+
+    @Nonnull
+    private final double[] max;
+
+    private LevelBounds(@Nonnull double[] min, @Nonnull double[] max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @param members Non-empty collection of points
+     */
+    @Nonnull
+    public static LevelBounds of(@Nonnull Collection<? extends IIndividual<?>> members) {
+        final double[] min = members.iterator().next().getObjectives().clone();
+        final double[] max = min.clone();
+        extend(min, max, members);
+        return new LevelBounds(min, max);
+    }
+
+    /**
+     * @param bounds  Bounds of the level before the modification, null if unknown
+     * @param added   Points added to the level
+     * @param removed Points removed from the level
+     * @return Bounds of the modified level, or null if they have to be recalculated from its members
+     * because a removed point lies on the boundary
+     */
+    @Nullable
+    public static LevelBounds update(@Nullable LevelBounds bounds,
+                                     @Nonnull Collection<? extends IIndividual<?>> added,
+                                     @Nonnull Collection<? extends IIndividual<?>> removed) {
+        if (bounds == null) {
+            return null;
+        }
+        for (IIndividual<?> individual : removed) {
+            final double[] obj = individual.getObjectives();
+            for (int i = 0; i < obj.length; ++i) {
+                if (obj[i] == bounds.min[i] || obj[i] == bounds.max[i]) {
+                    return null;
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return bounds;
+        }
+        final double[] min = bounds.min.clone();
+        final double[] max = bounds.max.clone();
+        extend(min, max, added);
+        return new LevelBounds(min, max);
+    }
+
+    private static void extend(double[] min, double[] max, Collection<? extends IIndividual<?>> points) {
+        for (IIndividual<?> point : points) {
+            final double[] obj = point.getObjectives();
+            for (int i = 0; i < min.length; ++i) {
+                if (obj[i] < min[i]) {
+                    min[i] = obj[i];
+                } else if (obj[i] > max[i]) {
+                    max[i] = obj[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if no member of the level can dominate {@code point}
+     */
+    public boolean cannotDominate(@Nonnull double[] point) {
+        for (int i = 0; i < min.length; ++i) {
+            if (point[i] < min[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every member of the level dominates {@code point}
+     */
+    public boolean mustDominate(@Nonnull double[] point) {
+        boolean greater = false;
+        for (int i = 0; i < max.length; ++i) {
+            if (point[i] < max[i]) {
+                return false;
+            } else if (point[i] > max[i]) {
+                greater = true;
+            }
+        }
+        return greater;
+    }
+
+    @Nonnull
+    public double[] getMinCorner() {
+        return min.clone();
+    }
+
+    @Nonnull
+    public double[] getMaxCorner() {
+        return max.clone();
+    }
+
+    @SuppressWarnings("StringBufferReplaceableByString")
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LevelBounds{");
+        sb.append("min=").append(Arrays.toString(min));
+        sb.append(", max=").append(Arrays.toString(max));
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,212 @@
+package ru.ifmo.nds.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent set of objective vectors compared by their bits (as {@link Arrays#equals(double[], double[])} does),
+ * used by the populations to detect duplicate points.
+ * <p>
+ * The set is split into lock-striped segments. Every segment is an open-addressing table of references to the
+ * added arrays (which are not copied, so they must not be modified) and their hashes, with linear probing and
+ * backward-shift deletion. There are no entry objects, so an element takes 8 to 16 bytes with compressed references,
+ * compared to about 40 bytes of a {@link java.util.concurrent.ConcurrentHashMap} entry. Lookups are optimistic reads
+ * which do not write to shared memory and retry under the read lock only if the segment was modified meanwhile.
+ */
+@ThreadSafe
+public final class ObjectiveHashSet {
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 8;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public ObjectiveHashSet() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param concurrencyLevel Expected number of concurrently modifying threads
+     */
+    @SuppressWarnings("WeakerAccess")
+    public ObjectiveHashSet(int concurrencyLevel) {
+        int count = 1;
+        while (count < concurrencyLevel) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; ++i) {
+            segments[i] = new Segment();
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * @return true if there was no equal vector in the set
+     */
+    public boolean add(@Nonnull double[] objectives) {
+        final int hash = hash(objectives);
+        return segmentFor(hash).add(objectives, hash);
+    }
+
+    public boolean contains(@Nonnull double[] objectives) {
+        final int hash = hash(objectives);
+        return segmentFor(hash).contains(objectives, hash);
+    }
+
+    /**
+     * @return true if an equal vector was removed
+     */
+    public boolean remove(@Nonnull double[] objectives) {
+        final int hash = hash(objectives);
+        return segmentFor(hash).remove(objectives, hash);
+    }
+
+    /**
+     * @return Number of elements, exact if there are no concurrent modifications
+     */
+    public int size() {
+        int rs = 0;
+        for (Segment segment : segments) {
+            rs += segment.size;
+        }
+        return rs;
+    }
+
+    @Nonnull
+    private Segment segmentFor(int hash) {
+        //Slots use the low bits of the hash
+        return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+    }
+
+    private static int hash(@Nonnull double[] objectives) {
+        long h = objectives.length;
+        for (double v : objectives) {
+            h = (h ^ Double.doubleToLongBits(v)) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectiveHashSet{size=" + size() + '}';
+    }
+
+    private static final class Table {
+        private final double[][] keys;
+        private final int[] hashes;
+
+        private Table(int capacity) {
+            this.keys = new double[capacity][];
+            this.hashes = new int[capacity];
+        }
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        private volatile int size = 0;
+
+        boolean contains(@Nonnull double[] objectives, int hash) {
+            final long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                final boolean rs = find(table, objectives, hash) >= 0;
+                if (lock.validate(stamp)) {
+                    return rs;
+                }
+            }
+            final long readStamp = lock.readLock();
+            try {
+                return find(table, objectives, hash) >= 0;
+            } finally {
+                lock.unlockRead(readStamp);
+            }
+        }
+
+        boolean add(@Nonnull double[] objectives, int hash) {
+            final long stamp = lock.writeLock();
+            try {
+                if (find(table, objectives, hash) >= 0) {
+                    return false;
+                }
+                if (2 * (size + 1) > table.keys.length) {
+                    resize();
+                }
+                insert(table, objectives, hash);
+                ++size;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(@Nonnull double[] objectives, int hash) {
+            final long stamp = lock.writeLock();
+            try {
+                final Table t = table;
+                int slot = find(t, objectives, hash);
+                if (slot < 0) {
+                    return false;
+                }
+                final int mask = t.keys.length - 1;
+                for (int next = (slot + 1) & mask; t.keys[next] != null; next = (next + 1) & mask) {
+                    final int home = t.hashes[next] & mask;
+                    final boolean movable = slot <= next ? home <= slot || home > next : home <= slot && home > next;
+                    if (movable) {
+                        t.keys[slot] = t.keys[next];
+                        t.hashes[slot] = t.hashes[next];
+                        slot = next;
+                    }
+                }
+                t.keys[slot] = null;
+                --size;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void resize() {
+            final Table old = table;
+            final Table t = new Table(2 * old.keys.length);
+            for (int i = 0; i < old.keys.length; ++i) {
+                if (old.keys[i] != null) {
+                    insert(t, old.keys[i], old.hashes[i]);
+                }
+            }
+            table = t;
+        }
+
+        private static void insert(@Nonnull Table t, @Nonnull double[] objectives, int hash) {
+            final int mask = t.keys.length - 1;
+            int slot = hash & mask;
+            while (t.keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            t.keys[slot] = objectives;
+            t.hashes[slot] = hash;
+        }
+
+        /**
+         * Safe under optimistic reads: the probe is bounded by the capacity, and torn reads are
+         * discarded by the validation of the stamp
+         */
+        private static int find(@Nonnull Table t, @Nonnull double[] objectives, int hash) {
+            final int mask = t.keys.length - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask; ++probes) {
+                final double[] key = t.keys[slot];
+                if (key == null) {
+                    return -1;
+                }
+                if (t.hashes[slot] == hash && Arrays.equals(key, objectives)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.ifmo.nds.util;
+
+import ru.ifmo.nds.IIndividual;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Structure-of-arrays representation of a population: objectives of all individuals packed into
+ * a single row-major double[] (row i occupies [i * dim, (i + 1) * dim)).
+ */
+@NotThreadSafe
+public class ObjectiveMatrix {
+    private final double[] data;
+    private final int size;
+    private final int dim;
+
+    public ObjectiveMatrix(@Nonnull double[] data, int size, int dim) {
+        if (size < 0 || dim < 0 || (long) size * dim > data.length) {
+            throw new IllegalArgumentException("Matrix " + size + "x" + dim + " does not fit into " + data.length + " values");
+        }
+        this.data = data;
+        this.size = size;
+        this.dim = dim;
+    }
+
+    /**
+     * Pack objectives of the population. The order of the rows is the order of {@code population}.
+     *
+     * @param population Population, all individuals must have the same number of objectives
+     * @return Packed objectives
+     */
+    public static ObjectiveMatrix pack(@Nonnull IIndividual[] population) {
+        final int dim = population.length == 0 ? 0 : population[0].getObjectives().length;
+        return new ObjectiveMatrix(pack(population, new double[population.length * dim]), population.length, dim);
+    }
+
+    /**
+     * Pack objectives of the population into an existing buffer
+     *
+     * @param population Population, all individuals must have the same number of objectives
+     * @param target     Buffer of at least (population size * number of objectives) values
+     * @return {@code target}
+     */
+    public static double[] pack(@Nonnull IIndividual[] population, @Nonnull double[] target) {
+        int offset = 0;
+        for (IIndividual individual : population) {
+            final double[] obj = individual.getObjectives();
+            System.arraycopy(obj, 0, target, offset, obj.length);
+            offset += obj.length;
+        }
+        return target;
+    }
+
+    /**
+     * @return Flat row-major objective values. Not a copy.
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDim() {
+        return dim;
+    }
+
+    public double get(int row, int objective) {
+        return data[row * dim + objective];
+    }
+}
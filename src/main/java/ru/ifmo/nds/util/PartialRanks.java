@@ -0,0 +1,66 @@
+package ru.ifmo.nds.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Ranks of the lexicographically sorted population, exact for the first levels only.
+ * The levels up to {@link #getCutLevel()} contain at least the requested number of points,
+ * all the other points have rank {@code cutLevel + 1}.
+ */
+public class PartialRanks {
+    private final int[] ranks;
+    private final int cutLevel;
+
+    public PartialRanks(@Nonnull int[] ranks, int cutLevel) {
+        this.ranks = ranks;
+        this.cutLevel = cutLevel;
+    }
+
+    /**
+     * @param ranks       Ranks, exact up to the cut level at least, greater than it for the other points.
+     *                    Modified in place.
+     * @param targetCount Number of points which should be covered by the first levels
+     * @return Ranks cut at the first level which covers {@code targetCount} points
+     * (or at the last level if there are not enough points)
+     */
+    @Nonnull
+    public static PartialRanks cut(@Nonnull int[] ranks, int targetCount) {
+        final int[] counts = new int[ranks.length + 1];
+        for (int rank : ranks) {
+            ++counts[Math.min(rank, ranks.length)];
+        }
+        int cutLevel = -1;
+        int covered = 0;
+        while (covered < Math.min(targetCount, ranks.length)) {
+            covered += counts[++cutLevel];
+        }
+        for (int i = 0; i < ranks.length; ++i) {
+            ranks[i] = Math.min(ranks[i], cutLevel + 1);
+        }
+        return new PartialRanks(ranks, cutLevel);
+    }
+
+    public int[] getRanks() {
+        return ranks;
+    }
+
+    /**
+     * @return The last exactly ranked level, -1 for an empty population
+     */
+    public int getCutLevel() {
+        return cutLevel;
+    }
+
+    /**
+     * @return Number of points in the levels up to the cut level
+     */
+    public int getCoveredCount() {
+        int rs = 0;
+        for (int rank : ranks) {
+            if (rank <= cutLevel) {
+                ++rs;
+            }
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.ifmo.nds.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable random-access list. Modifications return a new vector which shares the unchanged part with this one.
+ * <p>
+ * Elements are stored in the leaves of a 32-ary trie, so {@link #get}, {@link #set}, {@link #append} and
+ * {@link #removeLast} take O(log<sub>32</sub> n) time, and a modification copies only the path to the changed leaf.
+ */
+@Immutable
+public final class PersistentVector<E> implements Iterable<E> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[WIDTH]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public E get(int index) {
+        checkIndex(index);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        //noinspection unchecked
+        return (E) node[index & MASK];
+    }
+
+    /**
+     * @return Vector with the {@code index}-th element replaced
+     */
+    public PersistentVector<E> set(int index, E element) {
+        checkIndex(index);
+        return new PersistentVector<>(size, shift, assoc(root, shift, index, element));
+    }
+
+    /**
+     * @return Vector with the element added to the end
+     */
+    public PersistentVector<E> append(E element) {
+        if (size == 1 << (shift + BITS)) {
+            final Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            return new PersistentVector<>(size + 1, shift + BITS, assoc(newRoot, shift + BITS, size, element));
+        }
+        return new PersistentVector<>(size + 1, shift, assoc(root, shift, size, element));
+    }
+
+    /**
+     * @return Vector without the last element
+     */
+    public PersistentVector<E> removeLast() {
+        if (size == 0) {
+            throw new IllegalStateException("Vector is empty");
+        }
+        if (size == 1) {
+            return empty();
+        }
+        final int newSize = size - 1;
+        final Object[] newRoot = dissoc(root, shift, newSize);
+        if (shift > 0 && newSize <= 1 << shift) {
+            return new PersistentVector<>(newSize, shift - BITS, (Object[]) newRoot[0]);
+        }
+        return new PersistentVector<>(newSize, shift, newRoot);
+    }
+
+    /**
+     * @return The last element
+     */
+    public E last() {
+        if (size == 0) {
+            throw new NoSuchElementException("Vector is empty");
+        }
+        return get(size - 1);
+    }
+
+    @Nonnull
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public E next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    /**
+     * Path copy: {@code node} with the {@code index}-th element set, missing nodes are created
+     */
+    private static Object[] assoc(Object[] node, int level, int index, Object element) {
+        final Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            final int child = (index >>> level) & MASK;
+            copy[child] = assoc((Object[]) copy[child], level - BITS, index, element);
+        }
+        return copy;
+    }
+
+    /**
+     * Path copy: {@code node} without the {@code index}-th element, which is the last one.
+     * Subtrees which become empty are dropped.
+     */
+    private static Object[] dissoc(Object[] node, int level, int index) {
+        final Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = null;
+        } else {
+            final int child = (index >>> level) & MASK;
+            if ((index & ((1 << level) - 1)) == 0) {
+                copy[child] = null;
+            } else {
+                copy[child] = dissoc((Object[]) copy[child], level - BITS, index);
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+}
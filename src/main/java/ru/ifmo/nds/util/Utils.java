@@ -3,11 +3,18 @@ package ru.ifmo.nds.util;
 import ru.ifmo.nds.IIndividual;
 import ru.ifmo.nds.INonDominationLevel;
 import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
-import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.dcns.sorter.INonDominatedSorter;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class Utils {
     /**
@@ -72,16 +79,132 @@ public class Utils {
         return 0;
     }
 
+    /**
+     * Check the domination relation over the first K objectives of two rows of a flat row-major objective matrix.
+     *
+     * @param objectives Flat objective matrix
+     * @param offset1    Offset of the first individual's row
+     * @param offset2    Offset of the second individual's row
+     * @param dim        Number of comparable coordinates in each individual (not max. index!)
+     * @return -1 if the first individual dominates over the second one. 1 if the second one dominates over the first.
+     * 0 otherwise.
+     */
+    public static int dominates(double[] objectives, int offset1, int offset2, int dim) {
+        boolean d1less = false;
+        boolean d2less = false;
+        for (int currCoord = 0; currCoord < dim; ++currCoord) {
+            final double v1 = objectives[offset1 + currCoord];
+            final double v2 = objectives[offset2 + currCoord];
+            if (v1 < v2) {
+                d1less = true;
+            } else if (v1 > v2) {
+                d2less = true;
+            }
+
+            if (d1less && d2less) {
+                return 0;
+            }
+        }
+
+        if (d1less)
+            return -1;
+        else if (d2less)
+            return 1;
+        else
+            return 0;
+    }
+
+    /**
+     * Perform lexicographical comparison of two rows of a flat row-major objective matrix
+     *
+     * @param objectives Flat objective matrix
+     * @param offset1    Offset of the first individual's row
+     * @param offset2    Offset of the second individual's row
+     * @param dim        Number of comparable coordinates in each individual (not max. index!)
+     * @return -1 if the first row is lexicographically smaller than the second one. 1 if larger. 0 if equal.
+     */
+    public static int lexCompare(double[] objectives, int offset1, int offset2, int dim) {
+        for (int i = 0; i < dim; ++i) {
+            final double v1 = objectives[offset1 + i];
+            final double v2 = objectives[offset2 + i];
+            if (v1 < v2)
+                return -1;
+            else if (v1 > v2)
+                return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @return A level without members which can be merged with points of dimension {@code dim} later
+     */
+    public static <T> JFBYNonDominationLevel<T> emptyLevel(@Nonnull final INonDominatedSorter sorter,
+                                                           final int dim,
+                                                           @Nonnull final CrowdingDistanceMode cdMode) {
+        return new JFBYNonDominationLevel<>(sorter, SortedObjectives.empty(dim, cdMode));
+    }
+
     public static <T> JFBYNonDominationLevel<T> removeIndividualFromLevel(@Nonnull final JFBYNonDominationLevel<T> lastLevel,
                                                                           @Nonnull final IIndividual<T> removedIndividual,
-                                                                          @Nonnull final JFB2014 sorter) {
+                                                                          @Nonnull final INonDominatedSorter sorter) {
         final SortedObjectives<IIndividual<T>, T> nso = lastLevel.getSortedObjectives().update(
                 Collections.emptyList(),
                 Collections.singletonList(removedIndividual),
                 (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
         );
 
-        return new JFBYNonDominationLevel<>(sorter, nso.getLexSortedPop(), nso);
+        return lastLevel.derive(nso, Collections.emptyList(), Collections.singletonList(removedIndividual));
+    }
+
+    /**
+     * @param points Points to sort
+     * @return Lexicographically sorted non-domination levels of {@code points}
+     */
+    public static <T> List<List<IIndividual<T>>> sortIntoLevels(@Nonnull final List<IIndividual<T>> points,
+                                                                @Nonnull final INonDominatedSorter sorter) {
+        final IIndividual[] members = points.toArray(new IIndividual[points.size()]);
+        final int[] ranks = sorter.performNds(members);
+        final List<List<IIndividual<T>>> levels = new ArrayList<>();
+        for (int i = 0; i < members.length; ++i) {
+            while (levels.size() <= ranks[i]) {
+                levels.add(new ArrayList<>());
+            }
+            //noinspection unchecked
+            levels.get(ranks[i]).add(members[i]);
+        }
+        return levels;
+    }
+
+    public static <T> JFBYNonDominationLevel<T> removeIndividualsFromLevel(@Nonnull final JFBYNonDominationLevel<T> lastLevel,
+                                                                           @Nonnull final List<IIndividual<T>> removedIndividuals,
+                                                                           @Nonnull final INonDominatedSorter sorter) {
+        final SortedObjectives<IIndividual<T>, T> nso = lastLevel.getSortedObjectives().update(
+                Collections.emptyList(),
+                removedIndividuals,
+                (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload())
+        );
+
+        return lastLevel.derive(nso, Collections.emptyList(), removedIndividuals);
+    }
+
+    /**
+     * @param count Number of individuals to select, less than the level size
+     * @return {@code count} members of the level with the smallest CD, in the lexicographical order
+     */
+    public static <T> List<IIndividual<T>> getWorstCDIndividuals(@Nonnull final INonDominationLevel<T> lastLevel, int count) {
+        final List<IIndividual<T>> members = lastLevel.getMembers();
+        final Integer[] indices = new Integer[members.size()];
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, Comparator.comparingDouble(i -> members.get(i).getCrowdingDistance()));
+        Arrays.sort(indices, 0, count);
+
+        final List<IIndividual<T>> rs = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            rs.add(members.get(indices[i]));
+        }
+        return rs;
     }
 
     public static <T> IIndividual<T> getWorstCDIndividual(@Nonnull final INonDominationLevel<T> lastLevel) {
@@ -101,4 +224,37 @@ public class Utils {
             }
         }
     }
+
+    /**
+     * @param rest Candidates which were not placed, and members evicted by the placed ones
+     * @return Candidates which were placed, in their order
+     */
+    public static <T> List<IIndividual<T>> placedPoints(@Nonnull List<IIndividual<T>> candidates,
+                                                        @Nonnull List<IIndividual<T>> rest) {
+        final Set<IIndividual<T>> notPlaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        notPlaced.addAll(rest);
+        final List<IIndividual<T>> rs = new ArrayList<>(candidates.size());
+        for (IIndividual<T> candidate : candidates) {
+            if (!notPlaced.contains(candidate)) {
+                rs.add(candidate);
+            }
+        }
+        return rs;
+    }
+
+    /**
+     * Remember the {@code rank} of every point of {@code candidates} which is not in {@code rest}
+     */
+    public static <T> void recordPlacement(@Nonnull List<IIndividual<T>> candidates,
+                                           @Nonnull List<IIndividual<T>> rest,
+                                           int rank,
+                                           @Nonnull Map<IIndividual<T>, Integer> placement) {
+        final Set<IIndividual<T>> notPlaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        notPlaced.addAll(rest);
+        for (IIndividual<T> candidate : candidates) {
+            if (!notPlaced.contains(candidate)) {
+                placement.put(candidate, rank);
+            }
+        }
+    }
 }
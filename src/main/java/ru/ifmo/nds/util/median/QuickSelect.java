@@ -15,6 +15,19 @@ public class QuickSelect {
         return getKthElement(values, values.length / 2);
     }
 
+    /**
+     * @param values Array of elements to select from. Only the first {@code size} elements are considered.
+     * @param size   Number of meaningful elements in {@code values}
+     * @return Median of the first {@code size} elements of {@code values}
+     */
+    public double getMedian(double[] values, int size) {
+        if (values == null || size <= 0 || size > values.length) {
+            throw new IllegalArgumentException("Null array or incorrect size");
+        } else {
+            return values[select(values, 0, size - 1, size / 2)];
+        }
+    }
+
     public double getKthElement(double[] values, int k) {
         if (values == null || k >= values.length) {
             throw new IllegalArgumentException("Null array or the k is too large");
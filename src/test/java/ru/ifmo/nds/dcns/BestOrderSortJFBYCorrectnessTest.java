@@ -0,0 +1,12 @@
+package ru.ifmo.nds.dcns;
+
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.BestOrderSort;
+
+public class BestOrderSortJFBYCorrectnessTest extends ManagedPopulationCorrectnessTest {
+    @Override
+    protected IManagedPopulation<Object> constructPopulation(int dimensionsCount) {
+        return new JFBYPopulation<>(new BestOrderSort(), Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.ifmo.nds.dcns;
+
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.dcns.enlu.ENLUManagedPopulation;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+
+public class LazyCDENLUCorrectnessTest extends ManagedPopulationCorrectnessTest {
+    @Override
+    protected IManagedPopulation<Object> constructPopulation(int dimensionsCount) {
+        return new ENLUManagedPopulation<>(Long.MAX_VALUE, CrowdingDistanceMode.LAZY);
+    }
+}
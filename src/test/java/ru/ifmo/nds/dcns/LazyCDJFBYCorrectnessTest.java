@@ -0,0 +1,13 @@
+package ru.ifmo.nds.dcns;
+
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.IncrementalJFB;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+
+public class LazyCDJFBYCorrectnessTest extends ManagedPopulationCorrectnessTest {
+    @Override
+    protected IManagedPopulation<Object> constructPopulation(int dimensionsCount) {
+        return new JFBYPopulation<>(new IncrementalJFB(), Long.MAX_VALUE, CrowdingDistanceMode.LAZY);
+    }
+}
@@ -11,11 +11,14 @@ import ru.ifmo.nds.util.RankedPopulation;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public abstract class ManagedPopulationCorrectnessTest {
     protected abstract IManagedPopulation<Object> constructPopulation(int dimensionsCount);
@@ -179,6 +182,99 @@ public abstract class ManagedPopulationCorrectnessTest {
         });
     }
 
+    @Test
+    public void testTwoObjectives() {
+        final Random random = new Random(29);
+        final double[][] testData = new double[2000][];
+        for (int i = 0; i < testData.length; ++i) {
+            testData[i] = new double[]{random.nextDouble(), random.nextDouble()};
+        }
+        compareIncrementalWithGenerational(testData);
+    }
+
+    @Test
+    public void testManyObjectives() {
+        //Large fronts, where the levels use dominance indices
+        final Random random = new Random(23);
+        final double[][] testData = new double[1500][];
+        for (int i = 0; i < testData.length; ++i) {
+            testData[i] = new double[7];
+            for (int j = 0; j < testData[i].length; ++j) {
+                testData[i][j] = random.nextDouble();
+            }
+        }
+        compareIncrementalWithGenerational(testData);
+    }
+
+    @Test
+    public void testAddIndividuals() {
+        final Random random = new Random(17);
+        for (int dim = 2; dim <= 4; ++dim) {
+            final IManagedPopulation<Object> pop = constructPopulation(dim);
+            final List<IIndividual<Object>> all = new ArrayList<>();
+            for (int batchSize : new int[]{1, 30, 5, 100, 40}) {
+                final List<IIndividual<Object>> batch = new ArrayList<>();
+                for (int i = 0; i < batchSize; ++i) {
+                    final double[] d = new double[dim];
+                    for (int j = 0; j < dim; ++j) {
+                        d[j] = random.nextInt(30);
+                    }
+                    batch.add(new FitnessAndCdIndividual<>(d, null));
+                }
+                if (!all.isEmpty()) {
+                    batch.add(all.get(random.nextInt(all.size())));
+                }
+                all.addAll(batch);
+
+                final int[] batchRanks = pop.addIndividuals(batch);
+                final RankedPopulation<IIndividual<Object>> rp = pop.toRankedPopulation();
+                for (int i = 0; i < batch.size(); ++i) {
+                    assertEquals(rp.getRanks()[Arrays.asList(rp.getPop()).indexOf(batch.get(i))], batchRanks[i]);
+                }
+            }
+
+            final IIndividual[] distinct = new LinkedHashSet<>(all).toArray(new IIndividual[0]);
+            final int[] ranks = new JFB2014().performNds(distinct);
+            final RankedPopulation rp = pop.toRankedPopulation();
+            Assert.assertArrayEquals(distinct, rp.getPop());
+            Assert.assertArrayEquals(ranks, rp.getRanks());
+        }
+    }
+
+    @Test
+    public void testRemoveIndividual() {
+        final Random random = new Random(19);
+        for (int dim = 2; dim <= 4; ++dim) {
+            final IManagedPopulation<Object> pop = constructPopulation(dim);
+            final List<IIndividual<Object>> present = new ArrayList<>();
+            for (int i = 0; i < 300; ++i) {
+                final double[] d = new double[dim];
+                for (int j = 0; j < dim; ++j) {
+                    d[j] = random.nextInt(20);
+                }
+                final IIndividual<Object> individual = new FitnessAndCdIndividual<>(d, null);
+                if (!present.contains(individual)) {
+                    present.add(individual);
+                }
+                pop.addIndividual(individual);
+            }
+
+            while (present.size() > 10) {
+                final IIndividual<Object> removed = present.remove(random.nextInt(present.size()));
+                assertTrue(pop.removeIndividual(removed));
+                assertFalse(pop.removeIndividual(removed));
+                assertEquals(present.size(), pop.size());
+                if (present.size() % 20 == 0) {
+                    final IIndividual[] expected = present.toArray(new IIndividual[0]);
+                    final int[] ranks = new JFB2014().performNds(expected);
+                    final RankedPopulation rp = pop.toRankedPopulation();
+                    Assert.assertArrayEquals(expected, rp.getPop());
+                    Assert.assertArrayEquals(ranks, rp.getRanks());
+                }
+            }
+        }
+    }
+
     private void compareIncrementalWithGenerational(final double[][] testDataArr) {
         final IIndividual[] testData = new IIndividual[testDataArr.length];
         for (int i = 0; i < testData.length; ++i) {
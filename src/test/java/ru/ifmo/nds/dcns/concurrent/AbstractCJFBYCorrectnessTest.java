@@ -2,19 +2,51 @@ package ru.ifmo.nds.dcns.concurrent;
 
 import org.junit.Test;
 import ru.ifmo.nds.IIndividual;
-import ru.ifmo.nds.dcns.ManagedPopulationCorrectnessTest;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
-abstract class AbstractCJFBYCorrectnessTest extends ManagedPopulationCorrectnessTest {
+abstract class AbstractCJFBYCorrectnessTest extends AbstractConcurrentCorrectnessTest {
     @Override
-    protected abstract CJFBYPopulation<Object> constructPopulation(int dimensionsCount);
+    protected abstract CJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize);
+
+    @Override
+    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount) {
+        return constructPopulation(dimensionsCount, 100500);
+    }
+
+    @Test
+    public void testExactSizeAndMetrics() {
+        final int expectedSize = 50;
+        final CJFBYPopulation<Object> pop = constructPopulation(3, expectedSize);
+        final Random random = new Random(13);
+        final int count = 300;
+        for (int i = 0; i < count; ++i) {
+            pop.addIndividual(new FitnessAndCdIndividual<>(
+                    new double[]{random.nextDouble(), random.nextDouble(), random.nextDouble()}, null));
+            assertEquals(Math.min(expectedSize, i + 1), pop.size());
+            assertEquals(pop.size(), pop.getSnapshot().getSize());
+        }
+
+        final ContentionMetrics metrics = pop.getContentionMetrics();
+        assertEquals(count, metrics.getInsertions());
+        assertEquals(count - expectedSize, metrics.getEvictions());
+        assertTrue(metrics.getLevelsTouched() >= metrics.getInsertions());
+        //Single-threaded, so nothing is retried
+        assertEquals(0, metrics.getRetries());
+        assertEquals(0, metrics.getCasFailuresPerLevel().length);
+
+        metrics.reset();
+        assertEquals(0, metrics.getInsertions());
+        assertEquals(0.0, metrics.getRetriesPerInsertion(), 0.0);
+    }
 
     @SuppressWarnings("ConstantConditions")
     @Test
@@ -0,0 +1,162 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.IManagedPopulation;
+import ru.ifmo.nds.dcns.ManagedPopulationCorrectnessTest;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+abstract class AbstractConcurrentCorrectnessTest extends ManagedPopulationCorrectnessTest {
+    static final int THREADS = 8;
+
+    protected abstract IManagedPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize);
+
+    @Override
+    protected IManagedPopulation<Object> constructPopulation(int dimensionsCount) {
+        return constructPopulation(dimensionsCount, 100500);
+    }
+
+    @Test
+    public void testConcurrentAddition() throws Exception {
+        final IManagedPopulation<Object> pop = constructPopulation(3, 100500);
+        final List<List<IIndividual<Object>>> perThread = generate(THREADS, 1000, 3);
+        runConcurrently(pop, perThread);
+
+        final LinkedHashSet<IIndividual<Object>> all = new LinkedHashSet<>();
+        perThread.forEach(all::addAll);
+        assertSorted(pop, all);
+    }
+
+    @Test
+    public void testConcurrentAdditionWithRemoval() throws Exception {
+        final int expectedSize = 300;
+        final IManagedPopulation<Object> pop = constructPopulation(3, expectedSize);
+        runConcurrently(pop, generate(THREADS, 1000, 3));
+
+        final RankedPopulation<IIndividual<Object>> rp = pop.toRankedPopulation();
+        assertEquals(expectedSize, pop.size());
+        assertEquals(expectedSize, rp.getPop().length);
+        assertArrayEquals(new JFB2014().performNds(rp.getPop().clone()), rp.getRanks());
+    }
+
+    @Test
+    public void testConcurrentRemoval() throws Exception {
+        final IManagedPopulation<Object> pop = constructPopulation(3, 100500);
+        final List<List<IIndividual<Object>>> initial = generate(THREADS, 500, 3);
+        runConcurrently(pop, initial);
+
+        //Half of the threads remove their points, the other half add new ones, which differ from the initial points
+        final List<List<IIndividual<Object>>> added = generate(THREADS, 500, 3);
+        final LinkedHashSet<IIndividual<Object>> expected = new LinkedHashSet<>();
+        initial.forEach(expected::addAll);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                final List<IIndividual<Object>> points;
+                if (t % 2 == 0) {
+                    points = initial.get(t);
+                    expected.removeAll(points);
+                    futures.add(executor.submit(() -> points.forEach(pop::removeIndividual)));
+                } else {
+                    points = new ArrayList<>();
+                    for (IIndividual<Object> point : added.get(t)) {
+                        final double[] d = point.getObjectives().clone();
+                        d[0] += 0.5;
+                        points.add(new FitnessAndCdIndividual<>(d, null));
+                    }
+                    expected.addAll(points);
+                    futures.add(executor.submit(() -> points.forEach(pop::addIndividual)));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertSorted(pop, expected);
+    }
+
+    /**
+     * Checks that the population holds exactly the expected points, in their order, with the ranks of a full sort
+     */
+    static void assertSorted(IManagedPopulation<Object> pop, Collection<IIndividual<Object>> expected) {
+        final IIndividual[] expectedArr = expected.toArray(new IIndividual[0]);
+        final int[] ranks = new JFB2014().performNds(expectedArr);
+
+        final RankedPopulation rp = pop.toRankedPopulation();
+        assertEquals(expectedArr.length, pop.size());
+        assertArrayEquals(expectedArr, rp.getPop());
+        assertArrayEquals(ranks, rp.getRanks());
+    }
+
+    /**
+     * @return Points of every thread, with small integer coordinates, so that some of them coincide
+     */
+    static List<List<IIndividual<Object>>> generate(int threads, int count, int dim) {
+        final Random random = new Random(5);
+        final List<List<IIndividual<Object>>> rs = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            final List<IIndividual<Object>> points = new ArrayList<>();
+            for (int i = 0; i < count; ++i) {
+                final double[] d = new double[dim];
+                for (int j = 0; j < dim; ++j) {
+                    d[j] = random.nextInt(100);
+                }
+                points.add(new FitnessAndCdIndividual<>(d, null));
+            }
+            rs.add(points);
+        }
+        return rs;
+    }
+
+    /**
+     * Every list is added by a thread of its own: the even threads add the points one by one, the odd ones
+     * in batches of 10
+     */
+    static void runConcurrently(IManagedPopulation<Object> pop,
+                                List<List<IIndividual<Object>>> perThread) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(perThread.size());
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < perThread.size(); ++t) {
+                final List<IIndividual<Object>> points = perThread.get(t);
+                final boolean batches = t % 2 == 1;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < points.size(); i += 10) {
+                        final List<IIndividual<Object>> chunk = points.subList(i, Math.min(i + 10, points.size()));
+                        if (batches) {
+                            assertEquals(chunk.size(), pop.addIndividuals(chunk).length);
+                        } else {
+                            for (IIndividual<Object> point : chunk) {
+                                assertTrue(pop.addIndividual(point) >= 0);
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
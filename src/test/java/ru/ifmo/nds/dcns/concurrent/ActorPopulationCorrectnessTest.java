@@ -0,0 +1,118 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ActorPopulationCorrectnessTest extends AbstractConcurrentCorrectnessTest {
+    @Override
+    protected ActorPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new ActorPopulation<>(expectedPopulationSize);
+    }
+
+    @Override
+    protected ActorPopulation<Object> constructPopulation(int dimensionsCount) {
+        return constructPopulation(dimensionsCount, 100500);
+    }
+
+    @Test
+    public void testVisibilityOfCompletedInsertions() throws Exception {
+        try (ActorPopulation<Object> pop = constructPopulation(3)) {
+            final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                final List<Future<?>> futures = new ArrayList<>();
+                for (final List<IIndividual<Object>> points : generate(THREADS, 200, 3)) {
+                    futures.add(executor.submit(() -> {
+                        for (IIndividual<Object> point : points) {
+                            pop.addIndividual(point);
+                            //A completed insertion is visible in the snapshot
+                            assertTrue(contains(pop.getSnapshot(), point));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testBackpressure() {
+        //A buffer of two cells is full most of the time
+        try (ActorPopulation<Object> pop = new ActorPopulation<>(new JFBYPopulation<>(new JFB2014(), 100), 2,
+                Thread::new)) {
+            final List<CompletableFuture<Integer>> ranks = new ArrayList<>();
+            for (IIndividual<Object> point : generate(1, 2000, 2).get(0)) {
+                ranks.add(pop.addIndividualAsync(point));
+            }
+            for (CompletableFuture<Integer> rank : ranks) {
+                assertTrue(rank.join() >= 0);
+            }
+            assertEquals(100, pop.size());
+            final RankedPopulation<IIndividual<Object>> rp = pop.toRankedPopulation();
+            assertArrayEquals(new JFB2014().performNds(rp.getPop().clone()), rp.getRanks());
+        }
+    }
+
+    @Test
+    public void testClose() {
+        final ActorPopulation<Object> pop = constructPopulation(2);
+        final CompletableFuture<Integer> rank = pop.addIndividualAsync(
+                new FitnessAndCdIndividual<>(new double[]{1, 2}, null));
+        pop.close();
+        assertEquals(0, (int) rank.join());
+        try {
+            pop.addIndividual(new FitnessAndCdIndividual<>(new double[]{2, 1}, null));
+            fail("Closed population accepted an individual");
+        } catch (IllegalStateException ignored) {
+        }
+        assertEquals(1, pop.size());
+    }
+
+    @Test
+    public void testErrorStopsWriter() {
+        final JFBYPopulation<Object> failing = new JFBYPopulation<Object>(new JFB2014(), 100) {
+            @Override
+            public int addIndividual(@Nonnull IIndividual<Object> addend) {
+                throw new AssertionError("Broken population");
+            }
+        };
+        final ActorPopulation<Object> pop = new ActorPopulation<>(failing);
+        final CompletableFuture<Integer> rank = pop.addIndividualAsync(
+                new FitnessAndCdIndividual<>(new double[]{1, 2}, null));
+        try {
+            rank.join();
+            fail("Error of the population was lost");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        try {
+            //Does not wait forever for the dead writer
+            pop.addIndividual(new FitnessAndCdIndividual<>(new double[]{2, 1}, null));
+            fail("Population with a dead writer accepted an individual");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    private static boolean contains(PopulationSnapshot<Object> snapshot, IIndividual<Object> point) {
+        return snapshot.getLevels().stream().anyMatch(l -> l.getMembers().contains(point));
+    }
+}
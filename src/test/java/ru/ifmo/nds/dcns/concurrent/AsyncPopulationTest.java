@@ -0,0 +1,91 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+import static ru.ifmo.nds.dcns.concurrent.AbstractConcurrentCorrectnessTest.THREADS;
+import static ru.ifmo.nds.dcns.concurrent.AbstractConcurrentCorrectnessTest.assertSorted;
+import static ru.ifmo.nds.dcns.concurrent.AbstractConcurrentCorrectnessTest.generate;
+
+public class AsyncPopulationTest {
+    @Test
+    public void testConcurrentSubmissions() throws Exception {
+        //Not thread-safe by itself
+        final JFBYPopulation<Object> population = new JFBYPopulation<>(new JFB2014(), 100500);
+        final ExecutorService drainer = Executors.newSingleThreadExecutor();
+        final ExecutorService submitters = Executors.newFixedThreadPool(THREADS);
+        try {
+            final AsyncPopulation<Object> async = new AsyncPopulation<>(population, drainer);
+            final List<List<IIndividual<Object>>> perThread = generate(THREADS, 1000, 3);
+            final List<Future<List<CompletableFuture<Integer>>>> futures = new ArrayList<>();
+            for (final List<IIndividual<Object>> points : perThread) {
+                futures.add(submitters.submit(() -> {
+                    final List<CompletableFuture<Integer>> ranks = new ArrayList<>();
+                    for (IIndividual<Object> point : points) {
+                        ranks.add(async.addIndividualAsync(point));
+                    }
+                    return ranks;
+                }));
+            }
+            for (Future<List<CompletableFuture<Integer>>> future : futures) {
+                for (CompletableFuture<Integer> rank : future.get()) {
+                    assertTrue(rank.get() >= 0);
+                }
+            }
+
+            final LinkedHashSet<IIndividual<Object>> all = new LinkedHashSet<>();
+            perThread.forEach(all::addAll);
+            assertEquals(all.size(), async.getSnapshotAsync().get().getSize());
+            assertSorted(population, all);
+            assertTrue(async.getAverageBatchSize() >= 1);
+        } finally {
+            submitters.shutdown();
+            drainer.shutdown();
+        }
+    }
+
+    @Test
+    public void testOrderOfOperations() {
+        final JFBYPopulation<Object> population = new JFBYPopulation<>(new JFB2014(), 100500);
+        final AsyncPopulation<Object> async = new AsyncPopulation<>(population, Runnable::run);
+
+        assertEquals(0, (int) async.addIndividualAsync(new FitnessAndCdIndividual<>(new double[]{1, 1}, null)).join());
+        final CompletableFuture<PopulationSnapshot<Object>> before = async.getSnapshotAsync();
+        final CompletableFuture<int[]> ranks = async.addIndividualsAsync(Arrays.asList(
+                new FitnessAndCdIndividual<>(new double[]{2, 2}, null),
+                new FitnessAndCdIndividual<>(new double[]{0, 3}, null)));
+        final CompletableFuture<PopulationSnapshot<Object>> after = async.getSnapshotAsync();
+
+        assertEquals(1, before.join().getSize());
+        assertEquals(1, before.join().getLevels().size());
+        assertArrayEquals(new int[]{1, 0}, ranks.join());
+        assertEquals(3, after.join().getSize());
+        assertEquals(2, after.join().getLevels().size());
+    }
+
+    @Test
+    public void testRejectedExecution() {
+        final AsyncPopulation<Object> async = new AsyncPopulation<>(
+                new JFBYPopulation<>(new JFB2014(), 100500), r -> {
+            throw new RejectedExecutionException();
+        });
+        final CompletableFuture<Integer> rank = async.addIndividualAsync(
+                new FitnessAndCdIndividual<>(new double[]{1, 1}, null));
+        assertTrue(rank.isCompletedExceptionally());
+    }
+}
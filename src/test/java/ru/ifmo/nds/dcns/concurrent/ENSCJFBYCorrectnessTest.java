@@ -0,0 +1,10 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.dcns.sorter.ENS;
+
+public class ENSCJFBYCorrectnessTest extends AbstractCJFBYCorrectnessTest {
+    @Override
+    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new CJFBYPopulation<>(new ENS(), expectedPopulationSize, false);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlatCombiningCorrectnessTest extends AbstractConcurrentCorrectnessTest {
+    @Override
+    protected FlatCombiningPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new FlatCombiningPopulation<>(expectedPopulationSize);
+    }
+
+    @Override
+    protected FlatCombiningPopulation<Object> constructPopulation(int dimensionsCount) {
+        return constructPopulation(dimensionsCount, 100500);
+    }
+
+    @Test
+    public void testCombining() throws Exception {
+        final FlatCombiningPopulation<Object> pop = constructPopulation(3);
+        runConcurrently(pop, generate(THREADS, 1000, 3));
+        assertTrue(pop.getAverageBatchSize() >= 1);
+    }
+
+    @Test
+    public void testIdleSlotsAreUnlinked() throws Exception {
+        final FlatCombiningPopulation<Object> pop = constructPopulation(3);
+        final List<IIndividual<Object>> points = generate(1, 2000, 3).get(0);
+        for (int t = 0; t < THREADS; ++t) {
+            //Every short-lived thread publishes a slot of its own
+            final Thread thread = new Thread(() -> pop.addIndividual(points.get(0)));
+            thread.start();
+            thread.join();
+        }
+        assertEquals(THREADS, pop.getSlotCount());
+
+        for (IIndividual<Object> point : points) {
+            pop.addIndividual(point);
+        }
+        //The head and the slot of this thread
+        assertTrue(pop.getSlotCount() <= 2);
+        assertEquals(new LinkedHashSet<>(points).size(), pop.size());
+    }
+}
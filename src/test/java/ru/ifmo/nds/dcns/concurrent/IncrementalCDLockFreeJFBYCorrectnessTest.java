@@ -0,0 +1,11 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+
+public class IncrementalCDLockFreeJFBYCorrectnessTest extends LockFreeJFBYCorrectnessTest {
+    @Override
+    protected LockFreeJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new LockFreeJFBYPopulation<>(new JFB2014(), expectedPopulationSize, CrowdingDistanceMode.INCREMENTAL);
+    }
+}
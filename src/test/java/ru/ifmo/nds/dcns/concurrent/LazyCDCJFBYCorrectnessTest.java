@@ -0,0 +1,11 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+
+public class LazyCDCJFBYCorrectnessTest extends AbstractCJFBYCorrectnessTest {
+    @Override
+    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new CJFBYPopulation<>(new JFB2014(), expectedPopulationSize, false, CrowdingDistanceMode.LAZY);
+    }
+}
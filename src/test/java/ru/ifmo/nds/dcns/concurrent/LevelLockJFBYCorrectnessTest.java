@@ -2,7 +2,6 @@ package ru.ifmo.nds.dcns.concurrent;
 
 import org.junit.Test;
 import ru.ifmo.nds.IIndividual;
-import ru.ifmo.nds.dcns.ManagedPopulationCorrectnessTest;
 import ru.ifmo.nds.impl.FitnessAndCdIndividual;
 
 import java.util.Collections;
@@ -12,7 +11,15 @@ import java.util.stream.Collectors;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
-public class LevelLockJFBYCorrectnessTest extends ManagedPopulationCorrectnessTest {
+public class LevelLockJFBYCorrectnessTest extends AbstractConcurrentCorrectnessTest {
+    /**
+     * The excess individuals are removed as soon as the population exceeds the expected size
+     */
+    @Override
+    protected LevelLockJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new LevelLockJFBYPopulation<>(expectedPopulationSize, 1);
+    }
+
     @Override
     protected LevelLockJFBYPopulation constructPopulation(int dimensionsCount) {
         return new LevelLockJFBYPopulation();
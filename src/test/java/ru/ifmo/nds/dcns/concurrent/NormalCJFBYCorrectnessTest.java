@@ -2,7 +2,7 @@ package ru.ifmo.nds.dcns.concurrent;
 
 public class NormalCJFBYCorrectnessTest extends AbstractCJFBYCorrectnessTest {
     @Override
-    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount) {
-        return new CJFBYPopulation<>(100500, false);
+    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new CJFBYPopulation<>(expectedPopulationSize, false);
     }
 }
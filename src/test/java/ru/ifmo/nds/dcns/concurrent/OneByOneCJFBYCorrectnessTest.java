@@ -2,7 +2,7 @@ package ru.ifmo.nds.dcns.concurrent;
 
 public class OneByOneCJFBYCorrectnessTest extends AbstractCJFBYCorrectnessTest {
     @Override
-    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount) {
-        return new CJFBYPopulation<>(100500, true);
+    protected CJFBYPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new CJFBYPopulation<>(expectedPopulationSize, true);
     }
 }
@@ -0,0 +1,93 @@
+package ru.ifmo.nds.dcns.concurrent;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ShardedPopulationCorrectnessTest extends AbstractConcurrentCorrectnessTest {
+    /**
+     * The default limits, so that concurrent insertions consolidate
+     */
+    @Override
+    protected ShardedPopulation<Object> constructPopulation(int dimensionsCount, int expectedPopulationSize) {
+        return new ShardedPopulation<>(expectedPopulationSize, 4);
+    }
+
+    /**
+     * The points stay pending in the shard of the test thread, so the ranks are determined against the shard
+     */
+    @Override
+    protected ShardedPopulation<Object> constructPopulation(int dimensionsCount) {
+        return new ShardedPopulation<>(new JFB2014(), 100500, 4, 100500, 1, TimeUnit.DAYS);
+    }
+
+    @Test
+    public void testStalenessBound() {
+        final int maxPending = 10;
+        final ShardedPopulation<Object> pop = new ShardedPopulation<>(new JFB2014(), 100500, 2, maxPending,
+                1, TimeUnit.DAYS);
+        for (int i = 0; i < 3 * maxPending; ++i) {
+            pop.addIndividual(new FitnessAndCdIndividual<>(new double[]{i, -i, 0}, null));
+            //The single shard of this thread consolidates on every maxPending-th point
+            assertEquals((i + 1) / maxPending * maxPending, pop.getConsolidatedSnapshot().getSize());
+        }
+
+        pop.addIndividual(new FitnessAndCdIndividual<>(new double[]{-1, -1, -1}, null));
+        assertEquals(3 * maxPending, pop.getConsolidatedSnapshot().getSize());
+        assertEquals(3 * maxPending + 1, pop.getSnapshot().getSize());
+        assertEquals(3 * maxPending + 1, pop.getConsolidatedSnapshot().getSize());
+    }
+
+    @Test
+    public void testRanksOfSingleWriter() {
+        final JFBYPopulation<Object> expected = new JFBYPopulation<>(new JFB2014(), 100500);
+        final ShardedPopulation<Object> pop = new ShardedPopulation<>(new JFB2014(), 100500, 2, 16,
+                1, TimeUnit.DAYS);
+        final List<IIndividual<Object>> points = generate(1, 1000, 3).get(0);
+        for (int i = 0; i < points.size(); i += 10) {
+            final List<IIndividual<Object>> batch = points.subList(i, i + 10);
+            if (i % 20 == 0) {
+                assertArrayEquals(expected.addIndividuals(batch), pop.addIndividuals(batch));
+            } else {
+                for (IIndividual<Object> point : batch) {
+                    //Against the consolidated snapshot merged with the pending points
+                    assertEquals(expected.addIndividual(point), pop.addIndividual(point));
+                }
+            }
+        }
+        final RankedPopulation<IIndividual<Object>> rp = expected.toRankedPopulation();
+        final RankedPopulation<IIndividual<Object>> actual = pop.toRankedPopulation();
+        assertArrayEquals(rp.getPop(), actual.getPop());
+        assertArrayEquals(rp.getRanks(), actual.getRanks());
+    }
+
+    @Test
+    public void testEvictionInGlobalOnly() {
+        final int expectedSize = 20;
+        final ShardedPopulation<Object> pop = new ShardedPopulation<>(new JFB2014(), expectedSize, 2, 100500,
+                1, TimeUnit.DAYS);
+        final List<IIndividual<Object>> points = generate(1, 200, 3).get(0);
+        for (IIndividual<Object> point : points) {
+            pop.addIndividual(point);
+        }
+        //Nothing is evicted before the consolidation
+        assertEquals(0, pop.getConsolidatedSnapshot().getSize());
+
+        final JFBYPopulation<Object> expected = new JFBYPopulation<>(new JFB2014(), expectedSize);
+        expected.addIndividuals(points);
+        final RankedPopulation<IIndividual<Object>> rp = expected.toRankedPopulation();
+        final RankedPopulation<IIndividual<Object>> actual = pop.toRankedPopulation();
+        assertEquals(expectedSize, pop.size());
+        assertArrayEquals(rp.getPop(), actual.getPop());
+        assertArrayEquals(rp.getRanks(), actual.getRanks());
+    }
+}
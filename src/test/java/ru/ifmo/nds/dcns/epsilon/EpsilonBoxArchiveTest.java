@@ -0,0 +1,148 @@
+package ru.ifmo.nds.dcns.epsilon;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.PopulationSnapshot;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static ru.ifmo.nds.util.Utils.dominates;
+
+public class EpsilonBoxArchiveTest {
+    private static final double EPSILON = 0.05;
+
+    @Test
+    public void testEveryPointIsEpsilonDominated() {
+        final Random random = new Random(20);
+        for (int dim = 2; dim <= 4; ++dim) {
+            final double[] epsilon = new double[dim];
+            Arrays.fill(epsilon, EPSILON);
+            final EpsilonBoxArchive<Object> archive = new EpsilonBoxArchive<>(epsilon);
+            final List<IIndividual<Object>> offered = new ArrayList<>();
+            for (int i = 0; i < 3000; ++i) {
+                final IIndividual<Object> point = randomPoint(random, dim);
+                offered.add(point);
+                final int rank = archive.addIndividual(point);
+                assertEquals(rank == 0, members(archive).contains(point));
+            }
+            checkInvariants(archive);
+
+            final List<IIndividual<Object>> members = members(archive);
+            for (IIndividual<Object> point : offered) {
+                boolean covered = false;
+                for (IIndividual<Object> member : members) {
+                    covered |= weaklyDominates(box(member), box(point));
+                }
+                assertTrue(covered);
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveIndividual() {
+        final Random random = new Random(21);
+        final EpsilonBoxArchive<Object> archive = new EpsilonBoxArchive<>(new double[]{EPSILON, EPSILON, EPSILON});
+        for (int i = 0; i < 3000; ++i) {
+            archive.addIndividual(randomPoint(random, 3));
+            if (random.nextInt(4) == 0 && archive.size() > 0) {
+                final List<IIndividual<Object>> members = members(archive);
+                final IIndividual<Object> removed = members.get(random.nextInt(members.size()));
+                final EpsilonBoxArchive<Object> before = archive.clone();
+                assertTrue(archive.removeIndividual(removed));
+                assertFalse(archive.removeIndividual(removed));
+                assertEquals(before.size() - 1, archive.size());
+                assertFalse(members(archive).contains(removed));
+                assertTrue(members(before).contains(removed));
+            }
+            checkInvariants(archive);
+        }
+    }
+
+    @Test
+    public void testBoxIndex() {
+        final Random random = new Random(22);
+        final BoxIndex<Integer> index = new BoxIndex<>(2);
+        final Map<List<Long>, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; ++i) {
+            final long[] box = {random.nextInt(30) - 15, random.nextInt(30) - 15};
+            final List<Long> key = Arrays.asList(box[0], box[1]);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, i), index.put(box, i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), index.remove(box));
+                    break;
+                default:
+                    assertEquals(expected.get(key), index.get(box));
+            }
+            assertEquals(expected.size(), index.size());
+        }
+    }
+
+    private static void checkInvariants(EpsilonBoxArchive<Object> archive) {
+        final PopulationSnapshot<Object> snapshot = archive.getSnapshot();
+        final List<IIndividual<Object>> members = members(archive);
+        assertEquals(archive.size(), snapshot.getSize());
+        assertEquals(archive.size(), members.size());
+        assertTrue(snapshot.getLevels().size() <= 1);
+        final Set<List<Long>> boxes = new HashSet<>();
+        for (IIndividual<Object> member : members) {
+            final long[] box = box(member);
+            final List<Long> key = new ArrayList<>();
+            for (long c : box) {
+                key.add(c);
+            }
+            assertTrue(boxes.add(key));
+            for (IIndividual<Object> other : members) {
+                assertEquals(0, dominates(member.getObjectives(), other.getObjectives(), box.length));
+                assertTrue(member == other || !weaklyDominates(box(other), box));
+            }
+        }
+    }
+
+    private static List<IIndividual<Object>> members(EpsilonBoxArchive<Object> archive) {
+        final PopulationSnapshot<Object> snapshot = archive.getSnapshot();
+        return snapshot.getLevels().isEmpty() ? new ArrayList<>() : snapshot.getLevels().get(0).getMembers();
+    }
+
+    private static IIndividual<Object> randomPoint(Random random, int dim) {
+        final double[] objectives = new double[dim];
+        double sum = 0;
+        for (int k = 0; k < dim; ++k) {
+            objectives[k] = random.nextDouble();
+            sum += objectives[k];
+        }
+        //Concentrate the points near the simplex, so that the front is not trivial
+        for (int k = 0; k < dim; ++k) {
+            objectives[k] = objectives[k] / sum + 0.2 * random.nextDouble();
+        }
+        return new FitnessAndCdIndividual<>(objectives, null);
+    }
+
+    private static long[] box(IIndividual<Object> point) {
+        final long[] rs = new long[point.getObjectives().length];
+        for (int k = 0; k < rs.length; ++k) {
+            rs[k] = (long) Math.floor(point.getObjectives()[k] / EPSILON);
+        }
+        return rs;
+    }
+
+    private static boolean weaklyDominates(long[] a, long[] b) {
+        for (int k = 0; k < a.length; ++k) {
+            if (a[k] > b[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
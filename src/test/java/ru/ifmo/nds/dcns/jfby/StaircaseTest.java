@@ -0,0 +1,59 @@
+package ru.ifmo.nds.dcns.jfby;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class StaircaseTest {
+    @Test
+    public void testAgainstBruteForce() {
+        final Random random = new Random(41);
+        for (int iter = 0; iter < 200; ++iter) {
+            final List<IIndividual<Object>> points = new ArrayList<>();
+            final int n = 1 + random.nextInt(60);
+            for (int i = 0; i < n; ++i) {
+                points.add(randomIndividual(random));
+            }
+            final List<IIndividual<Object>> front = Utils.sortIntoLevels(points, new JFB2014()).get(0);
+            front.sort(AscLexSortComparator.getInstance());
+
+            for (int q = 0; q < 50; ++q) {
+                final double[] point = randomIndividual(random).getObjectives();
+                boolean expectedDominated = false;
+                final List<IIndividual<Object>> expectedDominatedMembers = new ArrayList<>();
+                for (IIndividual<Object> member : front) {
+                    final int dom = Utils.dominates(member.getObjectives(), point, 2);
+                    if (dom < 0) {
+                        expectedDominated = true;
+                    } else if (dom > 0) {
+                        expectedDominatedMembers.add(member);
+                    }
+                }
+                assertEquals(expectedDominated, Staircase.dominatedByAny(front, point));
+                if (!expectedDominated) {
+                    assertEquals(expectedDominatedMembers, Staircase.dominatedMembers(front, point));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(false, Staircase.dominatedByAny(Collections.emptyList(), new double[]{1, 1}));
+        assertEquals(Collections.emptyList(), Staircase.dominatedMembers(Collections.emptyList(), new double[]{1, 1}));
+    }
+
+    private static IIndividual<Object> randomIndividual(Random random) {
+        return new FitnessAndCdIndividual<>(new double[]{random.nextInt(30), random.nextInt(30)}, null);
+    }
+}
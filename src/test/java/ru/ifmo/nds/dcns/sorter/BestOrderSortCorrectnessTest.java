@@ -0,0 +1,8 @@
+package ru.ifmo.nds.dcns.sorter;
+
+public class BestOrderSortCorrectnessTest extends SorterCorrectnessTest {
+    @Override
+    protected INonDominatedSorter constructSorter() {
+        return new BestOrderSort();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.ifmo.nds.dcns.sorter;
+
+public class JFB2014CorrectnessTest extends SorterCorrectnessTest {
+    @Override
+    protected JFB2014 constructSorter() {
+        return new JFB2014();
+    }
+}
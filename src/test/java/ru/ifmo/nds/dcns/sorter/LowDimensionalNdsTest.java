@@ -0,0 +1,93 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.ObjectiveMatrix;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static ru.ifmo.nds.dcns.sorter.SorterCorrectnessTest.randomPopulation;
+import static ru.ifmo.nds.util.Utils.dominates;
+
+public class LowDimensionalNdsTest {
+    @Test
+    public void testRankSorted() {
+        final Random random = new Random(3);
+        for (int dim = 2; dim <= 3; ++dim) {
+            for (int n : new int[]{1, 2, 5, 100, 2000}) {
+                for (int range : new int[]{2, 10, 1000000}) {
+                    final IIndividual[] pop = randomPopulation(random, n, dim, range);
+                    final int[] expected = new BruteForceSorter().performNds(pop);
+                    final int[] ranks = new int[n];
+                    LowDimensionalNds.rankSorted(ObjectiveMatrix.pack(pop).getData(), n, dim, ranks);
+                    Assert.assertArrayEquals(expected, ranks);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAddRankedMembers() {
+        final Random random = new Random(5);
+        final INonDominatedSorter reference = new INonDominatedSorter() {
+            @Override
+            public int[] performNds(IIndividual[] population) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        for (int dim = 2; dim <= 3; ++dim) {
+            for (int iter = 0; iter < 200; ++iter) {
+                final List<IIndividual<Object>> level = firstFront(randomPopulation(random, 1 + random.nextInt(60), dim, 8));
+                final List<IIndividual<Object>> addends = firstFront(randomPopulation(random, 1 + random.nextInt(6), dim, 8));
+                final int[] ranks = new int[level.size()];
+
+                final RankedPopulation<IIndividual<Object>> expected = reference.addRankedMembers(level, ranks, addends, 0);
+                final RankedPopulation<IIndividual<Object>> actual = LowDimensionalNds.addRankedMembers(level, ranks, addends, 0);
+                Assert.assertArrayEquals(expected.getPop(), actual.getPop());
+                Assert.assertArrayEquals(expected.getRanks(), actual.getRanks());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedDimension() {
+        LowDimensionalNds.rankSorted(new double[4], 1, 4, new int[1]);
+    }
+
+    private static List<IIndividual<Object>> firstFront(IIndividual[] pop) {
+        final int[] ranks = new BruteForceSorter().performNds(pop);
+        final List<IIndividual<Object>> front = new ArrayList<>();
+        for (int i = 0; i < pop.length; ++i) {
+            if (ranks[i] == 0) {
+                //noinspection unchecked
+                front.add(pop[i]);
+            }
+        }
+        return front;
+    }
+
+    /**
+     * Quadratic sorting, independent of the dispatch to LowDimensionalNds
+     */
+    private static class BruteForceSorter implements INonDominatedSorter {
+        @Override
+        public int[] performNds(IIndividual[] population) {
+            Arrays.sort(population, AscLexSortComparator.getInstance());
+            final int[] ranks = new int[population.length];
+            for (int i = 0; i < population.length; ++i) {
+                final double[] obj = population[i].getObjectives();
+                for (int j = 0; j < i; ++j) {
+                    if (dominates(population[j].getObjectives(), obj, obj.length) < 0)
+                        ranks[i] = Math.max(ranks[i], ranks[j] + 1);
+                }
+            }
+            return ranks;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelJFBCorrectnessTest extends SorterCorrectnessTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Override
+    protected JFB2014 constructSorter() {
+        return new ParallelJFB(POOL, 8);
+    }
+
+    @Test
+    public void testSameAsSequential() {
+        final Random random = new Random(100);
+        final JFB2014 sequential = new PrimitiveJFB();
+        final JFB2014 parallel = new ParallelJFB(POOL, 64);
+        for (int dim = 2; dim <= 5; ++dim) {
+            for (int range : new int[]{10, 1000000}) {
+                final IIndividual[] pop = randomPopulation(random, 20000, dim, range);
+                final int[] expected = sequential.performNds(pop);
+                Assert.assertArrayEquals(expected, parallel.performNds(pop));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIncorrectCutoff() {
+        new ParallelJFB(1);
+    }
+}
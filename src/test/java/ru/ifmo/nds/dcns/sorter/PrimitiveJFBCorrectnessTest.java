@@ -0,0 +1,55 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.util.ObjectiveMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+
+public class PrimitiveJFBCorrectnessTest extends SorterCorrectnessTest {
+    @Override
+    protected JFB2014 constructSorter() {
+        return new PrimitiveJFB();
+    }
+
+    @Test
+    public void testFlatMatrix() {
+        final PrimitiveJFB sorter = (PrimitiveJFB) constructSorter();
+        final Random random = new Random(13);
+        for (int dim = 1; dim <= 5; ++dim) {
+            for (int n : new int[]{0, 1, 2, 10, 300}) {
+                final IIndividual[] pop = randomPopulation(random, n, dim, 10);
+                final ObjectiveMatrix matrix = ObjectiveMatrix.pack(pop);
+                final double[] copy = matrix.getData().clone();
+
+                final int[] ranks = sorter.performNds(matrix);
+                Assert.assertArrayEquals(copy, matrix.getData(), 0);
+
+                final int[] expected = new int[n];
+                Arrays.fill(expected, -1);
+                for (int i = 0; i < n; ++i) {
+                    bruteForceRank(pop, i, expected);
+                }
+                Assert.assertArrayEquals(expected, ranks);
+            }
+        }
+    }
+
+    private static int bruteForceRank(IIndividual[] pop, int index, int[] memo) {
+        if (memo[index] < 0) {
+            final double[] obj = pop[index].getObjectives();
+            int rank = 0;
+            for (int j = 0; j < pop.length; ++j) {
+                if (dominates(pop[j].getObjectives(), obj, obj.length) < 0) {
+                    rank = Math.max(rank, bruteForceRank(pop, j, memo) + 1);
+                }
+            }
+            memo[index] = rank;
+        }
+        return memo[index];
+    }
+}
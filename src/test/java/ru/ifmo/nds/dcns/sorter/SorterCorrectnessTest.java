@@ -0,0 +1,181 @@
+package ru.ifmo.nds.dcns.sorter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.PartialRanks;
+import ru.ifmo.nds.util.RankedPopulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static ru.ifmo.nds.util.Utils.dominates;
+import static ru.ifmo.nds.util.Utils.lexCompare;
+
+public abstract class SorterCorrectnessTest {
+    protected abstract INonDominatedSorter constructSorter();
+
+    @Test
+    public void testSmall() {
+        final IIndividual[] pop = toPopulation(new double[][]{
+                {-819.0, -917.0, -692.0}, {-786.0, -98.0, -268.0}, {-758.0, -2264.0, -655.0}, {-758.0, -515.0, -226.0},
+                {-666.0, -666.0, -666.0}, {-636.0, -321.0, -369.0}, {-571.0, -866.0, -524.0},
+                {-555.0, -487.0, -980.0}, {-158.0, -517.0, -647.0}, {-43.0, -572.0, -418.0}, {-19.0, -547.0, -935.0},
+                {300.0, 300.0, 300.0}
+        });
+
+        final int[] ranks = constructSorter().performNds(pop);
+        Assert.assertArrayEquals(new int[]{0, 1, 0, 1, 1, 2, 1, 0, 2, 2, 0, 3}, ranks);
+    }
+
+    @Test
+    public void testRandom() {
+        final INonDominatedSorter sorter = constructSorter();
+        final Random random = new Random(42);
+        for (int dim = 1; dim <= 6; ++dim) {
+            for (int n : new int[]{1, 2, 3, 10, 100, 1000}) {
+                for (int range : new int[]{3, 20, 1000000}) {
+                    checkRanks(sorter, randomPopulation(random, n, dim, range));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameInstanceReuse() {
+        final INonDominatedSorter sorter = constructSorter();
+        final Random random = new Random(7);
+        checkRanks(sorter, randomPopulation(random, 500, 4, 100));
+        checkRanks(sorter, randomPopulation(random, 50, 4, 100));
+        checkRanks(sorter, randomPopulation(random, 2000, 3, 1000));
+    }
+
+    @Test
+    public void testSingleFrontAndChain() {
+        final INonDominatedSorter sorter = constructSorter();
+        final int n = 300;
+        final double[][] front = new double[n][];
+        final double[][] chain = new double[n][];
+        for (int i = 0; i < n; ++i) {
+            front[i] = new double[]{i, n - i, (i * 7) % n == 0 ? 1 : 0};
+            chain[i] = new double[]{i, i, i};
+        }
+        checkRanks(sorter, toPopulation(front));
+        checkRanks(sorter, toPopulation(chain));
+    }
+
+    @Test
+    public void testAddRankedMembers() {
+        final INonDominatedSorter sorter = constructSorter();
+        final Random random = new Random(11);
+        for (int dim = 2; dim <= 4; ++dim) {
+            for (int iter = 0; iter < 20; ++iter) {
+                final List<IIndividual<Object>> level = randomLevel(random, 1 + random.nextInt(50), dim);
+                final List<IIndividual<Object>> addends = randomLevel(random, 1 + random.nextInt(5), dim);
+                final int[] ranks = new int[level.size()];
+
+                final RankedPopulation<IIndividual<Object>> rp = sorter.addRankedMembers(level, ranks, addends, 0);
+                Assert.assertEquals(level.size() + addends.size(), rp.getPop().length);
+                for (int i = 0; i < rp.getPop().length; ++i) {
+                    final double[] obj = rp.getPop()[i].getObjectives();
+                    if (i > 0) {
+                        Assert.assertTrue(lexCompare(rp.getPop()[i - 1].getObjectives(), obj, dim) <= 0);
+                    }
+                    int expected = 0;
+                    if (!addends.contains(rp.getPop()[i])) {
+                        for (IIndividual<Object> addend : addends) {
+                            if (dominates(addend.getObjectives(), obj, dim) < 0) {
+                                expected = 1;
+                            }
+                        }
+                    }
+                    Assert.assertEquals(expected, rp.getRanks()[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPartialNds() {
+        final INonDominatedSorter sorter = constructSorter();
+        final Random random = new Random(17);
+        for (int dim = 1; dim <= 6; ++dim) {
+            for (int n : new int[]{0, 1, 10, 300}) {
+                for (int range : new int[]{3, 20, 1000000}) {
+                    for (int targetCount : new int[]{1, n / 10 + 1, n / 2 + 1, n}) {
+                        final IIndividual[] pop = randomPopulation(random, n, dim, range);
+                        final PartialRanks partial = sorter.performPartialNds(pop.clone(), targetCount);
+                        final int[] expected = sorter.performNds(pop);
+
+                        int covered = 0;
+                        int coveredBeforeCut = 0;
+                        for (int i = 0; i < n; ++i) {
+                            final int cutLevel = partial.getCutLevel();
+                            Assert.assertEquals(Math.min(expected[i], cutLevel + 1), partial.getRanks()[i]);
+                            covered += expected[i] <= cutLevel ? 1 : 0;
+                            coveredBeforeCut += expected[i] < cutLevel ? 1 : 0;
+                        }
+                        Assert.assertEquals(covered, partial.getCoveredCount());
+                        Assert.assertTrue(covered >= Math.min(n, targetCount));
+                        Assert.assertTrue(coveredBeforeCut < Math.max(1, targetCount));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Lexicographically sorted set of mutually non-dominated points
+     */
+    private static List<IIndividual<Object>> randomLevel(Random random, int n, int dim) {
+        final IIndividual[] pop = randomPopulation(random, n, dim, 100);
+        final int[] ranks = new JFB2014().performNds(pop);
+        final List<IIndividual<Object>> level = new ArrayList<>();
+        for (int i = 0; i < pop.length; ++i) {
+            if (ranks[i] == 0) {
+                //noinspection unchecked
+                level.add(pop[i]);
+            }
+        }
+        return level;
+    }
+
+    static IIndividual[] toPopulation(double[][] data) {
+        final IIndividual[] pop = new IIndividual[data.length];
+        for (int i = 0; i < data.length; ++i) {
+            pop[i] = new FitnessAndCdIndividual<>(data[i], null);
+        }
+        return pop;
+    }
+
+    static IIndividual[] randomPopulation(Random random, int n, int dim, int range) {
+        final double[][] data = new double[n][dim];
+        for (double[] d : data) {
+            for (int j = 0; j < dim; ++j) {
+                d[j] = random.nextInt(range);
+            }
+        }
+        return toPopulation(data);
+    }
+
+    static void checkRanks(INonDominatedSorter sorter, IIndividual[] pop) {
+        final int[] ranks = sorter.performNds(pop);
+        Assert.assertEquals(pop.length, ranks.length);
+
+        final int[] expected = new int[pop.length];
+        for (int i = 0; i < pop.length; ++i) {
+            final double[] obj = pop[i].getObjectives();
+            if (i > 0) {
+                Assert.assertTrue(lexCompare(pop[i - 1].getObjectives(), obj, obj.length) <= 0);
+            }
+            for (int j = 0; j < i; ++j) {
+                if (dominates(pop[j].getObjectives(), obj, obj.length) < 0) {
+                    expected[i] = Math.max(expected[i], expected[j] + 1);
+                }
+            }
+        }
+        Assert.assertArrayEquals(expected, ranks);
+    }
+}
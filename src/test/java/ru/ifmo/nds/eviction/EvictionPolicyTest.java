@@ -0,0 +1,258 @@
+package ru.ifmo.nds.eviction;
+
+import org.junit.Test;
+import ru.ifmo.nds.IEvictionPolicy;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+import ru.ifmo.nds.util.AscLexSortComparator;
+import ru.ifmo.nds.util.CrowdingDistanceMode;
+import ru.ifmo.nds.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EvictionPolicyTest {
+    private static final int GRID = 10;
+
+    @Test
+    public void testExactContributions() {
+        final Random random = new Random(18);
+        for (int dim = 2; dim <= 3; ++dim) {
+            final double[] referencePoint = new double[dim];
+            Arrays.fill(referencePoint, GRID);
+            for (int iter = 0; iter < 50; ++iter) {
+                final IEvictionPolicy policy = new HypervolumeContributionEviction(referencePoint);
+                List<IIndividual<Object>> front = randomFront(random, dim);
+                while (front.size() > 1) {
+                    final int count = 1 + random.nextInt(Math.min(3, front.size() - 1));
+                    final List<IIndividual<Object>> expected = greedyByBruteForce(front, count);
+                    final List<IIndividual<Object>> selected = policy.selectWorst(level(front), count);
+                    assertEquals(objectives(expected), objectives(selected));
+                    front = without(front, selected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExactContributionsAfterInsertions() {
+        final Random random = new Random(19);
+        final double[] referencePoint = {GRID, GRID, GRID};
+        final IEvictionPolicy policy = new HypervolumeContributionEviction(referencePoint);
+        List<IIndividual<Object>> front = new ArrayList<>();
+        for (int iter = 0; iter < 300; ++iter) {
+            //Points on the planes x + y + z = 14 and 13 mostly join the level, some of them evicting members
+            final double x = random.nextInt(GRID);
+            final double y = random.nextInt(GRID);
+            final double[] objectives = {x, y, 14 - random.nextInt(2) - x - y};
+            if (objectives[2] < 0 || front.stream().anyMatch(p -> Arrays.equals(p.getObjectives(), objectives))) {
+                continue;
+            }
+            final List<IIndividual<Object>> points = new ArrayList<>(front);
+            points.add(new FitnessAndCdIndividual<>(objectives, null));
+            front = Utils.sortIntoLevels(points, new JFB2014()).get(0);
+            front.sort(AscLexSortComparator.getInstance());
+            if (front.size() < 20) {
+                continue;
+            }
+
+            final List<IIndividual<Object>> expected = greedyByBruteForce(front, 1);
+            final List<IIndividual<Object>> selected = policy.selectWorst(level(front), 1);
+            assertEquals(objectives(expected), objectives(selected));
+            front = without(front, selected);
+        }
+    }
+
+    @Test
+    public void testMonteCarloContributions() {
+        final List<IIndividual<Object>> front = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            final double[] objectives = new double[4];
+            Arrays.fill(objectives, 8);
+            objectives[i] = 0;
+            front.add(new FitnessAndCdIndividual<>(objectives, null));
+        }
+        //Contributes 16 while the others contribute at least 56
+        final double[] smallest = {4, 4, 9, 9};
+        front.add(new FitnessAndCdIndividual<>(smallest, null));
+        front.sort(AscLexSortComparator.getInstance());
+
+        final double[] referencePoint = {GRID, GRID, GRID, GRID};
+        assertArrayEquals(smallest, new MonteCarloHypervolumeEviction(referencePoint)
+                .selectWorst(level(front)).getObjectives(), 0);
+        assertArrayEquals(smallest, new HypervolumeContributionEviction(referencePoint)
+                .selectWorst(level(front)).getObjectives(), 0);
+        assertEquals(2, new MonteCarloHypervolumeEviction(referencePoint, 1000, 1).selectWorst(level(front), 2).size());
+    }
+
+    @Test
+    public void testCrowdingDistanceEviction() {
+        final Random random = new Random(19);
+        for (int iter = 0; iter < 100; ++iter) {
+            final List<IIndividual<Object>> front = randomFront(random, 3);
+            if (front.size() < 2) {
+                continue;
+            }
+            final JFBYNonDominationLevel<Object> level = level(front);
+            final int count = 1 + random.nextInt(front.size() - 1);
+            assertEquals(Utils.getWorstCDIndividuals(level, count),
+                    CrowdingDistanceEviction.getInstance().selectWorst(level, count));
+        }
+    }
+
+    @Test
+    public void testPopulationEviction() {
+        final Random random = new Random(20);
+        for (int iter = 0; iter < 20; ++iter) {
+            final List<IIndividual<Object>> front = randomFront(random, 2);
+            final int expectedSize = (front.size() + 1) / 2;
+            final JFBYPopulation<Object> population = new JFBYPopulation<>(new ArrayList<>(), new JFB2014(),
+                    expectedSize, CrowdingDistanceMode.FULL, new HypervolumeContributionEviction(new double[]{GRID, GRID}));
+            population.addIndividuals(new ArrayList<>(front));
+
+            final List<IIndividual<Object>> expected = without(front, greedyByBruteForce(front, front.size() - expectedSize));
+            assertEquals(objectives(expected), objectives(population.getSnapshot().getLevels().get(0).getMembers()));
+        }
+    }
+
+    @Test
+    public void testReferencePointEviction() {
+        final List<IIndividual<Object>> front = new ArrayList<>();
+        for (double[] point : new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {0.25, 0.75, 0}, {0, 0.5, 0.5}}) {
+            front.add(new FitnessAndCdIndividual<>(point, null));
+        }
+        //All in the niche of (0.5, 0.25, 0.25), the first one is the closest
+        for (int j = 0; j < 4; ++j) {
+            front.add(new FitnessAndCdIndividual<>(new double[]{0.5 + 0.01 * j, 0.25, 0.25 - 0.01 * j}, null));
+        }
+        front.sort(AscLexSortComparator.getInstance());
+
+        final List<IIndividual<Object>> selected = new ReferencePointEviction(3, 4).selectWorst(level(front), 3);
+        assertEquals(Arrays.asList("[0.51, 0.25, 0.24]", "[0.52, 0.25, 0.23]", "[0.53, 0.25, 0.22]"), objectives(selected));
+    }
+
+    @Test
+    public void testReferencePointEvictionReusesAssociations() {
+        final Random random = new Random(21);
+        final int dim = 8;
+        final ReferencePointEviction policy = new ReferencePointEviction(dim, 2, 1);
+        JFBYNonDominationLevel<Object> level = level(randomFront(random, dim));
+        while (level.getMembers().size() > 1) {
+            final int count = 1 + random.nextInt(Math.min(3, level.getMembers().size() - 1));
+            final List<IIndividual<Object>> selected = policy.selectWorst(level, count);
+            assertEquals(new ReferencePointEviction(dim, 2, 1).selectWorst(level, count), selected);
+            level = Utils.removeIndividualsFromLevel(level, selected, new JFB2014());
+        }
+
+        final JFBYPopulation<Object> population = new JFBYPopulation<>(new ArrayList<>(), new JFB2014(),
+                20, CrowdingDistanceMode.LAZY, policy);
+        for (int i = 0; i < 200; ++i) {
+            final double[] objectives = new double[dim];
+            for (int k = 0; k < dim; ++k) {
+                objectives[k] = random.nextDouble();
+            }
+            population.addIndividual(new FitnessAndCdIndividual<>(objectives, null));
+        }
+        assertEquals(20, population.size());
+    }
+
+    private static List<IIndividual<Object>> randomFront(Random random, int dim) {
+        final List<IIndividual<Object>> points = new ArrayList<>();
+        for (int i = 0; i < 60; ++i) {
+            final double[] objectives = new double[dim];
+            for (int k = 0; k < dim; ++k) {
+                objectives[k] = random.nextInt(GRID + 2);
+            }
+            points.add(new FitnessAndCdIndividual<>(objectives, null));
+        }
+        final List<IIndividual<Object>> front = new ArrayList<>();
+        for (IIndividual<Object> point : Utils.sortIntoLevels(points, new JFB2014()).get(0)) {
+            if (front.stream().noneMatch(p -> Arrays.equals(p.getObjectives(), point.getObjectives()))) {
+                front.add(point);
+            }
+        }
+        front.sort(AscLexSortComparator.getInstance());
+        return front;
+    }
+
+    private static JFBYNonDominationLevel<Object> level(List<IIndividual<Object>> front) {
+        return new JFBYNonDominationLevel<>(new JFB2014(), front);
+    }
+
+    /**
+     * SMS-EMOA selection with the hypervolume counted over the unit cells of the grid, ties broken lexicographically
+     */
+    private static List<IIndividual<Object>> greedyByBruteForce(List<IIndividual<Object>> front, int count) {
+        final List<IIndividual<Object>> rest = new ArrayList<>(front);
+        final List<IIndividual<Object>> rs = new ArrayList<>();
+        for (int c = 0; c < count; ++c) {
+            final long total = hypervolume(rest, null);
+            IIndividual<Object> worst = null;
+            long worstContribution = Long.MAX_VALUE;
+            for (IIndividual<Object> candidate : rest) {
+                final long contribution = total - hypervolume(rest, candidate);
+                if (contribution < worstContribution) {
+                    worst = candidate;
+                    worstContribution = contribution;
+                }
+            }
+            rest.remove(worst);
+            rs.add(worst);
+        }
+        rs.sort(AscLexSortComparator.getInstance());
+        return rs;
+    }
+
+    private static long hypervolume(List<IIndividual<Object>> points, IIndividual<Object> excluded) {
+        final int dim = points.get(0).getObjectives().length;
+        final int[] cell = new int[dim];
+        long rs = 0;
+        for (int c = 0; c < Math.pow(GRID, dim); ++c) {
+            for (int k = 0, v = c; k < dim; ++k, v /= GRID) {
+                cell[k] = v % GRID;
+            }
+            for (IIndividual<Object> point : points) {
+                if (point != excluded && dominatesCell(point.getObjectives(), cell)) {
+                    ++rs;
+                    break;
+                }
+            }
+        }
+        return rs;
+    }
+
+    private static boolean dominatesCell(double[] point, int[] cell) {
+        for (int k = 0; k < cell.length; ++k) {
+            if (point[k] > cell[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<IIndividual<Object>> without(List<IIndividual<Object>> front, List<IIndividual<Object>> removed) {
+        final List<String> removedObjectives = objectives(removed);
+        final List<IIndividual<Object>> rs = new ArrayList<>();
+        for (IIndividual<Object> point : front) {
+            if (!removedObjectives.contains(Arrays.toString(point.getObjectives()))) {
+                rs.add(point);
+            }
+        }
+        return rs;
+    }
+
+    private static List<String> objectives(List<IIndividual<Object>> points) {
+        final List<String> rs = new ArrayList<>();
+        for (IIndividual<Object> point : points) {
+            rs.add(Arrays.toString(point.getObjectives()));
+        }
+        return rs;
+    }
+}
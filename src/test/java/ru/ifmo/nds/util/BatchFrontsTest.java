@@ -0,0 +1,84 @@
+package ru.ifmo.nds.util;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.INonDominationLevel;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.jfby.JFBYPopulation;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BatchFrontsTest {
+    @Test
+    public void testFirstRankIsMinimalRank() {
+        final Random random = new Random(7);
+        final JFBYPopulation<Object> pop = new JFBYPopulation<>(new JFB2014(), 100500);
+        for (int i = 0; i < 300; ++i) {
+            pop.addIndividual(randomIndividual(random));
+        }
+        for (int iter = 0; iter < 100; ++iter) {
+            final List<IIndividual<Object>> batch = new ArrayList<>();
+            int expected = Integer.MAX_VALUE;
+            for (int i = 0; i < 10; ++i) {
+                final IIndividual<Object> point = randomIndividual(random);
+                batch.add(point);
+                expected = Math.min(expected, pop.determineRank(point));
+            }
+            batch.sort(AscLexSortComparator.getInstance());
+            final BatchFronts<Object> fronts = new BatchFronts<>(batch, new JFB2014());
+            assertEquals(expected, fronts.firstRank(pop.getSnapshot().getLevels()));
+        }
+    }
+
+    @Test
+    public void testFrontJoinsAfterThePreviousOneIsPlaced() {
+        final IIndividual<Object> a = point(1, 1);
+        final IIndividual<Object> b = point(2, 2);
+        final IIndividual<Object> c = point(3, 3);
+        final BatchFronts<Object> fronts = new BatchFronts<>(Arrays.asList(a, b, c), new JFB2014());
+        final JFBYNonDominationLevel<Object> level = new JFBYNonDominationLevel<>(new JFB2014(),
+                Collections.singletonList(point(0, 10)));
+        assertEquals(0, fronts.firstRank(Collections.singletonList(level)));
+        assertEquals(Collections.singletonList(a), fronts.first());
+
+        final INonDominationLevel.MemberAdditionResult<Object, JFBYNonDominationLevel<Object>> mar =
+                fronts.mergeInto(level, fronts.first());
+        assertEquals(2, mar.getModifiedLevel().getMembers().size());
+        final List<IIndividual<Object>> next = fronts.next(fronts.first(), mar.getEvictedMembers());
+        assertEquals(Collections.singletonList(b), next);
+        assertEquals(Arrays.asList(b, c), fronts.withUnreleased(next));
+    }
+
+    @Test
+    public void testFrontWaitsWhileThePreviousOneIsRejected() {
+        final IIndividual<Object> a = point(1, 1);
+        final IIndividual<Object> b = point(2, 2);
+        final BatchFronts<Object> fronts = new BatchFronts<>(Arrays.asList(a, b), new JFB2014());
+        final JFBYNonDominationLevel<Object> level = new JFBYNonDominationLevel<>(new JFB2014(),
+                Collections.singletonList(point(0, 0)));
+        assertEquals(1, fronts.firstRank(Collections.singletonList(level)));
+
+        final INonDominationLevel.MemberAdditionResult<Object, JFBYNonDominationLevel<Object>> mar =
+                fronts.mergeInto(level, fronts.first());
+        assertSame(level, mar.getModifiedLevel());
+        final List<IIndividual<Object>> next = fronts.next(fronts.first(), mar.getEvictedMembers());
+        assertEquals(Collections.singletonList(a), next);
+        assertEquals(Arrays.asList(a, b), fronts.withUnreleased(next));
+    }
+
+    private static IIndividual<Object> point(double... objectives) {
+        return new FitnessAndCdIndividual<>(objectives, null);
+    }
+
+    private static IIndividual<Object> randomIndividual(Random random) {
+        return point(random.nextInt(30), random.nextInt(30), random.nextInt(30));
+    }
+}
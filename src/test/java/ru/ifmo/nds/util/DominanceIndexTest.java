@@ -0,0 +1,80 @@
+package ru.ifmo.nds.util;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DominanceIndexTest {
+    @Test
+    public void testRandomUpdatesAndQueries() {
+        final Random random = new Random(31);
+        for (int dim = 2; dim <= 10; dim += 2) {
+            final List<IIndividual<Object>> members = new ArrayList<>();
+            for (int i = 0; i < 300; ++i) {
+                members.add(randomIndividual(random, dim));
+            }
+            DominanceIndex<Object> index = DominanceIndex.build(members);
+            for (int iter = 0; iter < 300; ++iter) {
+                final List<IIndividual<Object>> added = new ArrayList<>();
+                final List<IIndividual<Object>> removed = new ArrayList<>();
+                final int addCount = random.nextInt(4);
+                for (int i = 0; i < addCount; ++i) {
+                    added.add(randomIndividual(random, dim));
+                }
+                final int removeCount = Math.min(random.nextInt(4), members.size());
+                for (int i = 0; i < removeCount; ++i) {
+                    removed.add(members.remove(random.nextInt(members.size())));
+                }
+                members.addAll(added);
+                index = index.update(added, removed);
+                assertEquals(members.size(), index.size());
+
+                final double[] point = randomIndividual(random, dim).getObjectives();
+                boolean expectedDominated = false;
+                final List<IIndividual<Object>> expectedEvicted = new ArrayList<>();
+                for (IIndividual<Object> member : members) {
+                    final int dom = Utils.dominates(member.getObjectives(), point, dim);
+                    if (dom < 0) {
+                        expectedDominated = true;
+                    } else if (dom > 0) {
+                        expectedEvicted.add(member);
+                    }
+                }
+                assertEquals(expectedDominated, index.dominatedByAny(point));
+
+                final List<IIndividual<Object>> evicted = new ArrayList<>();
+                index.collectDominated(point, evicted);
+                expectedEvicted.sort(AscLexSortComparator.getInstance());
+                evicted.sort(AscLexSortComparator.getInstance());
+                assertEquals(expectedEvicted, evicted);
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        DominanceIndex<Object> index = DominanceIndex.build(Collections.emptyList());
+        assertEquals(0, index.size());
+        final IIndividual<Object> point = new FitnessAndCdIndividual<>(new double[]{1, 2, 3}, null);
+        index = index.update(Collections.singletonList(point), Collections.emptyList());
+        assertEquals(1, index.size());
+        index = index.update(Collections.emptyList(), Collections.singletonList(point));
+        assertEquals(0, index.size());
+        assertEquals(false, index.dominatedByAny(new double[]{4, 5, 6}));
+    }
+
+    private static IIndividual<Object> randomIndividual(Random random, int dim) {
+        final double[] objectives = new double[dim];
+        for (int i = 0; i < dim; ++i) {
+            objectives[i] = random.nextInt(20);
+        }
+        return new FitnessAndCdIndividual<>(objectives, null);
+    }
+}
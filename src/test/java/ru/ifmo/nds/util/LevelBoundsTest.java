@@ -0,0 +1,97 @@
+package ru.ifmo.nds.util;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.dcns.jfby.JFBYNonDominationLevel;
+import ru.ifmo.nds.dcns.sorter.JFB2014;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LevelBoundsTest {
+    @Test
+    public void testUpdateKeepsExactCorners() {
+        final Random random = new Random(5);
+        final int dim = 3;
+        final List<IIndividual<Object>> members = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            members.add(randomIndividual(random, dim, 10));
+        }
+        LevelBounds bounds = LevelBounds.of(members);
+        for (int iter = 0; iter < 1000; ++iter) {
+            final List<IIndividual<Object>> added = new ArrayList<>();
+            final List<IIndividual<Object>> removed = new ArrayList<>();
+            if (random.nextBoolean() || members.size() < 3) {
+                added.add(randomIndividual(random, dim, 10));
+                members.addAll(added);
+            } else {
+                removed.add(members.remove(random.nextInt(members.size())));
+            }
+            bounds = LevelBounds.update(bounds, added, removed);
+            if (bounds == null) {
+                bounds = LevelBounds.of(members);
+            }
+            final LevelBounds expected = LevelBounds.of(members);
+            assertArrayEquals(expected.getMinCorner(), bounds.getMinCorner(), 0);
+            assertArrayEquals(expected.getMaxCorner(), bounds.getMaxCorner(), 0);
+        }
+    }
+
+    @Test
+    public void testLevelDominanceChecks() {
+        final Random random = new Random(6);
+        DominanceStatistics.reset();
+        DominanceStatistics.setEnabled(true);
+        try {
+            for (int dim = 2; dim < 6; ++dim) {
+                final List<IIndividual<Object>> points = new ArrayList<>();
+                for (int i = 0; i < 100; ++i) {
+                    points.add(randomIndividual(random, dim, 5));
+                }
+                final List<IIndividual<Object>> front = Utils.sortIntoLevels(points, new JFB2014()).get(0);
+                front.sort(AscLexSortComparator.getInstance());
+                final JFBYNonDominationLevel<Object> level = new JFBYNonDominationLevel<>(new JFB2014(), front);
+                for (int i = 0; i < 1000; ++i) {
+                    final IIndividual<Object> point = randomIndividual(random, dim, 8, -1);
+                    boolean expected = false;
+                    for (IIndividual<Object> member : front) {
+                        expected |= Utils.dominates(member.getObjectives(), point.getObjectives(), dim) < 0;
+                    }
+                    assertEquals(expected, level.dominatedByAnyPointOfThisLayer(point));
+                }
+            }
+            assertEquals(4000, DominanceStatistics.getChecks());
+            assertTrue(DominanceStatistics.getPrunedByMinCorner() > 0);
+            assertTrue(DominanceStatistics.getPrunedByMaxCorner() > 0);
+            assertTrue(DominanceStatistics.getSavedComparisons() > 0);
+        } finally {
+            DominanceStatistics.setEnabled(false);
+            DominanceStatistics.reset();
+        }
+        assertEquals(0, DominanceStatistics.getChecks());
+    }
+
+    @Test
+    public void testEmptyLevel() {
+        final JFBYNonDominationLevel<Object> level = new JFBYNonDominationLevel<>(new JFB2014(), Collections.emptyList());
+        assertNull(level.getBounds());
+        assertFalse(level.dominatedByAnyPointOfThisLayer(new FitnessAndCdIndividual<>(new double[]{1, 2}, null)));
+    }
+
+    private static IIndividual<Object> randomIndividual(Random random, int dim, int bound) {
+        return randomIndividual(random, dim, bound, 0);
+    }
+
+    private static IIndividual<Object> randomIndividual(Random random, int dim, int bound, int shift) {
+        final double[] objectives = new double[dim];
+        for (int i = 0; i < dim; ++i) {
+            objectives[i] = random.nextInt(bound) + shift;
+        }
+        return new FitnessAndCdIndividual<>(objectives, null);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.ifmo.nds.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ObjectiveHashSetTest {
+    @Test
+    public void testAgainstHashSet() {
+        final Random random = new Random(21);
+        final ObjectiveHashSet set = new ObjectiveHashSet(4);
+        final Set<List<Double>> expected = new HashSet<>();
+        for (int i = 0; i < 200000; ++i) {
+            final double[] point = {random.nextInt(40), random.nextInt(40) - 20, random.nextBoolean() ? 0.0 : -0.0};
+            final List<Double> key = new ArrayList<>();
+            for (double v : point) {
+                key.add(v);
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.add(key), set.add(point));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), set.remove(point.clone()));
+                    break;
+                default:
+                    assertEquals(expected.contains(key), set.contains(point.clone()));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+    }
+
+    @Test
+    public void testConcurrentAdditions() throws Exception {
+        final int threads = 8;
+        final int points = 20000;
+        final ObjectiveHashSet set = new ObjectiveHashSet();
+        final AtomicInteger added = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < points; ++i) {
+                        //Every point is offered by several threads
+                        final double[] point = {i, random.nextInt(2)};
+                        if (set.add(point)) {
+                            added.incrementAndGet();
+                        }
+                        if (i % 3 != 0) {
+                            assertTrue(set.contains(point.clone()));
+                        } else if (set.remove(point.clone())) {
+                            removed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(added.get() - removed.get(), set.size());
+        int present = 0;
+        for (int i = 0; i < points; ++i) {
+            for (int j = 0; j < 2; ++j) {
+                if (set.contains(new double[]{i, j})) {
+                    ++present;
+                }
+            }
+        }
+        assertEquals(set.size(), present);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.ifmo.nds.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentVectorTest {
+    @Test
+    public void testRandomOperations() {
+        final Random random = new Random(3);
+        final List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int iter = 0; iter < 20000; ++iter) {
+            final int op = random.nextInt(10);
+            if (op < 6 || expected.isEmpty()) {
+                vector = vector.append(iter);
+                expected.add(iter);
+            } else if (op < 8) {
+                vector = vector.removeLast();
+                expected.remove(expected.size() - 1);
+            } else {
+                final int index = random.nextInt(expected.size());
+                vector = vector.set(index, -iter);
+                expected.set(index, -iter);
+            }
+            if (iter % 1000 == 0) {
+                check(expected, vector);
+            }
+        }
+        check(expected, vector);
+
+        while (!vector.isEmpty()) {
+            vector = vector.removeLast();
+            expected.remove(expected.size() - 1);
+            if (expected.size() % 97 == 0) {
+                check(expected, vector);
+            }
+        }
+        check(expected, vector);
+    }
+
+    @Test
+    public void testPersistence() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < 1100; ++i) {
+            vector = vector.append(i);
+        }
+        final PersistentVector<Integer> modified = vector.set(500, -1).removeLast().append(7);
+
+        for (int i = 0; i < 1100; ++i) {
+            assertEquals(i, (int) vector.get(i));
+        }
+        assertEquals(1100, modified.size());
+        assertEquals(-1, (int) modified.get(500));
+        assertEquals(7, (int) modified.last());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        PersistentVector.empty().append(1).get(1);
+    }
+
+    private static void check(List<Integer> expected, PersistentVector<Integer> vector) {
+        assertEquals(expected.size(), vector.size());
+        assertTrue(expected.isEmpty() == vector.isEmpty());
+        final List<Integer> actual = new ArrayList<>();
+        for (Integer e : vector) {
+            actual.add(e);
+        }
+        Assert.assertEquals(expected, actual);
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i), vector.get(i));
+        }
+    }
+}
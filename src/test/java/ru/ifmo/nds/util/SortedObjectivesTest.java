@@ -0,0 +1,144 @@
+package ru.ifmo.nds.util;
+
+import org.junit.Test;
+import ru.ifmo.nds.IIndividual;
+import ru.ifmo.nds.impl.FitnessAndCdIndividual;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SortedObjectivesTest {
+    private static final BiFunction<IIndividual<Object>, Double, IIndividual<Object>> CD_UPDATER =
+            (i, d) -> new FitnessAndCdIndividual<>(i.getObjectives(), d, i.getPayload());
+
+    @Test
+    public void testIncrementalEqualsFull() {
+        checkEqualsFull(CrowdingDistanceMode.INCREMENTAL);
+    }
+
+    @Test
+    public void testLazyEqualsFull() {
+        checkEqualsFull(CrowdingDistanceMode.LAZY);
+    }
+
+    @Test
+    public void testLazyCalculatesOnAccess() {
+        final Random random = new Random(13);
+        final int dim = 3;
+        final List<IIndividual<Object>> pop = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            pop.add(randomIndividual(random, dim));
+        }
+        pop.sort(AscLexSortComparator.getInstance());
+        final LazySortedObjectives<IIndividual<Object>, Object> created =
+                (LazySortedObjectives<IIndividual<Object>, Object>) SortedObjectives.create(dim, pop, CD_UPDATER, CrowdingDistanceMode.LAZY);
+        assertTrue(created.isDirty());
+        assertEquals(50, created.getLexSortedPop().size());
+        assertTrue(created.isDirty());
+        for (int i = 0; i < pop.size(); ++i) {
+            assertSame(pop.get(i), created.getRawLexSortedPop().get(i));
+        }
+
+        final IIndividual<Object> member = created.getLexSortedPop().get(10);
+        assertFalse(created.isDirty());
+        assertSame(member, created.getLexSortedPop().get(10));
+
+        final LazySortedObjectives<IIndividual<Object>, Object> updated = created.update(
+                Collections.emptyList(), Collections.singletonList(member), CD_UPDATER);
+        assertTrue(updated.isDirty());
+        assertEquals(49, updated.getRawLexSortedPop().size());
+        assertSameMembers(SortedObjectives.create(dim, new ArrayList<>(updated.getRawLexSortedPop()), CD_UPDATER).getLexSortedPop(),
+                updated.getLexSortedPop());
+    }
+
+    private void checkEqualsFull(CrowdingDistanceMode mode) {
+        final Random random = new Random(11);
+        for (int dim = 1; dim < 6; ++dim) {
+            SortedObjectives<IIndividual<Object>, Object> full = SortedObjectives.empty(dim, CrowdingDistanceMode.FULL);
+            SortedObjectives<IIndividual<Object>, Object> incremental = SortedObjectives.empty(dim, mode);
+            for (int iter = 0; iter < 300; ++iter) {
+                final List<IIndividual<Object>> members = new ArrayList<>(full.getLexSortedPop());
+                Collections.shuffle(members, random);
+                final List<IIndividual<Object>> toRemove = new ArrayList<>(
+                        members.subList(0, members.size() < 2 ? 0 : random.nextInt(Math.min(5, members.size() - 1))));
+                final List<IIndividual<Object>> toAdd = new ArrayList<>();
+                final int addCount = random.nextInt(6);
+                for (int i = 0; i < addCount; ++i) {
+                    toAdd.add(randomIndividual(random, dim));
+                }
+                if (members.isEmpty() && toAdd.isEmpty()) {
+                    toAdd.add(randomIndividual(random, dim));
+                }
+                toAdd.sort(AscLexSortComparator.getInstance());
+                toRemove.sort(AscLexSortComparator.getInstance());
+
+                full = full.update(toAdd, toRemove, CD_UPDATER);
+                incremental = incremental.update(toAdd, toRemove, CD_UPDATER);
+                assertEquals(mode, incremental.getMode());
+                assertSameMembers(full.getLexSortedPop(), incremental.getLexSortedPop());
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyNeighboursAreReissued() {
+        final Random random = new Random(12);
+        final int dim = 3;
+        final List<IIndividual<Object>> pop = new ArrayList<>();
+        pop.add(new FitnessAndCdIndividual<>(new double[]{0, 0, 0}, null));
+        pop.add(new FitnessAndCdIndividual<>(new double[]{1, 1, 1}, null));
+        for (int i = 0; i < 200; ++i) {
+            pop.add(randomIndividual(random, dim));
+        }
+        pop.sort(AscLexSortComparator.getInstance());
+        SortedObjectives<IIndividual<Object>, Object> so = SortedObjectives.create(dim, pop, CD_UPDATER, CrowdingDistanceMode.INCREMENTAL);
+
+        for (int iter = 0; iter < 100; ++iter) {
+            final List<IIndividual<Object>> before = so.getLexSortedPop();
+            final Set<IIndividual<Object>> beforeInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+            beforeInstances.addAll(before);
+
+            final IIndividual<Object> removed = before.get(1 + random.nextInt(before.size() - 2));
+            if (removed.getObjectives()[0] == 0 || removed.getObjectives()[0] == 1) {
+                continue;
+            }
+            so = so.update(Collections.singletonList(randomIndividual(random, dim)), Collections.singletonList(removed), CD_UPDATER);
+
+            int reissued = 0;
+            for (IIndividual<Object> member : so.getLexSortedPop()) {
+                if (!beforeInstances.contains(member)) {
+                    ++reissued;
+                }
+            }
+            assertEquals(before.size(), so.getLexSortedPop().size());
+            //The added member, its neighbours and the neighbours of the removed one
+            assertTrue("Reissued " + reissued, reissued <= 1 + 4 * dim);
+
+            final SortedObjectives<IIndividual<Object>, Object> full = SortedObjectives.create(
+                    dim, new ArrayList<>(so.getLexSortedPop()), CD_UPDATER, CrowdingDistanceMode.FULL);
+            assertSameMembers(full.getLexSortedPop(), so.getLexSortedPop());
+        }
+    }
+
+    private static IIndividual<Object> randomIndividual(Random random, int dim) {
+        final double[] objectives = new double[dim];
+        for (int i = 0; i < dim; ++i) {
+            objectives[i] = 0.001 + 0.998 * random.nextDouble();
+        }
+        return new FitnessAndCdIndividual<>(objectives, null);
+    }
+
+    private static void assertSameMembers(List<IIndividual<Object>> expected, List<IIndividual<Object>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertArrayEquals(expected.get(i).getObjectives(), actual.get(i).getObjectives(), 0);
+            assertEquals(expected.get(i).getCrowdingDistance(), actual.get(i).getCrowdingDistance(), 1e-9);
+        }
+    }
+}